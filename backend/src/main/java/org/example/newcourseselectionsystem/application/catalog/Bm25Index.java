@@ -0,0 +1,169 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import org.example.newcourseselectionsystem.domain.entity.Course;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 课程文本的 BM25 倒排索引（不可变，按目录版本构建）
+ * <p>
+ * 文本切分为汉字单字与相邻双字，连续的字母数字作为一个词（统一小写）。
+ * 课程名称、类型、学院、教师、描述按不同权重计入词频，课程名称命中最重要。
+ * 查询只遍历查询词的倒排表，得分数组按课程下标排列，未命中的课程得分为0。
+ */
+final class Bm25Index {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int TYPE_WEIGHT = 2;
+    private static final int OTHER_WEIGHT = 1;
+
+    private final long version;
+    private final int size;
+    private final Map<String, Posting> postings;
+    /**
+     * 各课程的 BM25 长度归一项 K1 * (1 - B + B * 文档长度 / 平均长度)
+     */
+    private final float[] lengthNorms;
+
+    private Bm25Index(long version, int size, Map<String, Posting> postings, float[] lengthNorms) {
+        this.version = version;
+        this.size = size;
+        this.postings = postings;
+        this.lengthNorms = lengthNorms;
+    }
+
+    static Bm25Index build(CatalogSnapshot snapshot) {
+        int n = snapshot.size();
+        Map<String, List<int[]>> lists = new HashMap<>();
+        int[] lengths = new int[n];
+        long totalLength = 0;
+        for (int i = 0; i < n; i++) {
+            Course course = snapshot.courseAt(i);
+            Map<String, Integer> frequencies = new HashMap<>();
+            addField(frequencies, course.getCourseName(), NAME_WEIGHT);
+            addField(frequencies, course.getType(), TYPE_WEIGHT);
+            addField(frequencies, course.getCollege(), OTHER_WEIGHT);
+            addField(frequencies, course.getInstructorName(), OTHER_WEIGHT);
+            addField(frequencies, course.getDescription(), OTHER_WEIGHT);
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                lists.computeIfAbsent(entry.getKey(), t -> new ArrayList<>()).add(new int[]{i, entry.getValue()});
+                lengths[i] += entry.getValue();
+            }
+            totalLength += lengths[i];
+        }
+
+        float averageLength = n == 0 ? 1f : Math.max(1f, (float) totalLength / n);
+        float[] lengthNorms = new float[n];
+        for (int i = 0; i < n; i++) {
+            lengthNorms[i] = K1 * (1 - B + B * lengths[i] / averageLength);
+        }
+        Map<String, Posting> postings = new HashMap<>(lists.size() * 2);
+        lists.forEach((term, list) -> {
+            int[] docs = new int[list.size()];
+            int[] frequencies = new int[list.size()];
+            for (int j = 0; j < list.size(); j++) {
+                docs[j] = list.get(j)[0];
+                frequencies[j] = list.get(j)[1];
+            }
+            float idf = (float) Math.log(1 + (n - docs.length + 0.5) / (docs.length + 0.5));
+            postings.put(term, new Posting(idf, docs, frequencies));
+        });
+        return new Bm25Index(snapshot.getVersion(), n, postings, lengthNorms);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * 查询文本与各课程的 BM25 得分（按课程下标排列）
+     */
+    float[] score(String query) {
+        float[] scores = new float[size];
+        if (query == null) {
+            return scores;
+        }
+        for (String term : terms(query)) {
+            Posting posting = postings.get(term);
+            if (posting == null) {
+                continue;
+            }
+            for (int j = 0; j < posting.docs.length; j++) {
+                int doc = posting.docs[j];
+                float tf = posting.frequencies[j];
+                scores[doc] += posting.idf * tf * (K1 + 1) / (tf + lengthNorms[doc]);
+            }
+        }
+        return scores;
+    }
+
+    private static void addField(Map<String, Integer> frequencies, String text, int weight) {
+        if (text == null) {
+            return;
+        }
+        for (String term : tokenize(text)) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * 查询词去重：同一个词在提示中重复出现不重复计分
+     */
+    private static Set<String> terms(String query) {
+        return new LinkedHashSet<>(tokenize(query));
+    }
+
+    /**
+     * 切分：汉字取单字与相邻双字，字母数字连续段取整段，其余字符作为分隔
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        String lower = text.toLowerCase();
+        int length = lower.length();
+        int i = 0;
+        while (i < length) {
+            char c = lower.charAt(i);
+            if (isCjk(c)) {
+                terms.add(String.valueOf(c));
+                if (i + 1 < length && isCjk(lower.charAt(i + 1))) {
+                    terms.add(lower.substring(i, i + 2));
+                }
+                i++;
+            } else if (Character.isLetterOrDigit(c)) {
+                int end = i + 1;
+                while (end < length && Character.isLetterOrDigit(lower.charAt(end)) && !isCjk(lower.charAt(end))) {
+                    end++;
+                }
+                terms.add(lower.substring(i, end));
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        return terms;
+    }
+
+    private static boolean isCjk(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+
+    private static final class Posting {
+        private final float idf;
+        private final int[] docs;
+        private final int[] frequencies;
+
+        Posting(float idf, int[] docs, int[] frequencies) {
+            this.idf = idf;
+            this.docs = docs;
+            this.frequencies = frequencies;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 课程目录（courses / course_sessions）发生变化的事件，携带新的目录版本号
+ */
+@Getter
+public class CatalogChangedEvent extends ApplicationEvent {
+
+    private final long version;
+
+    public CatalogChangedEvent(Object source, long version) {
+        super(source);
+        this.version = version;
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.infrastructure.client.DeepSeekApiClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AI 推荐提示中与学生无关的部分，按目录版本缓存
+ * <p>
+ * 系统提示与全量课程列表在目录变化前对所有学生都相同：按目录版本拼接一次并预先序列化为
+ * JSON 消息片段，请求时原样写入；每门课程的静态描述行也只生成一次，检索模式下按候选直接取用。
+ * 已选人数随时变化，不放进缓存，由调用方在学生消息中补充。
+ * 缓存的消息排在消息列表最前面，使模型服务端的提示前缀缓存能够命中。
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogPromptPrefix {
+
+    public static final String SYSTEM_PROMPT = "你是一个专业的课程推荐助手，能够根据学生的需求和背景信息推荐合适的课程。";
+
+    private final CourseCatalog courseCatalog;
+    private final DeepSeekApiClient deepSeekApiClient;
+
+    @Value("${recommendation.retrieval.description-max-chars:60}")
+    private int descriptionMaxChars;
+
+    private volatile Prefix prefix;
+
+    /**
+     * 预序列化的系统提示消息
+     */
+    public RawValue systemMessage() {
+        return current().systemMessage;
+    }
+
+    /**
+     * 预序列化的全量课程列表消息（不含已选人数）
+     */
+    public RawValue catalogMessage() {
+        return current().catalogMessage;
+    }
+
+    /**
+     * 课程的静态描述行（描述已截断，不含已选人数与换行），快照之外的课程临时生成
+     */
+    public Line line(Course course) {
+        Line line = current().lines.get(course.getCourseId());
+        return line != null ? line : new Line(courseText(course, descriptionMaxChars));
+    }
+
+    /**
+     * 粗略估算 token 数：汉字按1个计，其余字符每4个计1个
+     */
+    public static int estimateTokens(CharSequence text) {
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.UnicodeScript.of(text.charAt(i)) == Character.UnicodeScript.HAN) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (other + 3) / 4;
+    }
+
+    private Prefix current() {
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        Prefix current = prefix;
+        if (current == null || current.version != snapshot.getVersion()) {
+            synchronized (this) {
+                current = prefix;
+                if (current == null || current.version != snapshot.getVersion()) {
+                    current = build(snapshot);
+                    prefix = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Prefix build(CatalogSnapshot snapshot) {
+        Map<Long, Line> lines = new HashMap<>(snapshot.size() * 2);
+        StringBuilder catalog = new StringBuilder("所有可选课程列表（已选人数见学生消息）：\n");
+        if (snapshot.size() == 0) {
+            catalog.append("暂无可选课程\n");
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            Course course = snapshot.courseAt(i);
+            lines.put(course.getCourseId(), new Line(courseText(course, descriptionMaxChars)));
+            catalog.append(courseText(course, Integer.MAX_VALUE)).append('\n');
+        }
+        return new Prefix(snapshot.getVersion(),
+                deepSeekApiClient.precompute(new DeepSeekApiClient.Message("system", SYSTEM_PROMPT)),
+                deepSeekApiClient.precompute(new DeepSeekApiClient.Message("system", catalog.toString())),
+                lines);
+    }
+
+    private static String courseText(Course course, int descriptionMaxChars) {
+        String description = course.getDescription() != null ? course.getDescription() : "无";
+        if (description.length() > descriptionMaxChars) {
+            description = description.substring(0, descriptionMaxChars) + "…";
+        }
+        return "- 课程ID：" + course.getCourseId()
+                + "，课程名称：" + course.getCourseName()
+                + "，学分：" + course.getCredits()
+                + "，类型：" + (course.getType() != null ? course.getType() : "无")
+                + "，描述：" + description
+                + "，学院：" + course.getCollege()
+                + "，容量：" + course.getCapacity();
+    }
+
+    /**
+     * 课程描述行及其估算的 token 数
+     */
+    @Getter
+    public static final class Line {
+        private final String text;
+        private final int tokens;
+
+        Line(String text) {
+            this.text = text;
+            this.tokens = estimateTokens(text);
+        }
+    }
+
+    private static final class Prefix {
+        private final long version;
+        private final RawValue systemMessage;
+        private final RawValue catalogMessage;
+        private final Map<Long, Line> lines;
+
+        Prefix(long version, RawValue systemMessage, RawValue catalogMessage, Map<Long, Line> lines) {
+            this.version = version;
+            this.systemMessage = systemMessage;
+            this.catalogMessage = catalogMessage;
+            this.lines = lines;
+        }
+    }
+}
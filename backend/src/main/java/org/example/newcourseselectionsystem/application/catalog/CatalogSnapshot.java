@@ -0,0 +1,334 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import org.example.newcourseselectionsystem.application.request.CourseQueryRequest;
+import org.example.newcourseselectionsystem.application.request.SessionQueryRequest;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.domain.entity.CourseSession;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 课程目录快照（不可变）：某一目录版本下的全部课程、节次及属性索引
+ * <p>
+ * 课程按 courseId 升序分配稠密下标，查询结果以 {@link BitSet} 表示下标集合：
+ * 等值条件（学院、校区、教室、类型、学分）直接取对应索引位集求交，
+ * 模糊条件（课程名、描述、教师）走 n-gram 倒排索引，节次条件走按星期分组的区间索引，
+ * 周次范围与容量只在剩余候选上逐个判定。
+ * 快照中的实体仅供只读，不得修改。
+ */
+public final class CatalogSnapshot {
+
+    /**
+     * 支持分面统计的属性：除课程属性外，weekday 为课程节次所在的星期（多值）
+     */
+    public static final List<String> FACETS = Collections.unmodifiableList(
+            Arrays.asList("college", "campus", "type", "credits", "classroom", "weekday"));
+
+    private final long version;
+    private final Course[] courses;
+    private final CourseSchedule[] schedules;
+    private final Map<Long, Integer> indexOf;
+
+    private final NgramIndex nameIndex;
+    private final NgramIndex descriptionIndex;
+    private final NgramIndex instructorIndex;
+    private final SessionIntervalIndex sessionIndex;
+    private final Map<String, FacetColumn> facetColumns = new HashMap<>();
+
+    private final Map<String, BitSet> byCollege;
+    private final Map<String, BitSet> byCampus;
+    private final Map<String, BitSet> byClassroom;
+    private final Map<String, BitSet> byType;
+    private final Map<Integer, BitSet> byCredits;
+
+    private CatalogSnapshot(long version, Course[] courses, CourseSchedule[] schedules) {
+        int n = courses.length;
+        this.version = version;
+        this.courses = courses;
+        this.schedules = schedules;
+        this.indexOf = new HashMap<>(n * 2);
+        String[] names = new String[n];
+        String[] descriptions = new String[n];
+        String[] instructors = new String[n];
+        for (int i = 0; i < n; i++) {
+            indexOf.put(courses[i].getCourseId(), i);
+            names[i] = lower(courses[i].getCourseName());
+            descriptions[i] = lower(courses[i].getDescription());
+            instructors[i] = lower(courses[i].getInstructorName());
+        }
+        this.nameIndex = NgramIndex.build(names);
+        this.descriptionIndex = NgramIndex.build(descriptions);
+        this.instructorIndex = NgramIndex.build(instructors);
+        this.sessionIndex = SessionIntervalIndex.build(schedules);
+        for (String facet : FACETS) {
+            if ("weekday".equals(facet)) {
+                facetColumns.put(facet, FacetColumn.build(n,
+                        i -> schedules[i].getSessions().stream().map(CourseSession::getWeekday).collect(Collectors.toList()),
+                        Comparator.comparingInt(value -> TimetableBits.weekdayOrder((String) value))
+                                .thenComparing(String::valueOf)));
+            } else {
+                CourseAttribute attribute = CourseAttribute.of(facet);
+                facetColumns.put(facet, FacetColumn.build(n,
+                        i -> Collections.singletonList(attribute.get(courses[i])), CatalogSnapshot::compareValues));
+            }
+        }
+        this.byCollege = index(courses, Course::getCollege);
+        this.byCampus = index(courses, Course::getCampus);
+        this.byClassroom = index(courses, Course::getClassroom);
+        this.byType = index(courses, Course::getType);
+        this.byCredits = index(courses, Course::getCredits);
+    }
+
+    /**
+     * 由全部课程与节次构建快照
+     *
+     * @param version  构建所依据的目录版本
+     * @param courses  全部课程
+     * @param sessions 全部节次
+     */
+    public static CatalogSnapshot build(long version, Collection<Course> courses, Collection<CourseSession> sessions) {
+        Course[] sorted = courses.toArray(new Course[0]);
+        Arrays.sort(sorted, Comparator.comparing(Course::getCourseId));
+        Map<Long, List<CourseSession>> sessionGroup = new HashMap<>(sorted.length * 2);
+        for (CourseSession session : sessions) {
+            sessionGroup.computeIfAbsent(session.getCourseId(), id -> new ArrayList<>()).add(session);
+        }
+        CourseSchedule[] schedules = new CourseSchedule[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            Course course = sorted[i];
+            schedules[i] = new CourseSchedule(course.getCourseId(), course.getCourseName(),
+                    course.getStartWeek(), course.getEndWeek(), sessionGroup.get(course.getCourseId()));
+        }
+        return new CatalogSnapshot(version, sorted, schedules);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return courses.length;
+    }
+
+    public Course courseAt(int index) {
+        return courses[index];
+    }
+
+    public CourseSchedule scheduleAt(int index) {
+        return schedules[index];
+    }
+
+    /**
+     * 课程的时间安排，快照中不存在时返回null
+     */
+    public CourseSchedule schedule(Long courseId) {
+        Integer index = indexOf.get(courseId);
+        return index != null ? schedules[index] : null;
+    }
+
+    /**
+     * 全部课程的时间安排（按 courseId 升序）
+     */
+    public List<CourseSchedule> getSchedules() {
+        return Collections.unmodifiableList(Arrays.asList(schedules));
+    }
+
+    /**
+     * 全部课程下标
+     */
+    public BitSet all() {
+        BitSet result = new BitSet(courses.length);
+        result.set(0, courses.length);
+        return result;
+    }
+
+    /**
+     * 指定课程ID集合对应的下标，快照中不存在的ID被忽略
+     */
+    public BitSet ofCourseIds(Collection<Long> courseIds) {
+        BitSet result = new BitSet(courses.length);
+        for (Long courseId : courseIds) {
+            Integer index = indexOf.get(courseId);
+            if (index != null) {
+                result.set(index);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按课程字段条件筛选，语义与原 SQL 条件一致：文本字段模糊匹配（忽略大小写），其余等值，
+     * 起始周不早于、结束周不晚于给定值
+     */
+    public BitSet matchCourses(CourseQueryRequest request) {
+        BitSet result = all();
+        if (request == null) {
+            return result;
+        }
+        if (request.getCourseId() != null) {
+            result = ofCourseIds(Collections.singletonList(request.getCourseId()));
+        }
+        if (StringUtils.hasText(request.getCollege())) {
+            and(result, byCollege.get(request.getCollege()));
+        }
+        if (StringUtils.hasText(request.getCampus())) {
+            and(result, byCampus.get(request.getCampus()));
+        }
+        if (StringUtils.hasText(request.getClassroom())) {
+            and(result, byClassroom.get(request.getClassroom()));
+        }
+        if (StringUtils.hasText(request.getType())) {
+            and(result, byType.get(request.getType()));
+        }
+        if (request.getCredits() != null) {
+            and(result, byCredits.get(request.getCredits()));
+        }
+
+        if (StringUtils.hasText(request.getCourseName())) {
+            and(result, nameIndex.search(lower(request.getCourseName())));
+        }
+        if (StringUtils.hasText(request.getDescription())) {
+            and(result, descriptionIndex.search(lower(request.getDescription())));
+        }
+        if (StringUtils.hasText(request.getInstructorName())) {
+            and(result, instructorIndex.search(lower(request.getInstructorName())));
+        }
+
+        Integer startWeek = request.getStartWeek();
+        Integer endWeek = request.getEndWeek();
+        Integer capacity = request.getCapacity();
+        if (startWeek == null && endWeek == null && capacity == null) {
+            return result;
+        }
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            Course course = courses[i];
+            boolean matched = (startWeek == null || (course.getStartWeek() != null && course.getStartWeek() >= startWeek))
+                    && (endWeek == null || (course.getEndWeek() != null && course.getEndWeek() <= endWeek))
+                    && (capacity == null || capacity.equals(course.getCapacity()));
+            if (!matched) {
+                result.clear(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 结果排列顺序：带课程名关键字时按匹配程度（完全相同 > 前缀 > 子串位置靠前 > 名称较短）排序，
+     * 否则保持 courseId 升序
+     */
+    public int[] order(BitSet indexes, CourseQueryRequest request) {
+        int[] order = indexes.stream().toArray();
+        if (request == null || !StringUtils.hasText(request.getCourseName())) {
+            return order;
+        }
+        int[] scores = nameRelevance(indexes, request.getCourseName());
+        return Arrays.stream(order).boxed()
+                .sorted(Comparator.<Integer>comparingInt(index -> scores[index]).thenComparingInt(index -> index))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * 课程名与关键字的匹配程度，数值越小越相关；按课程下标存放，仅 indexes 中的位置有效
+     */
+    public int[] nameRelevance(BitSet indexes, String courseName) {
+        String keyword = lower(courseName);
+        int[] scores = new int[courses.length];
+        for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+            scores[i] = nameIndex.matchScore(i, keyword);
+        }
+        return scores;
+    }
+
+    /**
+     * 按节次条件筛选：至少有一个节次落在给定星期之一，且节次区间与 [startPeriod, endPeriod]
+     * 满足请求的关系（默认为覆盖，另支持相交、包含于）
+     */
+    public BitSet matchSessions(SessionQueryRequest request) {
+        return sessionIndex.query(request.getWeekdays(), request.getStartPeriod(), request.getEndPeriod(),
+                SessionIntervalIndex.Mode.parse(request.getMatchMode()));
+    }
+
+    /**
+     * 一次遍历候选课程，统计多个分面中每个取值的课程数；结果按取值的展示顺序排列，不含计数为0的取值
+     *
+     * @param facets 分面名称，须为 {@link #FACETS} 之一
+     * @throws IllegalArgumentException 分面名称不受支持
+     */
+    public Map<String, Map<Object, Integer>> facetCounts(BitSet indexes, List<String> facets) {
+        FacetColumn[] columns = new FacetColumn[facets.size()];
+        int[][] counts = new int[facets.size()][];
+        for (int f = 0; f < columns.length; f++) {
+            columns[f] = facetColumns.get(facets.get(f));
+            if (columns[f] == null) {
+                throw new IllegalArgumentException("不支持的分面: " + facets.get(f));
+            }
+            counts[f] = new int[columns[f].cardinality()];
+        }
+        for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+            for (int f = 0; f < columns.length; f++) {
+                for (int code : columns[f].codesOf(i)) {
+                    counts[f][code]++;
+                }
+            }
+        }
+        Map<String, Map<Object, Integer>> result = new LinkedHashMap<>();
+        for (int f = 0; f < columns.length; f++) {
+            Map<Object, Integer> values = new LinkedHashMap<>();
+            for (int code = 0; code < counts[f].length; code++) {
+                if (counts[f][code] > 0) {
+                    values.put(columns[f].value(code), counts[f][code]);
+                }
+            }
+            result.put(facets.get(f), values);
+        }
+        return result;
+    }
+
+    /**
+     * 同一属性取值的自然顺序：数字按数值、字符串按字典序
+     */
+    @SuppressWarnings("unchecked")
+    public static int compareValues(Object a, Object b) {
+        if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    private static <K> Map<K, BitSet> index(Course[] courses, Function<Course, K> attribute) {
+        Map<K, BitSet> index = new HashMap<>();
+        for (int i = 0; i < courses.length; i++) {
+            K key = attribute.apply(courses[i]);
+            if (key != null) {
+                index.computeIfAbsent(key, k -> new BitSet(courses.length)).set(i);
+            }
+        }
+        return index;
+    }
+
+    private static void and(BitSet result, BitSet posting) {
+        if (posting == null) {
+            result.clear();
+        } else {
+            result.and(posting);
+        }
+    }
+
+    private static String lower(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseSessionMapper;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 课程目录版本跟踪
+ * <p>
+ * 课程目录只在学期之间通过导入变化，这里定期比对目录指纹，
+ * 变化时递增版本号并发布 {@link CatalogChangedEvent}，各内存索引据此重建。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogVersionTracker {
+
+    private final CourseMapper courseMapper;
+    private final CourseSessionMapper courseSessionMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile String fingerprint;
+
+    /**
+     * 当前目录版本号，首次加载前为0
+     */
+    public long currentVersion() {
+        return version.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            refresh();
+        } catch (DataAccessException e) {
+            // 数据库暂不可用时不阻止启动，等待下一次定期检测
+            log.warn("启动时加载课程目录失败，将在下次检测时重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定期检测目录变化
+     */
+    @Scheduled(initialDelayString = "${catalog.version-check-interval-ms:60000}",
+            fixedDelayString = "${catalog.version-check-interval-ms:60000}")
+    public void checkForChanges() {
+        refresh();
+    }
+
+    /**
+     * 比对目录指纹，变化时发布新版本；可在导入课程数据后主动调用
+     *
+     * @return 是否检测到变化
+     */
+    public synchronized boolean refresh() {
+        String current = courseMapper.catalogFingerprint() + ":" + courseSessionMapper.sessionFingerprint();
+        if (current.equals(fingerprint)) {
+            return false;
+        }
+        fingerprint = current;
+        long newVersion = version.incrementAndGet();
+        log.info("课程目录版本更新为 {}", newVersion);
+        eventPublisher.publishEvent(new CatalogChangedEvent(this, newVersion));
+        return true;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import org.example.newcourseselectionsystem.domain.entity.Course;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 课程属性及其预编译的取值函数，按属性名查找，替代逐行反射调用 getter
+ */
+public enum CourseAttribute {
+    COURSE_ID("courseId", Course::getCourseId),
+    COURSE_NAME("courseName", Course::getCourseName),
+    CREDITS("credits", Course::getCredits),
+    DESCRIPTION("description", Course::getDescription),
+    COLLEGE("college", Course::getCollege),
+    INSTRUCTOR_NAME("instructorName", Course::getInstructorName),
+    CAMPUS("campus", Course::getCampus),
+    CLASSROOM("classroom", Course::getClassroom),
+    START_WEEK("startWeek", Course::getStartWeek),
+    END_WEEK("endWeek", Course::getEndWeek),
+    CAPACITY("capacity", Course::getCapacity),
+    ENROLLED_COUNT("enrolledCount", Course::getEnrolledCount),
+    TYPE("type", Course::getType);
+
+    private static final Map<String, CourseAttribute> BY_PROPERTY = new HashMap<>();
+
+    static {
+        for (CourseAttribute attribute : values()) {
+            BY_PROPERTY.put(attribute.propertyName, attribute);
+        }
+    }
+
+    private final String propertyName;
+    private final Function<Course, Object> accessor;
+
+    CourseAttribute(String propertyName, Function<Course, Object> accessor) {
+        this.propertyName = propertyName;
+        this.accessor = accessor;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    public Object get(Course course) {
+        return accessor.apply(course);
+    }
+
+    /**
+     * 按属性名（与 Course 字段名一致）查找
+     *
+     * @throws IllegalArgumentException 属性名无效
+     */
+    public static CourseAttribute of(String propertyName) {
+        CourseAttribute attribute = BY_PROPERTY.get(propertyName);
+        if (attribute == null) {
+            throw new IllegalArgumentException("无效的属性名称: " + propertyName);
+        }
+        return attribute;
+    }
+}
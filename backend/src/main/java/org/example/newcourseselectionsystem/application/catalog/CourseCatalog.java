@@ -0,0 +1,68 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.domain.entity.CourseSession;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseSessionMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 课程目录：持有当前版本的 {@link CatalogSnapshot}
+ * <p>
+ * 目录版本变化时全量加载（两次查询）并整体替换快照，读路径无锁；
+ * 首次访问时若尚未加载则同步加载一次。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CourseCatalog {
+
+    private final CourseMapper courseMapper;
+    private final CourseSessionMapper courseSessionMapper;
+    private final CatalogVersionTracker catalogVersionTracker;
+
+    private volatile CatalogSnapshot snapshot;
+
+    /**
+     * 当前目录快照
+     */
+    public CatalogSnapshot snapshot() {
+        CatalogSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = reload(catalogVersionTracker.currentVersion());
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 目录变化时先于其他内存索引重建，保证它们读到的是新快照
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public synchronized void onCatalogChanged(CatalogChangedEvent event) {
+        reload(event.getVersion());
+    }
+
+    private CatalogSnapshot reload(long version) {
+        long start = System.currentTimeMillis();
+        List<Course> courses = courseMapper.selectList(null);
+        List<CourseSession> sessions = courseSessionMapper.selectList(null);
+        CatalogSnapshot built = CatalogSnapshot.build(version, courses, sessions);
+        snapshot = built;
+        log.info("课程目录快照已加载：版本 {}，课程 {} 门，节次 {} 个，耗时 {} ms",
+                version, built.size(), sessions.size(), System.currentTimeMillis() - start);
+        return built;
+    }
+}
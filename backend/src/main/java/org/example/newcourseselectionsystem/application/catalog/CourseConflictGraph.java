@@ -0,0 +1,154 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 全目录课程冲突图（不可变）：对称邻接位矩阵，行按课程的稠密下标组织
+ * <p>
+ * 构建时先按"星期 × 节次"格分桶，只对落在同一格的课程对做完整的课表位图求交，
+ * 查询"两门课是否冲突"为一次位测试，"与某课冲突的全部课程"为一行位集的遍历。
+ */
+public final class CourseConflictGraph {
+
+    public static final CourseConflictGraph EMPTY = build(0, Collections.<CourseSchedule>emptyList());
+
+    private final long version;
+    private final Long[] courseIds;
+    private final Map<Long, Integer> indexOf;
+    private final long[][] adjacency;
+    private final int edgeCount;
+
+    private CourseConflictGraph(long version, Long[] courseIds, Map<Long, Integer> indexOf,
+            long[][] adjacency, int edgeCount) {
+        this.version = version;
+        this.courseIds = courseIds;
+        this.indexOf = indexOf;
+        this.adjacency = adjacency;
+        this.edgeCount = edgeCount;
+    }
+
+    /**
+     * 由全部课程的时间安排构建冲突图
+     *
+     * @param version   构建所依据的目录版本
+     * @param schedules 全部课程的时间安排
+     */
+    public static CourseConflictGraph build(long version, Collection<CourseSchedule> schedules) {
+        int n = schedules.size();
+        Long[] courseIds = new Long[n];
+        TimetableBits[] bits = new TimetableBits[n];
+        Map<Long, Integer> indexOf = new HashMap<>(n * 2);
+        int i = 0;
+        for (CourseSchedule schedule : schedules) {
+            courseIds[i] = schedule.getCourseId();
+            bits[i] = schedule.getBits();
+            indexOf.put(schedule.getCourseId(), i);
+            i++;
+        }
+
+        // 按"星期 × 节次"格分桶
+        List<List<Integer>> buckets = new ArrayList<>();
+        for (int c = 0; c < n; c++) {
+            for (int slot : bits[c].weeklySlots()) {
+                while (buckets.size() <= slot) {
+                    buckets.add(new ArrayList<>());
+                }
+                buckets.get(slot).add(c);
+            }
+        }
+
+        int words = (n + 63) >>> 6;
+        long[][] adjacency = new long[n][words];
+        int edgeCount = 0;
+        for (List<Integer> bucket : buckets) {
+            for (int x = 0; x < bucket.size(); x++) {
+                int a = bucket.get(x);
+                for (int y = x + 1; y < bucket.size(); y++) {
+                    int b = bucket.get(y);
+                    if (isSet(adjacency[a], b) || !bits[a].intersects(bits[b])) {
+                        continue;
+                    }
+                    adjacency[a][b >>> 6] |= 1L << b;
+                    adjacency[b][a >>> 6] |= 1L << a;
+                    edgeCount++;
+                }
+            }
+        }
+        return new CourseConflictGraph(version, courseIds, indexOf, adjacency, edgeCount);
+    }
+
+    private static boolean isSet(long[] row, int index) {
+        return (row[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getCourseCount() {
+        return courseIds.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * 冲突图是否收录了该课程（目录版本之后新增的课程不在图中）
+     */
+    public boolean contains(Long courseId) {
+        return indexOf.containsKey(courseId);
+    }
+
+    /**
+     * 两门课程是否时间冲突
+     */
+    public boolean conflicts(Long a, Long b) {
+        Integer ia = indexOf.get(a);
+        Integer ib = indexOf.get(b);
+        return ia != null && ib != null && isSet(adjacency[ia], ib);
+    }
+
+    /**
+     * 与指定课程冲突的全部课程ID
+     */
+    public List<Long> conflictsOf(Long courseId) {
+        Integer index = indexOf.get(courseId);
+        if (index == null) {
+            return Collections.emptyList();
+        }
+        long[] row = adjacency[index];
+        List<Long> result = new ArrayList<>();
+        for (int w = 0; w < row.length; w++) {
+            long word = row[w];
+            while (word != 0) {
+                result.add(courseIds[(w << 6) + Long.numberOfTrailingZeros(word)]);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 指定课程与给定课程集合中第一门冲突的课程，无冲突返回null
+     */
+    public Long firstConflict(Long courseId, Collection<Long> others) {
+        Integer index = indexOf.get(courseId);
+        if (index == null) {
+            return null;
+        }
+        long[] row = adjacency[index];
+        for (Long other : others) {
+            Integer j = indexOf.get(other);
+            if (j != null && isSet(row, j)) {
+                return other;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * 课程候选检索：为 AI 推荐挑选与学生需求最相关的少量课程，代替把全部课程写进提示
+ * <p>
+ * 相关度 = 提示文本的 BM25 得分（按本次查询的最高分归一到 0~1）
+ * + 本学院课程加分 + 按该类型尚缺学分比例加分 − 已满课程扣分；
+ * 调用方排除的课程（已选、时间冲突）不参与排序。BM25 索引按目录版本懒构建，目录变化后自动重建。
+ */
+@Component
+@RequiredArgsConstructor
+public class CourseRetriever {
+
+    private final CourseCatalog courseCatalog;
+    private final EnrolledCountOverlay enrolledCountOverlay;
+
+    @Value("${recommendation.retrieval.college-boost:0.3}")
+    private double collegeBoost;
+
+    @Value("${recommendation.retrieval.deficit-boost:0.5}")
+    private double deficitBoost;
+
+    @Value("${recommendation.retrieval.full-penalty:0.2}")
+    private double fullPenalty;
+
+    private volatile Bm25Index index;
+
+    /**
+     * 按相关度降序返回候选课程
+     *
+     * @param text      学生的推荐请求文本
+     * @param college   学生所在学院，可为空
+     * @param typeNeeds 课程类型 -> 尚缺学分占要求学分的比例（0~1）
+     * @param excluded  不参与推荐的课程
+     * @param limit     最多返回的课程数
+     */
+    public List<Course> retrieve(String text, String college, Map<String, Double> typeNeeds,
+            Predicate<CourseSchedule> excluded, int limit) {
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        if (limit <= 0 || snapshot.size() == 0) {
+            return Collections.emptyList();
+        }
+        float[] textScores = index(snapshot).score(text);
+        float maxTextScore = 0f;
+        for (float score : textScores) {
+            maxTextScore = Math.max(maxTextScore, score);
+        }
+
+        // 小顶堆保留得分最高的 limit 门；同分时课程下标小的优先
+        PriorityQueue<double[]> top = new PriorityQueue<>(limit + 1, (a, b) -> a[0] != b[0]
+                ? Double.compare(a[0], b[0]) : Double.compare(b[1], a[1]));
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (excluded.test(snapshot.scheduleAt(i))) {
+                continue;
+            }
+            Course course = snapshot.courseAt(i);
+            double score = maxTextScore > 0 ? textScores[i] / maxTextScore : 0;
+            if (college != null && college.equals(course.getCollege())) {
+                score += collegeBoost;
+            }
+            if (course.getType() != null) {
+                score += deficitBoost * typeNeeds.getOrDefault(course.getType(), 0d);
+            }
+            if (course.getCapacity() != null && enrolledCountOverlay.get(course) >= course.getCapacity()) {
+                score -= fullPenalty;
+            }
+            top.offer(new double[]{score, i});
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Course> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(snapshot.courseAt((int) top.poll()[1]));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private Bm25Index index(CatalogSnapshot snapshot) {
+        Bm25Index current = index;
+        if (current == null || current.getVersion() != snapshot.getVersion()) {
+            synchronized (this) {
+                current = index;
+                if (current == null || current.getVersion() != snapshot.getVersion()) {
+                    current = Bm25Index.build(snapshot);
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
+}
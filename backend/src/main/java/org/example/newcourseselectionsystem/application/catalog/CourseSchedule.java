@@ -0,0 +1,55 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import org.example.newcourseselectionsystem.domain.entity.CourseSession;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 课程的时间安排：节次列表及其课表位图（不可变）
+ */
+public final class CourseSchedule {
+
+    private final Long courseId;
+    private final String courseName;
+    private final List<CourseSession> sessions;
+    private final TimetableBits bits;
+
+    public CourseSchedule(Long courseId, String courseName, Integer startWeek, Integer endWeek,
+            List<CourseSession> sessions) {
+        this.courseId = courseId;
+        this.courseName = courseName;
+        this.sessions = sessions == null ? Collections.<CourseSession>emptyList() : Collections.unmodifiableList(sessions);
+        this.bits = TimetableBits.of(startWeek, endWeek, this.sessions);
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public String getCourseName() {
+        return courseName;
+    }
+
+    public List<CourseSession> getSessions() {
+        return sessions;
+    }
+
+    public TimetableBits getBits() {
+        return bits;
+    }
+
+    /**
+     * 覆盖指定时间格的节次，找不到时返回null
+     */
+    public CourseSession sessionAt(TimetableBits.Slot slot) {
+        for (CourseSession session : sessions) {
+            if (slot.getWeekday().equals(session.getWeekday())
+                    && session.getStartPeriod() != null && session.getEndPeriod() != null
+                    && session.getStartPeriod() <= slot.getPeriod() && session.getEndPeriod() >= slot.getPeriod()) {
+                return session;
+            }
+        }
+        return null;
+    }
+}
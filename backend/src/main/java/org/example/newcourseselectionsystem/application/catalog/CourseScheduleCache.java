@@ -0,0 +1,97 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.domain.entity.CourseSession;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseSessionMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 课程时间安排缓存：优先取目录快照中的时间安排，快照之后新增的课程按需批量加载并计算课表位图
+ * <p>
+ * 课程目录仅在学期之间变化，变更后调用 {@link #clear()} 失效。
+ */
+@Component
+@RequiredArgsConstructor
+public class CourseScheduleCache {
+
+    private final CourseMapper courseMapper;
+    private final CourseSessionMapper courseSessionMapper;
+    private final CourseCatalog courseCatalog;
+
+    private final Map<Long, CourseSchedule> schedules = new ConcurrentHashMap<>();
+
+    /**
+     * 获取单门课程的时间安排，课程不存在时返回null
+     */
+    public CourseSchedule get(Long courseId) {
+        return getAll(Collections.singletonList(courseId)).get(courseId);
+    }
+
+    /**
+     * 批量获取课程时间安排，缺失部分一次性从数据库加载
+     */
+    public Map<Long, CourseSchedule> getAll(Collection<Long> courseIds) {
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        Map<Long, CourseSchedule> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long courseId : courseIds) {
+            CourseSchedule schedule = snapshot.schedule(courseId);
+            if (schedule == null) {
+                schedule = schedules.get(courseId);
+            }
+            if (schedule != null) {
+                result.put(courseId, schedule);
+            } else if (courseId != null) {
+                missing.add(courseId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<Course> courses = courseMapper.selectList(new LambdaQueryWrapper<Course>()
+                    .select(Course::getCourseId, Course::getCourseName, Course::getStartWeek, Course::getEndWeek)
+                    .in(Course::getCourseId, missing));
+            Map<Long, List<CourseSession>> sessionGroup = courses.isEmpty() ? new HashMap<>()
+                    : courseSessionMapper.selectList(new LambdaQueryWrapper<CourseSession>()
+                            .in(CourseSession::getCourseId, missing)).stream()
+                    .collect(Collectors.groupingBy(CourseSession::getCourseId));
+            for (Course course : courses) {
+                CourseSchedule schedule = new CourseSchedule(course.getCourseId(), course.getCourseName(),
+                        course.getStartWeek(), course.getEndWeek(), sessionGroup.get(course.getCourseId()));
+                schedules.put(course.getCourseId(), schedule);
+                result.put(course.getCourseId(), schedule);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 失效单门课程（节次调整后调用）
+     */
+    public void evict(Long courseId) {
+        schedules.remove(courseId);
+    }
+
+    /**
+     * 课程目录变更后全部失效
+     */
+    public void clear() {
+        schedules.clear();
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        clear();
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.enrollment.SeatLedger;
+import org.example.newcourseselectionsystem.application.util.TransactionCallbacks;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已选人数覆盖层：目录快照只保存静态课程信息，查询结果中的已选人数从这里读取
+ * <p>
+ * 数据源优先级：座位账本（开放时最新）> 本节点提交后的增量 > 定期从数据库拉取的 course_id / enrolled_count。
+ */
+@Component
+@RequiredArgsConstructor
+public class EnrolledCountOverlay {
+
+    private final CourseMapper courseMapper;
+    private final SeatLedger seatLedger;
+
+    private final Map<Long, Integer> counts = new ConcurrentHashMap<>();
+
+    /**
+     * 课程当前的已选人数
+     *
+     * @param course 快照中的课程，覆盖层没有数据时回退为其 enrolledCount
+     */
+    public int get(Course course) {
+        Integer taken = seatLedger.seatsTaken(course.getCourseId());
+        if (taken != null) {
+            return taken;
+        }
+        Integer count = counts.get(course.getCourseId());
+        if (count != null) {
+            return count;
+        }
+        return course.getEnrolledCount() != null ? course.getEnrolledCount() : 0;
+    }
+
+    /**
+     * 事务提交后应用本节点的已选人数变化，其他节点的变化由定期拉取同步
+     */
+    public void adjust(Long courseId, int delta) {
+        TransactionCallbacks.afterCommit(() ->
+                counts.computeIfPresent(courseId, (id, count) -> Math.max(count + delta, 0)));
+    }
+
+    /**
+     * 从数据库拉取全部课程的已选人数（仅两列）
+     */
+    @Scheduled(fixedDelayString = "${catalog.enrolled-count-refresh-ms:1000}")
+    public void refresh() {
+        for (Course course : courseMapper.selectList(new LambdaQueryWrapper<Course>()
+                .select(Course::getCourseId, Course::getEnrolledCount))) {
+            counts.put(course.getCourseId(), course.getEnrolledCount() != null ? course.getEnrolledCount() : 0);
+        }
+    }
+}
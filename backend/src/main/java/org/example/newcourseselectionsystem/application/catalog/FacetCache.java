@@ -0,0 +1,52 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import org.example.newcourseselectionsystem.application.dto.FacetValueDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 分面统计结果缓存：键含目录版本，按访问顺序淘汰，目录变化时整体清空
+ */
+@Component
+public class FacetCache {
+
+    @Value("${catalog.facet-cache.max-entries:256}")
+    private int maxEntries;
+
+    private Map<Object, Map<String, List<FacetValueDTO>>> entries;
+
+    @PostConstruct
+    void init() {
+        entries = Collections.synchronizedMap(new LinkedHashMap<Object, Map<String, List<FacetValueDTO>>>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Map<String, List<FacetValueDTO>>> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * 读取缓存，未命中时计算并放入；计算在锁外进行，并发未命中时可能重复计算
+     */
+    public Map<String, List<FacetValueDTO>> get(Object key, Supplier<Map<String, List<FacetValueDTO>>> loader) {
+        Map<String, List<FacetValueDTO>> facets = entries.get(key);
+        if (facets == null) {
+            facets = loader.get();
+            entries.put(key, facets);
+        }
+        return facets;
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        entries.clear();
+    }
+}
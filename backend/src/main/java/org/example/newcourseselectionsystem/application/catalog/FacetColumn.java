@@ -0,0 +1,67 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+
+/**
+ * 字典编码的分面列（不可变）：取值按展示顺序排序后编号，每门课程保存其取值编号
+ * <p>
+ * 支持多值属性（如课程的上课星期），统计时按课程计数，同一课程的重复取值只计一次。
+ */
+final class FacetColumn {
+
+    private final Object[] dictionary;
+    private final int[][] codes;
+
+    private FacetColumn(Object[] dictionary, int[][] codes) {
+        this.dictionary = dictionary;
+        this.codes = codes;
+    }
+
+    /**
+     * 构建分面列
+     *
+     * @param size     课程数
+     * @param valuesOf 按课程下标取该属性的全部取值（可含null，null不参与统计）
+     * @param order    取值的展示顺序
+     */
+    static FacetColumn build(int size, IntFunction<Collection<?>> valuesOf, Comparator<Object> order) {
+        Set<Object> distinct = new TreeSet<>(order);
+        Object[][] raw = new Object[size][];
+        for (int i = 0; i < size; i++) {
+            Set<Object> values = new LinkedHashSet<>(valuesOf.apply(i));
+            values.remove(null);
+            raw[i] = values.toArray();
+            distinct.addAll(values);
+        }
+        Object[] dictionary = distinct.toArray();
+        Map<Object, Integer> codeOf = new HashMap<>(dictionary.length * 2);
+        for (int code = 0; code < dictionary.length; code++) {
+            codeOf.put(dictionary[code], code);
+        }
+        int[][] codes = new int[size][];
+        for (int i = 0; i < size; i++) {
+            codes[i] = Arrays.stream(raw[i]).mapToInt(codeOf::get).toArray();
+        }
+        return new FacetColumn(dictionary, codes);
+    }
+
+    int cardinality() {
+        return dictionary.length;
+    }
+
+    Object value(int code) {
+        return dictionary[code];
+    }
+
+    int[] codesOf(int index) {
+        return codes[index];
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 单个文本字段的 n-gram 倒排索引（不可变）
+ * <p>
+ * 每条文本按单字与相邻双字切分，倒排表为升序的课程下标数组。
+ * 子串查询取关键字全部双字（单字关键字取单字）的倒排表按长度从短到长求交，
+ * 再对少量候选做一次 contains 校验，结果与 LIKE '%关键字%' 完全一致。
+ * 文本在构建前已统一为小写。
+ */
+final class NgramIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private final String[] texts;
+    private final Map<String, int[]> postings;
+
+    private NgramIndex(String[] texts, Map<String, int[]> postings) {
+        this.texts = texts;
+        this.postings = postings;
+    }
+
+    /**
+     * 构建索引
+     *
+     * @param texts 按课程下标排列的小写文本，可含null
+     */
+    static NgramIndex build(String[] texts) {
+        Map<String, IntList> lists = new HashMap<>();
+        for (int i = 0; i < texts.length; i++) {
+            if (texts[i] == null) {
+                continue;
+            }
+            // 下标递增遍历，倒排表天然有序；同一文本内重复的 gram 只记录一次
+            for (String gram : grams(texts[i], true)) {
+                lists.computeIfAbsent(gram, g -> new IntList()).add(i);
+            }
+        }
+        Map<String, int[]> postings = new HashMap<>(lists.size() * 2);
+        lists.forEach((gram, list) -> postings.put(gram, list.toArray()));
+        return new NgramIndex(texts, postings);
+    }
+
+    /**
+     * 包含关键字的全部课程下标
+     *
+     * @param keyword 小写、非空的关键字
+     */
+    BitSet search(String keyword) {
+        BitSet result = new BitSet(texts.length);
+        int[] candidates = candidates(keyword);
+        for (int index : candidates) {
+            if (texts[index].contains(keyword)) {
+                result.set(index);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 匹配程度，数值越小越相关：完全相同 < 前缀 < 子串（出现位置越靠前、文本越短越相关）
+     */
+    int matchScore(int index, String keyword) {
+        String text = texts[index];
+        int position = text != null ? text.indexOf(keyword) : -1;
+        if (position < 0) {
+            return Integer.MAX_VALUE;
+        }
+        if (text.length() == keyword.length()) {
+            return 0;
+        }
+        return 1 + position * 1024 + Math.min(text.length() - keyword.length(), 1023);
+    }
+
+    private int[] candidates(String keyword) {
+        List<int[]> lists = new ArrayList<>();
+        for (String gram : grams(keyword, false)) {
+            int[] posting = postings.get(gram);
+            if (posting == null) {
+                return NONE;
+            }
+            lists.add(posting);
+        }
+        if (lists.isEmpty()) {
+            return NONE;
+        }
+        lists.sort(Comparator.comparingInt(list -> list.length));
+        int[] result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 切分 gram：建索引时取全部单字与双字，查询时关键字长度大于1则只取双字
+     */
+    private static Set<String> grams(String text, boolean forIndex) {
+        Set<String> grams = new LinkedHashSet<>();
+        int length = text.length();
+        if (forIndex || length == 1) {
+            for (int i = 0; i < length; i++) {
+                grams.add(text.substring(i, i + 1));
+            }
+        }
+        for (int i = 0; i + 1 < length; i++) {
+            grams.add(text.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    /**
+     * 有序数组求交：短表逐个在长表中二分跳跃
+     */
+    private static int[] intersect(int[] shorter, int[] longer) {
+        int[] result = new int[shorter.length];
+        int count = 0;
+        int from = 0;
+        for (int value : shorter) {
+            int found = Arrays.binarySearch(longer, from, longer.length, value);
+            if (found >= 0) {
+                result[count++] = value;
+                from = found + 1;
+            } else {
+                from = -found - 1;
+            }
+            if (from >= longer.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import org.example.newcourseselectionsystem.domain.entity.CourseSession;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 节次区间索引（不可变）：按星期分组，每个星期内按不同的 [startPeriod, endPeriod] 区间聚合课程下标位集
+ * <p>
+ * 一个星期内不同的节次区间只有几十个，查询时只需对这些区间逐个判定关系并合并位集，
+ * 与课程、节次的总数无关；判定针对单个节次，两个相邻节次拼接起来的时段不算覆盖。
+ */
+final class SessionIntervalIndex {
+
+    private final Map<String, List<Interval>> byWeekday;
+
+    private SessionIntervalIndex(Map<String, List<Interval>> byWeekday) {
+        this.byWeekday = byWeekday;
+    }
+
+    /**
+     * 构建索引
+     *
+     * @param schedules 按课程下标排列的时间安排
+     */
+    static SessionIntervalIndex build(CourseSchedule[] schedules) {
+        Map<String, Map<List<Integer>, Interval>> grouped = new LinkedHashMap<>();
+        for (int i = 0; i < schedules.length; i++) {
+            for (CourseSession session : schedules[i].getSessions()) {
+                if (session.getWeekday() == null) {
+                    continue;
+                }
+                List<Integer> key = new ArrayList<>(2);
+                key.add(session.getStartPeriod());
+                key.add(session.getEndPeriod());
+                int courseIndex = i;
+                grouped.computeIfAbsent(session.getWeekday(), w -> new HashMap<>())
+                        .computeIfAbsent(key, k -> new Interval(session.getStartPeriod(), session.getEndPeriod(), schedules.length))
+                        .courses.set(courseIndex);
+            }
+        }
+        Map<String, List<Interval>> byWeekday = new LinkedHashMap<>();
+        grouped.forEach((weekday, intervals) -> byWeekday.put(weekday,
+                Collections.unmodifiableList(new ArrayList<>(intervals.values()))));
+        return new SessionIntervalIndex(byWeekday);
+    }
+
+    /**
+     * 在给定星期中查找节次与 [start, end] 满足指定关系的课程
+     *
+     * @param weekdays 星期集合，为空表示全部星期
+     * @param start    查询起始节次，为空表示不限
+     * @param end      查询结束节次，为空表示不限
+     * @param mode     区间关系
+     */
+    BitSet query(Collection<String> weekdays, Integer start, Integer end, Mode mode) {
+        BitSet result = new BitSet();
+        Collection<String> targets = weekdays == null || weekdays.isEmpty() ? byWeekday.keySet() : weekdays;
+        for (String weekday : targets) {
+            for (Interval interval : byWeekday.getOrDefault(weekday, Collections.<Interval>emptyList())) {
+                if (mode.matches(interval.start, interval.end, start, end)) {
+                    result.or(interval.courses);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 节次区间 [s, e] 与查询区间 [start, end] 的关系；查询端为空的一侧不作限制，
+     * 节次缺失起止节时只能匹配不限该侧的查询
+     */
+    enum Mode {
+        /**
+         * 节次覆盖查询区间：s ≤ start 且 e ≥ end
+         */
+        COVERS {
+            @Override
+            boolean matches(Integer s, Integer e, Integer start, Integer end) {
+                return (start == null || (s != null && s <= start)) && (end == null || (e != null && e >= end));
+            }
+        },
+        /**
+         * 节次与查询区间有交集：s ≤ end 且 e ≥ start
+         */
+        OVERLAPS {
+            @Override
+            boolean matches(Integer s, Integer e, Integer start, Integer end) {
+                return (end == null || (s != null && s <= end)) && (start == null || (e != null && e >= start));
+            }
+        },
+        /**
+         * 节次完全落在查询区间内：s ≥ start 且 e ≤ end
+         */
+        INSIDE {
+            @Override
+            boolean matches(Integer s, Integer e, Integer start, Integer end) {
+                return (start == null || (s != null && s >= start)) && (end == null || (e != null && e <= end));
+            }
+        };
+
+        abstract boolean matches(Integer s, Integer e, Integer start, Integer end);
+
+        /**
+         * 解析请求中的匹配方式，为空时默认覆盖
+         */
+        static Mode parse(String value) {
+            if (value == null || value.trim().isEmpty()) {
+                return COVERS;
+            }
+            for (Mode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value.trim())) {
+                    return mode;
+                }
+            }
+            throw new IllegalArgumentException("无效的节次匹配方式: " + value);
+        }
+    }
+
+    private static final class Interval {
+        private final Integer start;
+        private final Integer end;
+        private final BitSet courses;
+
+        Interval(Integer start, Integer end, int size) {
+            this.start = start;
+            this.end = end;
+            this.courses = new BitSet(size);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import org.example.newcourseselectionsystem.domain.entity.CourseSession;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 课表位图：按 教学周 × 星期 × 节次 展开的定长位集（不可变）
+ * <p>
+ * 由课程的起止周与节次的单双周（weekType）共同决定置位，
+ * 两个位图按位与非空即为时间冲突，单周课与双周课天然互不冲突。
+ */
+public final class TimetableBits {
+
+    public static final int MAX_WEEK = 20;
+    public static final int WEEKDAYS = 7;
+    public static final int MAX_PERIOD = 12;
+
+    private static final int SLOTS_PER_WEEK = WEEKDAYS * MAX_PERIOD;
+    private static final int TOTAL_BITS = MAX_WEEK * SLOTS_PER_WEEK;
+    private static final int WORDS = (TOTAL_BITS + 63) >>> 6;
+
+    private static final String[] WEEKDAY_NAMES = {"周一", "周二", "周三", "周四", "周五", "周六", "周日"};
+    private static final Map<String, Integer> WEEKDAY_INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < WEEKDAY_NAMES.length; i++) {
+            WEEKDAY_INDEX.put(WEEKDAY_NAMES[i], i);
+        }
+    }
+
+    public static final TimetableBits EMPTY = new TimetableBits(new long[WORDS]);
+
+    /**
+     * 星期的排列序号（周一为0），"自由"等非星期取值排在最后
+     */
+    public static int weekdayOrder(String weekday) {
+        Integer index = WEEKDAY_INDEX.get(weekday);
+        return index != null ? index : WEEKDAYS;
+    }
+
+    private final long[] words;
+
+    private TimetableBits(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * 根据课程起止周与节次构建位图；"自由"等非星期节次以及越界的周、节次会被忽略
+     *
+     * @param startWeek 起始周（为空按第1周）
+     * @param endWeek   结束周（为空按最大周）
+     * @param sessions  课程节次
+     */
+    public static TimetableBits of(Integer startWeek, Integer endWeek, Collection<CourseSession> sessions) {
+        if (sessions == null || sessions.isEmpty()) {
+            return EMPTY;
+        }
+        int fromWeek = Math.max(startWeek != null ? startWeek : 1, 1);
+        int toWeek = Math.min(endWeek != null ? endWeek : MAX_WEEK, MAX_WEEK);
+        long[] words = new long[WORDS];
+        for (CourseSession session : sessions) {
+            Integer weekday = session.getWeekday() != null ? WEEKDAY_INDEX.get(session.getWeekday()) : null;
+            if (weekday == null || session.getStartPeriod() == null || session.getEndPeriod() == null) {
+                continue;
+            }
+            int fromPeriod = Math.max(session.getStartPeriod(), 1);
+            int toPeriod = Math.min(session.getEndPeriod(), MAX_PERIOD);
+            int weekType = session.getWeekType() != null ? session.getWeekType() : 0;
+            for (int week = fromWeek; week <= toWeek; week++) {
+                if ((weekType == 1 && week % 2 == 0) || (weekType == 2 && week % 2 == 1)) {
+                    continue;
+                }
+                for (int period = fromPeriod; period <= toPeriod; period++) {
+                    int bit = slot(week, weekday, period);
+                    words[bit >>> 6] |= 1L << bit;
+                }
+            }
+        }
+        return new TimetableBits(words);
+    }
+
+    private static int slot(int week, int weekday, int period) {
+        return (week - 1) * SLOTS_PER_WEEK + weekday * MAX_PERIOD + (period - 1);
+    }
+
+    public boolean intersects(TimetableBits other) {
+        for (int i = 0; i < WORDS; i++) {
+            if ((words[i] & other.words[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public TimetableBits or(TimetableBits other) {
+        long[] result = new long[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            result[i] = words[i] | other.words[i];
+        }
+        return new TimetableBits(result);
+    }
+
+    /**
+     * 在任一教学周被占用的"星期 × 节次"格编号（0 ~ 星期数 × 节次数 - 1），用于按时间格分桶
+     */
+    public int[] weeklySlots() {
+        boolean[] used = new boolean[SLOTS_PER_WEEK];
+        int count = 0;
+        for (int i = 0; i < WORDS; i++) {
+            long word = words[i];
+            while (word != 0) {
+                int bit = (i << 6) + Long.numberOfTrailingZeros(word);
+                int inWeek = bit % SLOTS_PER_WEEK;
+                if (!used[inWeek]) {
+                    used[inWeek] = true;
+                    count++;
+                }
+                word &= word - 1;
+            }
+        }
+        int[] slots = new int[count];
+        for (int i = 0, j = 0; i < SLOTS_PER_WEEK; i++) {
+            if (used[i]) {
+                slots[j++] = i;
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * 第一个共同占用的时间格，无冲突时返回null
+     */
+    public Slot firstCommonSlot(TimetableBits other) {
+        for (int i = 0; i < WORDS; i++) {
+            long common = words[i] & other.words[i];
+            if (common != 0) {
+                int bit = (i << 6) + Long.numberOfTrailingZeros(common);
+                int inWeek = bit % SLOTS_PER_WEEK;
+                return new Slot(bit / SLOTS_PER_WEEK + 1, WEEKDAY_NAMES[inWeek / MAX_PERIOD], inWeek % MAX_PERIOD + 1);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof TimetableBits && Arrays.equals(words, ((TimetableBits) o).words));
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    /**
+     * 位图中的一个时间格
+     */
+    public static final class Slot {
+        private final int week;
+        private final String weekday;
+        private final int period;
+
+        Slot(int week, String weekday, int period) {
+            this.week = week;
+            this.weekday = weekday;
+            this.period = period;
+        }
+
+        public int getWeek() {
+            return week;
+        }
+
+        public String getWeekday() {
+            return weekday;
+        }
+
+        public int getPeriod() {
+            return period;
+        }
+    }
+}
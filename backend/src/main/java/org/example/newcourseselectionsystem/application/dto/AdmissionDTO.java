@@ -0,0 +1,43 @@
+package org.example.newcourseselectionsystem.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 等候室准入状态
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdmissionDTO {
+
+    /**
+     * 是否已准入
+     */
+    private Boolean admitted;
+
+    /**
+     * 准入凭证（请求头 X-Admission-Token），等候室未开启时为空
+     */
+    private String token;
+
+    /**
+     * 凭证到期时间（毫秒时间戳），到期后需重新排队
+     */
+    private Long expiresAt;
+
+    /**
+     * 排队名次（从1开始）
+     */
+    private Long position;
+
+    /**
+     * 当前排队人数
+     */
+    private Integer waitingCount;
+
+    private String message;
+}
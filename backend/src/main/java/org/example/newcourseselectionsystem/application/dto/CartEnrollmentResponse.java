@@ -0,0 +1,33 @@
+package org.example.newcourseselectionsystem.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量选课（购物车）响应
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartEnrollmentResponse {
+
+    /**
+     * 是否全部课程都选课成功
+     */
+    private Boolean success;
+
+    /**
+     * 汇总说明
+     */
+    private String message;
+
+    /**
+     * 按请求顺序排列的各课程结果
+     */
+    private List<CartItemResultDTO> results;
+}
@@ -0,0 +1,32 @@
+package org.example.newcourseselectionsystem.application.dto;
+
+import lombok.Data;
+
+/**
+ * 批量选课中单门课程的结果
+ */
+@Data
+public class CartItemResultDTO {
+
+    private Long courseId;
+
+    /**
+     * 该课程是否选课成功
+     */
+    private Boolean success;
+
+    /**
+     * 结果说明
+     */
+    private String message;
+
+    /**
+     * 警告信息（时间冲突、超容量等，不影响选课成功）
+     */
+    private String warn;
+
+    /**
+     * 选课记录ID（座位账本开放时为空，记录稍后批量写入）
+     */
+    private Long enrollmentId;
+}
@@ -0,0 +1,28 @@
+package org.example.newcourseselectionsystem.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 课程分页结果
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CoursePageDTO {
+
+    private List<CourseWithSessionsDTO> items;
+
+    /**
+     * 下一页游标，已是最后一页时为null
+     */
+    private String nextPageToken;
+
+    /**
+     * 匹配总数，仅在请求 includeTotal 时返回
+     */
+    private Integer total;
+}
@@ -0,0 +1,41 @@
+package org.example.newcourseselectionsystem.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 异步选课排队凭证
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnrollmentTicketDTO {
+
+    /**
+     * 排队凭证ID，用于订阅选课结果
+     */
+    private String ticketId;
+
+    /**
+     * 是否已进入队列
+     */
+    private Boolean accepted;
+
+    /**
+     * 提示信息
+     */
+    private String message;
+
+    /**
+     * 进入队列时前方的请求数
+     */
+    private Integer queuedAhead;
+
+    /**
+     * 队列已满时建议的重试间隔（秒）
+     */
+    private Integer retryAfterSeconds;
+}
@@ -0,0 +1,16 @@
+package org.example.newcourseselectionsystem.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 分面取值及匹配课程数（结果会被缓存共享，因此不可变）
+ */
+@Getter
+@AllArgsConstructor
+public class FacetValueDTO {
+
+    private final Object value;
+
+    private final int count;
+}
@@ -0,0 +1,28 @@
+package org.example.newcourseselectionsystem.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 候补名次
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistPositionDTO {
+
+    private Long courseId;
+
+    private Long studentId;
+
+    /**
+     * 候补名次（从1开始），不在候补队列中时为0
+     */
+    private Integer position;
+
+    /**
+     * 当前候补总人数
+     */
+    private Integer waitingCount;
+}
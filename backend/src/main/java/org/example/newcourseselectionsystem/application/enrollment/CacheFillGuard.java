@@ -0,0 +1,55 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按学生的缓存回填保护
+ * <p>
+ * 学生的选课变更在事务提交后递增其版本号（按学生ID分段，占用固定内存）；缓存未命中时先读版本再加载，
+ * 写入缓存前版本未变才写入，加载期间提交的变更不会被旧数据覆盖，版本已变时只返回加载结果，下次访问重新加载。
+ * 事务中的加载不写入缓存：可重复读的快照可能早于并发事务（如重试、重复点击）的提交，读取版本时无法察觉。
+ */
+final class CacheFillGuard {
+
+    private static final int STRIPES = 1024;
+
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+
+    /**
+     * 加载前读取学生的版本号
+     */
+    long version(Long studentId) {
+        return versions.get(stripe(studentId));
+    }
+
+    /**
+     * 学生的选课状态已变更（在事务提交后、更新缓存之前调用）
+     */
+    void bump(Long studentId) {
+        versions.incrementAndGet(stripe(studentId));
+    }
+
+    /**
+     * 全部学生的选课状态可能已变更
+     */
+    void bumpAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+    }
+
+    /**
+     * 加载结果能否写入缓存：不在事务中，且加载期间该学生没有提交的变更
+     *
+     * @param version 加载前读取的版本号
+     */
+    boolean canFill(Long studentId, long version) {
+        return !TransactionSynchronizationManager.isActualTransactionActive() && version(studentId) == version;
+    }
+
+    private static int stripe(Long studentId) {
+        return studentId.hashCode() & (STRIPES - 1);
+    }
+}
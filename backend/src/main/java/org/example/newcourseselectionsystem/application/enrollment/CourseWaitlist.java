@@ -0,0 +1,190 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.util.TransactionCallbacks;
+import org.example.newcourseselectionsystem.domain.entity.WaitlistEntry;
+import org.example.newcourseselectionsystem.infrastructure.mapper.WaitlistEntryMapper;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 课程候补队列（先到先得）
+ * <p>
+ * 候补记录持久化在 waitlist_entries 表；内存中按课程保存"等待中"的记录（按候补ID升序），
+ * 某门课程首次被访问时从数据库加载。加入、取消与递补先以条件更新写数据库，
+ * 事务提交后再同步到内存，名次查询只读内存。
+ */
+@Component
+@RequiredArgsConstructor
+public class CourseWaitlist {
+
+    public static final String WAITING = "等待中";
+    public static final String PROMOTED = "已递补";
+    public static final String CANCELLED = "已取消";
+
+    private static final Comparator<WaitlistEntry> BY_ENTRY_ID = Comparator.comparing(WaitlistEntry::getEntryId);
+
+    private final WaitlistEntryMapper waitlistEntryMapper;
+
+    private final Map<Long, Queue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * 学生在课程候补队列中的名次（从1开始），不在队列中时返回0
+     */
+    public int position(Long courseId, Long studentId) {
+        return queue(courseId).position(studentId);
+    }
+
+    /**
+     * 课程当前的候补人数
+     */
+    public int size(Long courseId) {
+        return queue(courseId).size();
+    }
+
+    /**
+     * 按候补顺序排列的等待中记录（快照）
+     */
+    public List<WaitlistEntry> waiting(Long courseId) {
+        return queue(courseId).snapshot();
+    }
+
+    /**
+     * 学生是否有等待中的候补记录（读数据库：内存队列在事务提交后才更新，加入前的重复检查须看到已提交的记录）
+     */
+    public boolean isWaiting(Long courseId, Long studentId) {
+        return waitlistEntryMapper.selectCount(new LambdaQueryWrapper<WaitlistEntry>()
+                .eq(WaitlistEntry::getCourseId, courseId)
+                .eq(WaitlistEntry::getStudentId, studentId)
+                .eq(WaitlistEntry::getStatus, WAITING)) > 0;
+    }
+
+    /**
+     * 加入候补队列，事务提交后进入内存队列
+     */
+    public WaitlistEntry join(Long studentId, Long courseId, Long batchId) {
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setStudentId(studentId);
+        entry.setCourseId(courseId);
+        entry.setBatchId(batchId);
+        entry.setJoinedAt(LocalDateTime.now());
+        entry.setStatus(WAITING);
+        waitlistEntryMapper.insert(entry);
+        TransactionCallbacks.afterCommit(() -> queue(courseId).add(entry));
+        return entry;
+    }
+
+    /**
+     * 把等待中的记录改为指定状态（条件更新，已被取消或递补的记录不会重复处理）；
+     * 成功后由调用方在确认处理结果时调用 {@link #onResolved}，否则以 {@link #restore} 撤销
+     *
+     * @return 是否由本次调用完成状态变更
+     */
+    public boolean resolve(WaitlistEntry entry, String status) {
+        return waitlistEntryMapper.update(null, new LambdaUpdateWrapper<WaitlistEntry>()
+                .set(WaitlistEntry::getStatus, status)
+                .set(WaitlistEntry::getResolvedAt, LocalDateTime.now())
+                .eq(WaitlistEntry::getEntryId, entry.getEntryId())
+                .eq(WaitlistEntry::getStatus, WAITING)) > 0;
+    }
+
+    /**
+     * 记录已离开队列，事务提交后移出内存队列
+     */
+    public void onResolved(WaitlistEntry entry) {
+        TransactionCallbacks.afterCommit(() -> queue(entry.getCourseId()).remove(entry));
+    }
+
+    /**
+     * 把已变更状态的记录改回等待中（递补时座位已被他人占用，同一事务内撤销）
+     */
+    public void restore(WaitlistEntry entry) {
+        waitlistEntryMapper.update(null, new LambdaUpdateWrapper<WaitlistEntry>()
+                .set(WaitlistEntry::getStatus, WAITING)
+                .set(WaitlistEntry::getResolvedAt, null)
+                .eq(WaitlistEntry::getEntryId, entry.getEntryId()));
+    }
+
+    /**
+     * 取消学生在课程上的候补
+     *
+     * @return 是否存在并取消了等待中的候补
+     */
+    public boolean cancel(Long courseId, Long studentId) {
+        WaitlistEntry entry = queue(courseId).find(studentId);
+        if (entry == null || !resolve(entry, CANCELLED)) {
+            return false;
+        }
+        onResolved(entry);
+        return true;
+    }
+
+    private Queue queue(Long courseId) {
+        return queues.computeIfAbsent(courseId, id -> new Queue(waitlistEntryMapper.selectList(
+                new LambdaQueryWrapper<WaitlistEntry>()
+                        .eq(WaitlistEntry::getCourseId, id)
+                        .eq(WaitlistEntry::getStatus, WAITING)
+                        .orderByAsc(WaitlistEntry::getEntryId))));
+    }
+
+    /**
+     * 单门课程的等待队列：按候补ID有序的列表 + 学生索引，名次由二分查找得到
+     */
+    private static final class Queue {
+        private final List<WaitlistEntry> entries;
+        private final Map<Long, WaitlistEntry> byStudent = new HashMap<>();
+
+        Queue(List<WaitlistEntry> loaded) {
+            this.entries = new ArrayList<>(loaded);
+            for (WaitlistEntry entry : loaded) {
+                byStudent.put(entry.getStudentId(), entry);
+            }
+        }
+
+        synchronized int position(Long studentId) {
+            WaitlistEntry entry = byStudent.get(studentId);
+            return entry == null ? 0 : Collections.binarySearch(entries, entry, BY_ENTRY_ID) + 1;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized WaitlistEntry find(Long studentId) {
+            return byStudent.get(studentId);
+        }
+
+        synchronized List<WaitlistEntry> snapshot() {
+            return new ArrayList<>(entries);
+        }
+
+        synchronized void add(WaitlistEntry entry) {
+            if (byStudent.containsKey(entry.getStudentId())) {
+                return;
+            }
+            int index = Collections.binarySearch(entries, entry, BY_ENTRY_ID);
+            if (index < 0) {
+                entries.add(-index - 1, entry);
+                byStudent.put(entry.getStudentId(), entry);
+            }
+        }
+
+        synchronized void remove(WaitlistEntry entry) {
+            int index = Collections.binarySearch(entries, entry, BY_ENTRY_ID);
+            if (index >= 0) {
+                entries.remove(index);
+                byStudent.remove(entry.getStudentId());
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newcourseselectionsystem.application.dto.EnrollmentResponse;
+import org.example.newcourseselectionsystem.application.request.EnrollmentRequest;
+import org.example.newcourseselectionsystem.application.service.EnrollmentService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 异步选课队列
+ * <p>
+ * 选课高峰期请求先进入有界队列并立即返回排队凭证，不占用 Web 线程与数据库连接。
+ * 队列按课程ID散列分片，每个分片由一个工作线程处理：同一门课程的请求严格按排队顺序处理，
+ * 工作线程之间不争抢同一课程行。工作线程批量取出请求，按课程与轮次合并后交给
+ * {@link EnrollmentService#enrollCourseGroup}，一批请求只锁一次课程行、一次批量写入。
+ * 分片已满时由调用方提示稍后重试。
+ * 携带请求键的请求与同步选课一样幂等：结果过期前重复提交返回同一张凭证，处理时单独经由
+ * {@link IdempotentRequests}（不参与合并），凭证过期后的重试也返回首次处理的结果。
+ * 处理结果保存在凭证中，供 SSE 订阅，过期后清理。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EnrollmentQueue {
+
+    private final EnrollmentService enrollmentService;
+    private final IdempotentRequests idempotentRequests;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${enrollment.async.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${enrollment.async.workers:4}")
+    private int workers;
+
+    @Value("${enrollment.async.batch-size:200}")
+    private int batchSize;
+
+    @Value("${enrollment.async.result-ttl-seconds:300}")
+    private long resultTtlSeconds;
+
+    @Getter
+    @Value("${enrollment.async.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Map<String, Ticket> keyedTickets = new ConcurrentHashMap<>();
+    private List<BlockingQueue<Ticket>> shards;
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        shards = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            shards.add(new ArrayBlockingQueue<>(Math.max(queueCapacity / workers, 1)));
+        }
+        Gauge.builder("enrollment.async.queue.size", this, EnrollmentQueue::queuedCount)
+                .description("异步选课队列中等待处理的请求数").register(meterRegistry);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "enrollment-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (BlockingQueue<Ticket> shard : shards) {
+            executor.execute(() -> drainLoop(shard));
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交选课请求
+     *
+     * @return 排队凭证（同一请求键重复提交时返回已有的凭证），课程所在分片已满时返回null
+     */
+    public Ticket submit(EnrollmentRequest request) {
+        BlockingQueue<Ticket> shard = shards.get(Math.floorMod(request.getCourseId().hashCode(), shards.size()));
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), request, shard.size());
+        String idempotencyKey = idempotencyKey(request);
+        if (idempotencyKey != null) {
+            Ticket existing = keyedTickets.putIfAbsent(idempotencyKey, ticket);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        tickets.put(ticket.getTicketId(), ticket);
+        if (!shard.offer(ticket)) {
+            tickets.remove(ticket.getTicketId());
+            if (idempotencyKey != null) {
+                keyedTickets.remove(idempotencyKey, ticket);
+            }
+            return null;
+        }
+        return ticket;
+    }
+
+    /**
+     * 查找排队凭证，不存在或已过期时返回null
+     */
+    public Ticket find(String ticketId) {
+        return tickets.get(ticketId);
+    }
+
+    /**
+     * 清理结果已过期的凭证
+     */
+    @Scheduled(fixedDelayString = "${enrollment.async.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long deadline = System.currentTimeMillis() - resultTtlSeconds * 1000;
+        tickets.values().removeIf(ticket -> ticket.completedAt > 0 && ticket.completedAt < deadline);
+        keyedTickets.values().removeIf(ticket -> ticket.completedAt > 0 && ticket.completedAt < deadline);
+    }
+
+    private static String idempotencyKey(EnrollmentRequest request) {
+        String requestKey = request.getRequestKey();
+        return requestKey == null || requestKey.isEmpty() ? null : request.getStudentId() + ":" + requestKey;
+    }
+
+    private int queuedCount() {
+        return shards.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    private void drainLoop(BlockingQueue<Ticket> shard) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Ticket> batch = new ArrayList<>(batchSize);
+                batch.add(shard.take());
+                shard.drainTo(batch, batchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("异步选课工作线程异常", e);
+            }
+        }
+    }
+
+    /**
+     * 按课程与轮次合并处理一批请求；合并处理失败时逐个重试，保证每张凭证都有结果。
+     * 携带请求键的请求需要各自记录幂等结果，逐个处理，处理前先处理同一课程排在它前面的合并组
+     */
+    private void process(List<Ticket> batch) {
+        Map<String, List<Ticket>> groups = new LinkedHashMap<>();
+        for (Ticket ticket : batch) {
+            String groupKey = ticket.request.getCourseId() + ":" + ticket.request.getBatchId();
+            if (idempotencyKey(ticket.request) == null) {
+                groups.computeIfAbsent(groupKey, key -> new ArrayList<>()).add(ticket);
+                continue;
+            }
+            List<Ticket> ahead = groups.remove(groupKey);
+            if (ahead != null) {
+                processGroup(ahead);
+            }
+            processSingle(ticket);
+        }
+        for (List<Ticket> group : groups.values()) {
+            processGroup(group);
+        }
+    }
+
+    private void processGroup(List<Ticket> group) {
+        try {
+            List<EnrollmentResponse> responses = enrollmentService.enrollCourseGroup(group.stream()
+                    .map(ticket -> ticket.request)
+                    .collect(Collectors.toList()));
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).complete(responses.get(i));
+            }
+        } catch (Exception e) {
+            log.warn("合并选课失败，逐个重试：课程 {}，{} 个请求", group.get(0).request.getCourseId(), group.size(), e);
+            for (Ticket ticket : group) {
+                processSingle(ticket);
+            }
+        }
+    }
+
+    private void processSingle(Ticket ticket) {
+        try {
+            EnrollmentRequest request = ticket.request;
+            ticket.complete(idempotentRequests.execute(request.getStudentId(), request.getRequestKey(), "选课",
+                    request.getCourseId(), () -> enrollmentService.enrollCourse(request)));
+        } catch (Exception e) {
+            log.error("异步选课失败：凭证 {}", ticket.getTicketId(), e);
+            ticket.complete(EnrollmentResponse.builder()
+                    .success(false)
+                    .message("选课处理失败，请重新提交")
+                    .build());
+        }
+    }
+
+    /**
+     * 排队凭证：请求与最终的选课响应
+     */
+    public static final class Ticket {
+        @Getter
+        private final String ticketId;
+        @Getter
+        private final int queuedAhead;
+        @Getter
+        private final CompletableFuture<EnrollmentResponse> result = new CompletableFuture<>();
+        private final EnrollmentRequest request;
+        private volatile long completedAt;
+
+        Ticket(String ticketId, EnrollmentRequest request, int queuedAhead) {
+            this.ticketId = ticketId;
+            this.request = request;
+            this.queuedAhead = queuedAhead;
+        }
+
+        void complete(EnrollmentResponse response) {
+            completedAt = System.currentTimeMillis();
+            result.complete(response);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newcourseselectionsystem.application.dto.EnrollmentResponse;
+import org.example.newcourseselectionsystem.application.service.EnrollmentSequencer;
+import org.example.newcourseselectionsystem.domain.entity.IdempotencyRecord;
+import org.example.newcourseselectionsystem.infrastructure.mapper.IdempotencyRecordMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 选课/退课请求幂等处理
+ * <p>
+ * 客户端为每次操作生成请求键，网络超时重试时沿用同一个键。首次处理时在同一事务内写入
+ * idempotency_records（学生ID + 请求键唯一）并记录响应；并发的重复请求在唯一约束上等待先到的请求提交后失败，
+ * 转而读取已记录的响应。处理结果同时放入有界、会过期的内存缓存，过期前的重试只需一次哈希查找，不再开启事务。
+ * 命中/未命中次数以 cache.gets{cache=idempotent-requests} 指标暴露。
+ * <p>
+ * 开启按课程分片执行时，选课/退课在分片线程的事务中提交，因此整个处理（写入幂等记录、业务处理、记录响应）
+ * 交给课程所在分片执行，仍是同一个事务。
+ */
+@Slf4j
+@Component
+public class IdempotentRequests {
+
+    private final IdempotencyRecordMapper idempotencyRecordMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<EnrollmentSequencer> sequencerProvider;
+
+    @Value("${enrollment.idempotency.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${enrollment.idempotency.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${enrollment.idempotency.retention-hours:24}")
+    private long retentionHours;
+
+    private Map<String, CachedResponse> responses;
+    private EnrollmentSequencer sequencer;
+    private Counter hits;
+    private Counter misses;
+
+    public IdempotentRequests(IdempotencyRecordMapper idempotencyRecordMapper,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            ObjectProvider<EnrollmentSequencer> sequencerProvider) {
+        this.idempotencyRecordMapper = idempotencyRecordMapper;
+        this.meterRegistry = meterRegistry;
+        this.sequencerProvider = sequencerProvider;
+        // 幂等记录与业务处理在同一事务内提交，业务方法的事务加入此事务
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @PostConstruct
+    void init() {
+        sequencer = sequencerProvider.getIfAvailable();
+        responses = Collections.synchronizedMap(new LinkedHashMap<String, CachedResponse>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        hits = Counter.builder("cache.gets").tag("cache", "idempotent-requests").tag("result", "hit")
+                .description("幂等请求缓存命中次数").register(meterRegistry);
+        misses = Counter.builder("cache.gets").tag("cache", "idempotent-requests").tag("result", "miss")
+                .description("幂等请求缓存未命中次数").register(meterRegistry);
+        meterRegistry.gaugeMapSize("cache.size", Collections.singletonList(
+                Tag.of("cache", "idempotent-requests")), responses);
+    }
+
+    /**
+     * 按请求键幂等地执行选课/退课
+     *
+     * @param studentId  学生ID
+     * @param requestKey 请求键，为空时直接执行
+     * @param operation  操作类型（选课、退课），同一个键不能用于不同操作
+     * @param courseId   操作的课程（开启分片执行时据此选择分片）
+     * @param action     业务处理
+     * @return 首次处理的响应
+     */
+    public EnrollmentResponse execute(Long studentId, String requestKey, String operation, Long courseId,
+            Supplier<EnrollmentResponse> action) {
+        if (requestKey == null || requestKey.isEmpty()) {
+            return action.get();
+        }
+        String cacheKey = studentId + ":" + requestKey;
+        CachedResponse cached = responses.get(cacheKey);
+        if (cached != null && cached.expiresAt.isAfter(LocalDateTime.now())) {
+            hits.increment();
+            return cached.replay(operation);
+        }
+        misses.increment();
+        if (sequencer != null) {
+            return sequencer.executeAlone(courseId, () -> claimAndExecute(studentId, requestKey, operation, action));
+        }
+        return claimAndExecute(studentId, requestKey, operation, action);
+    }
+
+    private EnrollmentResponse claimAndExecute(Long studentId, String requestKey, String operation,
+            Supplier<EnrollmentResponse> action) {
+        IdempotencyRecord record;
+        try {
+            record = transactionTemplate.execute(status -> {
+                IdempotencyRecord claimed = new IdempotencyRecord();
+                claimed.setStudentId(studentId);
+                claimed.setRequestKey(requestKey);
+                claimed.setOperation(operation);
+                claimed.setCreatedAt(LocalDateTime.now());
+                idempotencyRecordMapper.insert(claimed);
+
+                EnrollmentResponse response = action.get();
+                claimed.setSuccess(response.getSuccess());
+                claimed.setMessage(response.getMessage());
+                claimed.setWarn(response.getWarn());
+                claimed.setEnrollmentId(response.getEnrollmentId());
+                idempotencyRecordMapper.updateById(claimed);
+                return claimed;
+            });
+        } catch (DuplicateKeyException e) {
+            // 已处理过（或并发的同键请求已先提交）：返回记录中的响应
+            record = idempotencyRecordMapper.selectOne(new LambdaQueryWrapper<IdempotencyRecord>()
+                    .eq(IdempotencyRecord::getStudentId, studentId)
+                    .eq(IdempotencyRecord::getRequestKey, requestKey));
+            if (record == null) {
+                throw e;
+            }
+        }
+        CachedResponse response = new CachedResponse(record, LocalDateTime.now().plusSeconds(ttlSeconds));
+        responses.put(studentId + ":" + requestKey, response);
+        return response.replay(operation);
+    }
+
+    /**
+     * 清空内存缓存（数据库中的记录仍然生效）
+     */
+    public void clear() {
+        responses.clear();
+    }
+
+    /**
+     * 删除超过保留期的幂等记录
+     */
+    @Scheduled(fixedDelayString = "${enrollment.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        try {
+            int purged = idempotencyRecordMapper.delete(new LambdaQueryWrapper<IdempotencyRecord>()
+                    .lt(IdempotencyRecord::getCreatedAt, LocalDateTime.now().minusHours(retentionHours)));
+            if (purged > 0) {
+                log.info("已清理 {} 条过期的请求幂等记录", purged);
+            }
+        } catch (Exception e) {
+            log.error("清理请求幂等记录失败", e);
+        }
+    }
+
+    /**
+     * 缓存的首次处理结果（不可变），每次重放返回新的响应对象
+     */
+    private static final class CachedResponse {
+        private final String operation;
+        private final Boolean success;
+        private final String message;
+        private final String warn;
+        private final Long enrollmentId;
+        private final LocalDateTime expiresAt;
+
+        CachedResponse(IdempotencyRecord record, LocalDateTime expiresAt) {
+            this.operation = record.getOperation();
+            this.success = record.getSuccess();
+            this.message = record.getMessage();
+            this.warn = record.getWarn();
+            this.enrollmentId = record.getEnrollmentId();
+            this.expiresAt = expiresAt;
+        }
+
+        EnrollmentResponse replay(String requestedOperation) {
+            if (!operation.equals(requestedOperation)) {
+                return EnrollmentResponse.builder()
+                        .success(false)
+                        .message("该请求键已用于" + operation + "操作，请重新生成")
+                        .build();
+            }
+            return EnrollmentResponse.builder()
+                    .success(success)
+                    .message(message)
+                    .warn(warn)
+                    .enrollmentId(enrollmentId)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newcourseselectionsystem.application.catalog.EnrolledCountOverlay;
+import org.example.newcourseselectionsystem.application.util.LotteryPolicies;
+import org.example.newcourseselectionsystem.application.util.SelectionModes;
+import org.example.newcourseselectionsystem.application.util.TransactionCallbacks;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.domain.entity.ElectiveBatch;
+import org.example.newcourseselectionsystem.domain.entity.Enrollment;
+import org.example.newcourseselectionsystem.domain.entity.LotteryDraw;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.ElectiveBatchMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.LotteryDrawMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 志愿轮次抽签引擎
+ * <p>
+ * 轮次结束后对超容量课程抽签：一次查询取出轮次内全部"已选"记录并按课程分组，
+ * 各课程在 ForkJoinPool 上并行抽签。每门课程的随机数由轮次种子与课程ID派生，与线程调度无关，
+ * 相同种子、相同选课记录可完全复现结果。未中签记录在同一事务内分批标记为"未中签"，
+ * 同时扣减已选人数并写入抽签记录（每个轮次只抽签一次）。
+ * <p>
+ * 轮次抽签策略为"毕业加权"时按 {@link LotteryWeights} 的权重做不放回加权抽样，否则均等抽签。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LotteryEngine {
+
+    private final EnrollmentMapper enrollmentMapper;
+    private final CourseMapper courseMapper;
+    private final ElectiveBatchMapper electiveBatchMapper;
+    private final LotteryDrawMapper lotteryDrawMapper;
+    private final SeatLedger seatLedger;
+    private final StudentEnrollmentCache studentEnrollmentCache;
+    private final StudentTimetableCache studentTimetableCache;
+    private final EnrolledCountOverlay enrolledCountOverlay;
+    private final LotteryWeights lotteryWeights;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${lottery.parallelism:0}")
+    private int parallelism;
+
+    @Value("${lottery.update-batch-size:1000}")
+    private int updateBatchSize;
+
+    @Value("${lottery.auto-draw.enabled:true}")
+    private boolean autoDraw;
+
+    @Value("${lottery.auto-draw.max-age-hours:72}")
+    private int maxAgeHours;
+
+    /**
+     * 对志愿轮次抽签；该轮次已抽过签时直接返回已有记录
+     *
+     * @param batchId 选课轮次ID
+     * @param seed    随机种子，为空时随机生成并记录
+     * @return 抽签记录
+     */
+    public LotteryDraw draw(Long batchId, Long seed) {
+        ElectiveBatch batch = electiveBatchMapper.selectById(batchId);
+        if (batch == null) {
+            throw new IllegalArgumentException("选课轮次不存在: " + batchId);
+        }
+        if (!SelectionModes.isPreference(batch.getSelectionMode())) {
+            throw new IllegalArgumentException("只有志愿选课轮次需要抽签: " + batch.getRoundName());
+        }
+        LotteryDraw existing = findDraw(batchId);
+        if (existing != null) {
+            return existing;
+        }
+        // 账本中尚未回写的预选记录也要参与抽签
+        if (seatLedger.isActive()) {
+            seatLedger.flush();
+        }
+
+        long start = System.currentTimeMillis();
+        LotteryDraw draw = new LotteryDraw();
+        draw.setBatchId(batchId);
+        draw.setSeed(seed != null ? seed : new SecureRandom().nextLong());
+        draw.setDrawnAt(LocalDateTime.now());
+
+        LotteryWeights.Cohort cohort = LotteryPolicies.isWeighted(batch.getLotteryPolicy())
+                ? lotteryWeights.load(batch) : null;
+        draw.setPolicy(cohort != null ? cohort.describe() : LotteryPolicies.UNIFORM);
+
+        List<CourseEntrants> oversubscribed = loadOversubscribed(batchId, cohort);
+        allocate(draw.getSeed(), oversubscribed);
+        transactionTemplate.executeWithoutResult(status -> apply(draw, oversubscribed, start));
+
+        log.info("轮次 {} 抽签完成：种子 {}，超容量课程 {} 门，参与记录 {} 条，未中签 {} 条，耗时 {} ms",
+                batchId, draw.getSeed(), draw.getCourseCount(), draw.getEntrantCount(),
+                draw.getLoserCount(), draw.getElapsedMs());
+        return draw;
+    }
+
+    /**
+     * 查询轮次的抽签记录，未抽签时返回null
+     */
+    public LotteryDraw findDraw(Long batchId) {
+        return lotteryDrawMapper.selectOne(new LambdaQueryWrapper<LotteryDraw>()
+                .eq(LotteryDraw::getBatchId, batchId));
+    }
+
+    /**
+     * 定期为刚结束的志愿轮次自动抽签；结束超过 max-age-hours 的历史轮次只能手动触发
+     */
+    @Scheduled(initialDelayString = "${lottery.check-interval-ms:60000}",
+            fixedDelayString = "${lottery.check-interval-ms:60000}")
+    public void drawClosedBatches() {
+        if (!autoDraw) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<ElectiveBatch> closed = electiveBatchMapper.selectList(new LambdaQueryWrapper<ElectiveBatch>()
+                .lt(ElectiveBatch::getEndTime, now)
+                .ge(ElectiveBatch::getEndTime, now.minusHours(maxAgeHours)));
+        for (ElectiveBatch batch : closed) {
+            if (!SelectionModes.isPreference(batch.getSelectionMode()) || findDraw(batch.getBatchId()) != null) {
+                continue;
+            }
+            try {
+                draw(batch.getBatchId(), null);
+            } catch (Exception e) {
+                log.error("轮次 {} 自动抽签失败", batch.getBatchId(), e);
+            }
+        }
+    }
+
+    /**
+     * 单门课程抽签：以派生种子对报名下标做部分 Fisher-Yates 洗牌，前 seats 个中签
+     *
+     * @param seed      轮次种子
+     * @param courseId  课程ID
+     * @param entrants  报名记录数（按选课记录ID升序编号）
+     * @param seats     可分配的座位数
+     * @return 未中签记录的下标（升序）
+     */
+    static int[] drawLosers(long seed, long courseId, int entrants, int seats) {
+        SplittableRandom random = new SplittableRandom(seed ^ (courseId * 0x9E3779B97F4A7C15L));
+        int[] order = new int[entrants];
+        for (int i = 0; i < entrants; i++) {
+            order[i] = i;
+        }
+        int winners = Math.min(seats, entrants);
+        for (int i = 0; i < winners; i++) {
+            int j = i + random.nextInt(entrants - i);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        int[] losers = Arrays.copyOfRange(order, winners, entrants);
+        Arrays.sort(losers);
+        return losers;
+    }
+
+    /**
+     * 单门课程加权抽签（Efraimidis-Spirakis 不放回加权抽样）：
+     * 每条报名取键 ln(u) / 权重，键最大的 seats 条中签，中签概率与权重成正比
+     *
+     * @param seed     轮次种子
+     * @param courseId 课程ID
+     * @param weights  各报名的权重（按选课记录ID升序排列），须大于0
+     * @param seats    可分配的座位数
+     * @return 未中签记录的下标（升序）
+     */
+    static int[] drawWeightedLosers(long seed, long courseId, double[] weights, int seats) {
+        SplittableRandom random = new SplittableRandom(seed ^ (courseId * 0x9E3779B97F4A7C15L));
+        int entrants = weights.length;
+        double[] keys = new double[entrants];
+        Integer[] order = new Integer[entrants];
+        for (int i = 0; i < entrants; i++) {
+            keys[i] = Math.log(1.0 - random.nextDouble()) / weights[i];
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(keys[b], keys[a]));
+        int winners = Math.min(seats, entrants);
+        int[] losers = new int[entrants - winners];
+        for (int i = winners; i < entrants; i++) {
+            losers[i - winners] = order[i];
+        }
+        Arrays.sort(losers);
+        return losers;
+    }
+
+    /**
+     * 读取轮次内的"已选"记录，筛出报名数超过可用座位的课程。
+     * 可用座位 = 容量 - 其他轮次已占的座位
+     *
+     * @param cohort 毕业加权时的报名学生进度，均等抽签时为null
+     */
+    private List<CourseEntrants> loadOversubscribed(Long batchId, LotteryWeights.Cohort cohort) {
+        Map<Long, Course> courses = new HashMap<>();
+        for (Course course : courseMapper.selectList(new LambdaQueryWrapper<Course>()
+                .select(Course::getCourseId, Course::getCapacity, Course::getType))) {
+            courses.put(course.getCourseId(), course);
+        }
+        Map<Long, Integer> activeSeats = new HashMap<>();
+        for (EnrollmentMapper.CourseSeatCount row : enrollmentMapper.countActiveSeatsByCourse()) {
+            activeSeats.put(row.getCourseId(), row.getSeatCount());
+        }
+        // 按课程分组后各自排序，比数据库对整张结果集排序更快
+        Map<Long, List<Enrollment>> entrantsByCourse = new HashMap<>();
+        for (Enrollment row : enrollmentMapper.selectList(new LambdaQueryWrapper<Enrollment>()
+                .select(Enrollment::getEnrollmentId, Enrollment::getStudentId, Enrollment::getCourseId)
+                .eq(Enrollment::getBatchId, batchId)
+                .eq(Enrollment::getStatus, StudentEnrollmentCache.ENROLLED))) {
+            entrantsByCourse.computeIfAbsent(row.getCourseId(), id -> new ArrayList<>()).add(row);
+        }
+
+        List<CourseEntrants> oversubscribed = new ArrayList<>();
+        for (Map.Entry<Long, List<Enrollment>> entry : entrantsByCourse.entrySet()) {
+            Course course = courses.get(entry.getKey());
+            List<Enrollment> rows = entry.getValue();
+            int entrants = rows.size();
+            if (course == null || course.getCapacity() == null || course.getCapacity() <= 0) {
+                continue;
+            }
+            int takenElsewhere = activeSeats.getOrDefault(course.getCourseId(), entrants) - entrants;
+            int seats = Math.max(course.getCapacity() - Math.max(takenElsewhere, 0), 0);
+            if (entrants <= seats) {
+                continue;
+            }
+            rows.sort(Comparator.comparingLong(Enrollment::getEnrollmentId));
+            long[] enrollmentIds = new long[entrants];
+            double[] weights = cohort != null ? new double[entrants] : null;
+            for (int i = 0; i < entrants; i++) {
+                enrollmentIds[i] = rows.get(i).getEnrollmentId();
+                if (weights != null) {
+                    weights[i] = cohort.weight(rows.get(i).getStudentId(), course.getType());
+                }
+            }
+            oversubscribed.add(new CourseEntrants(course.getCourseId(), seats, enrollmentIds, weights));
+        }
+        // 按课程ID排列，写回顺序稳定
+        oversubscribed.sort(Comparator.comparingLong(entrants -> entrants.courseId));
+        return oversubscribed;
+    }
+
+    private void allocate(long seed, List<CourseEntrants> courses) {
+        if (courses.isEmpty()) {
+            return;
+        }
+        ForkJoinPool pool = parallelism > 0 ? new ForkJoinPool(parallelism) : new ForkJoinPool();
+        try {
+            pool.invoke(new DrawTask(seed, courses, 0, courses.size()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 写回抽签结果：逐门课程分批标记未中签，按实际更新行数扣减已选人数，最后写入抽签记录
+     */
+    private void apply(LotteryDraw draw, List<CourseEntrants> courses, long start) {
+        int entrants = 0;
+        int lost = 0;
+        List<Long> chunk = new ArrayList<>(updateBatchSize);
+        for (CourseEntrants course : courses) {
+            entrants += course.enrollmentIds.length;
+            int courseLost = 0;
+            for (int index : course.losers) {
+                chunk.add(course.enrollmentIds[index]);
+                if (chunk.size() >= updateBatchSize) {
+                    courseLost += enrollmentMapper.markLotteryLosers(chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                courseLost += enrollmentMapper.markLotteryLosers(chunk);
+                chunk.clear();
+            }
+            if (courseLost > 0) {
+                int released = courseLost;
+                courseMapper.adjustEnrolledCount(course.courseId, -released);
+                enrolledCountOverlay.adjust(course.courseId, -released);
+                TransactionCallbacks.afterCommit(() -> seatLedger.release(course.courseId, released));
+            }
+            lost += courseLost;
+        }
+        draw.setCourseCount(courses.size());
+        draw.setEntrantCount(entrants);
+        draw.setLoserCount(lost);
+        draw.setElapsedMs(System.currentTimeMillis() - start);
+        lotteryDrawMapper.insert(draw);
+
+        // 大批学生的选课状态同时变化，直接丢弃缓存，之后按需重新加载
+        studentEnrollmentCache.clear();
+        TransactionCallbacks.afterCommit(studentTimetableCache::clear);
+    }
+
+    /**
+     * 一门超容量课程的报名记录（按选课记录ID升序）、加权抽签时的权重与抽签结果
+     */
+    private static final class CourseEntrants {
+        private final long courseId;
+        private final int seats;
+        private final long[] enrollmentIds;
+        private final double[] weights;
+        private int[] losers;
+
+        CourseEntrants(long courseId, int seats, long[] enrollmentIds, double[] weights) {
+            this.courseId = courseId;
+            this.seats = seats;
+            this.enrollmentIds = enrollmentIds;
+            this.weights = weights;
+        }
+    }
+
+    /**
+     * 按课程区间二分的抽签任务，各课程互不依赖
+     */
+    private static final class DrawTask extends RecursiveAction {
+        private static final int THRESHOLD = 4;
+
+        private final long seed;
+        private final List<CourseEntrants> courses;
+        private final int from;
+        private final int to;
+
+        DrawTask(long seed, List<CourseEntrants> courses, int from, int to) {
+            this.seed = seed;
+            this.courses = courses;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    CourseEntrants course = courses.get(i);
+                    course.losers = course.weights != null
+                            ? drawWeightedLosers(seed, course.courseId, course.weights, course.seats)
+                            : drawLosers(seed, course.courseId, course.enrollmentIds.length, course.seats);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new DrawTask(seed, courses, from, middle), new DrawTask(seed, courses, middle, to));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.util.GraduationRequirements;
+import org.example.newcourseselectionsystem.domain.entity.ElectiveBatch;
+import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 毕业加权抽签的权重计算
+ * <p>
+ * 权重 = 1 + 毕业进度系数 × 毕业进度 + 学分缺口系数 × 毕业进度 × [该课程类型仍缺学分]，
+ * 毕业进度 = 计入毕业要求的已修学分 / 毕业总学分（上限为1），口径与毕业状态查询一致。
+ * 整个轮次的报名学生通过一次聚合查询得到已修学分，不逐个学生查询毕业状态。
+ */
+@Component
+@RequiredArgsConstructor
+public class LotteryWeights {
+
+    private final EnrollmentMapper enrollmentMapper;
+
+    @Value("${lottery.weights.seniority:1.0}")
+    private double defaultSeniorityWeight;
+
+    @Value("${lottery.weights.deficit:2.0}")
+    private double defaultDeficitWeight;
+
+    /**
+     * 加载轮次报名学生的毕业进度，系数取轮次配置，未配置时使用全局默认值
+     */
+    public Cohort load(ElectiveBatch batch) {
+        Map<Long, Map<String, Integer>> earned = new HashMap<>();
+        for (EnrollmentMapper.StudentTypeCredits row : enrollmentMapper.sumCompletedCreditsByType(batch.getBatchId())) {
+            if (row.getCredits() != null) {
+                earned.computeIfAbsent(row.getStudentId(), id -> new HashMap<>()).put(row.getType(), row.getCredits());
+            }
+        }
+        return new Cohort(earned,
+                valueOrDefault(batch.getSeniorityWeight(), defaultSeniorityWeight),
+                valueOrDefault(batch.getDeficitWeight(), defaultDeficitWeight));
+    }
+
+    private static double valueOrDefault(BigDecimal value, double defaultValue) {
+        return value != null ? value.doubleValue() : defaultValue;
+    }
+
+    /**
+     * 一个轮次报名学生的毕业进度（不可变）
+     */
+    public static final class Cohort {
+
+        private static final int TOTAL_REQUIRED = GraduationRequirements.totalRequired();
+
+        private final Map<Long, Map<String, Integer>> earnedByStudent;
+        private final Map<Long, Double> progressByStudent = new HashMap<>();
+        private final double seniorityWeight;
+        private final double deficitWeight;
+
+        Cohort(Map<Long, Map<String, Integer>> earnedByStudent, double seniorityWeight, double deficitWeight) {
+            this.earnedByStudent = earnedByStudent;
+            this.seniorityWeight = seniorityWeight;
+            this.deficitWeight = deficitWeight;
+            earnedByStudent.forEach((studentId, earned) -> {
+                int total = 0;
+                for (Map.Entry<String, Integer> requirement : GraduationRequirements.CREDIT_REQUIREMENTS.entrySet()) {
+                    total += earned.getOrDefault(requirement.getKey(), 0);
+                }
+                progressByStudent.put(studentId, TOTAL_REQUIRED > 0 ? Math.min((double) total / TOTAL_REQUIRED, 1.0) : 0.0);
+            });
+        }
+
+        /**
+         * 学生对某类型课程的抽签权重，没有已修记录的学生权重为1
+         */
+        public double weight(long studentId, String courseType) {
+            Double progress = progressByStudent.get(studentId);
+            if (progress == null) {
+                return 1.0;
+            }
+            double weight = 1.0 + seniorityWeight * progress;
+            Integer required = courseType != null ? GraduationRequirements.CREDIT_REQUIREMENTS.get(courseType) : null;
+            if (required != null && earnedByStudent.get(studentId).getOrDefault(courseType, 0) < required) {
+                weight += deficitWeight * progress;
+            }
+            return weight;
+        }
+
+        /**
+         * 策略描述，写入抽签记录便于复现
+         */
+        public String describe() {
+            return String.format("毕业加权(进度系数=%s,缺口系数=%s)", seniorityWeight, deficitWeight);
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newcourseselectionsystem.application.util.TransactionCallbacks;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.domain.entity.ElectiveBatch;
+import org.example.newcourseselectionsystem.domain.entity.Enrollment;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.ElectiveBatchMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 内存座位账本（可选，默认关闭）
+ * <p>
+ * 选课轮次开放时从 courses.capacity / enrolled_count 加载每门课的座位计数，
+ * 占座判定在内存中以 CAS 完成（无锁），选课记录在调用方事务提交后进入回写队列，与已选人数增量由后台定时批量回写数据库；
+ * 调用方事务回滚时撤销占座（{@link #cancel}），回滚的选课不会被写入。
+ * 服务重启后按当前进行中的轮次重建账本，并以 enrollments 表中"已选"记录数校正已选人数。
+ * <p>
+ * 注意：已接受但尚未回写的选课在进程崩溃时会丢失，丢失窗口由回写间隔决定。
+ */
+@Slf4j
+@Component
+public class SeatLedger {
+
+    private final CourseMapper courseMapper;
+    private final EnrollmentMapper enrollmentMapper;
+    private final ElectiveBatchMapper electiveBatchMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${enrollment.seat-ledger.enabled:false}")
+    private boolean enabled;
+
+    @Value("${enrollment.seat-ledger.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    private final Map<Long, SeatCounter> counters = new ConcurrentHashMap<>();
+    private final LinkedBlockingDeque<Enrollment> pendingEnrollments = new LinkedBlockingDeque<>();
+    private final Set<String> pendingKeys = ConcurrentHashMap.newKeySet();
+    private final Set<Enrollment> uncommitted = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    private volatile Long activeBatchId;
+
+    public SeatLedger(CourseMapper courseMapper, EnrollmentMapper enrollmentMapper,
+            ElectiveBatchMapper electiveBatchMapper, PlatformTransactionManager transactionManager) {
+        this.courseMapper = courseMapper;
+        this.enrollmentMapper = enrollmentMapper;
+        this.electiveBatchMapper = electiveBatchMapper;
+        // 回写使用独立事务，不受调用方（如退课）事务回滚影响
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 账本是否正在接管占座
+     */
+    public boolean isActive() {
+        return activeBatchId != null;
+    }
+
+    public Long getActiveBatchId() {
+        return activeBatchId;
+    }
+
+    /**
+     * 为指定轮次开放账本：先回写遗留记录，再从数据库重建计数
+     */
+    public synchronized void open(ElectiveBatch batch) {
+        flush();
+        rebuild();
+        activeBatchId = batch.getBatchId();
+        log.info("座位账本已开放：轮次 {}（{}），课程数 {}", batch.getBatchId(), batch.getRoundName(), counters.size());
+    }
+
+    /**
+     * 关闭账本：回写全部待写记录后交还给数据库直连路径
+     */
+    public synchronized void close() {
+        activeBatchId = null;
+        flush();
+        counters.clear();
+        log.info("座位账本已关闭");
+    }
+
+    /**
+     * 内存占座并登记待回写的选课记录
+     *
+     * @param enrollment   待写入的选课记录
+     * @param hardCapacity 是否强制容量上限
+     * @return 占座结果
+     */
+    public Reservation reserve(Enrollment enrollment, boolean hardCapacity) {
+        return reserve(enrollment, hardCapacity, 0);
+    }
+
+    /**
+     * 递补占座：占用调用方事务刚释放的座位。释放在事务提交后才归还账本，容量判定时先扣除这些座位
+     *
+     * @param enrollment 待写入的选课记录
+     * @param releasing  调用方事务已释放、尚未归还账本的座位数
+     * @return 占座结果
+     */
+    public Reservation reserveReleased(Enrollment enrollment, int releasing) {
+        return reserve(enrollment, true, releasing);
+    }
+
+    private Reservation reserve(Enrollment enrollment, boolean hardCapacity, int releasing) {
+        String key = pendingKey(enrollment.getStudentId(), enrollment.getCourseId(), enrollment.getBatchId());
+        // 先登记键再占座：同一学生的并发重复请求只有一个能通过
+        if (!pendingKeys.add(key)) {
+            return Reservation.DUPLICATE;
+        }
+        SeatCounter counter = counters.computeIfAbsent(enrollment.getCourseId(), this::loadCounter);
+        if (counter == null || !counter.tryAcquire(hardCapacity, releasing)) {
+            pendingKeys.remove(key);
+            return Reservation.FULL;
+        }
+        enqueue(enrollment);
+        return Reservation.ACCEPTED;
+    }
+
+    /**
+     * 批量占座（同一学生一次提交多门课程）
+     *
+     * @param enrollments  待写入的选课记录
+     * @param hardCapacity 是否强制容量上限
+     * @param allOrNothing 为true时任一课程占座失败则撤销全部已占座位，此时结果中的 ACCEPTED 只表示该课程本可占座
+     * @return 与入参一一对应的占座结果
+     */
+    public List<Reservation> reserveAll(List<Enrollment> enrollments, boolean hardCapacity, boolean allOrNothing) {
+        List<Reservation> results = new ArrayList<>(enrollments.size());
+        boolean failed = false;
+        for (Enrollment enrollment : enrollments) {
+            if (!pendingKeys.add(pendingKey(enrollment.getStudentId(), enrollment.getCourseId(), enrollment.getBatchId()))) {
+                results.add(Reservation.DUPLICATE);
+                failed = true;
+                continue;
+            }
+            SeatCounter counter = counters.computeIfAbsent(enrollment.getCourseId(), this::loadCounter);
+            if (counter == null || !counter.tryAcquire(hardCapacity, 0)) {
+                pendingKeys.remove(pendingKey(enrollment.getStudentId(), enrollment.getCourseId(), enrollment.getBatchId()));
+                results.add(Reservation.FULL);
+                failed = true;
+                continue;
+            }
+            results.add(Reservation.ACCEPTED);
+        }
+        boolean rollback = allOrNothing && failed;
+        for (int i = 0; i < enrollments.size(); i++) {
+            if (results.get(i) != Reservation.ACCEPTED) {
+                continue;
+            }
+            Enrollment enrollment = enrollments.get(i);
+            if (rollback) {
+                counters.get(enrollment.getCourseId()).release(1);
+                pendingKeys.remove(pendingKey(enrollment.getStudentId(), enrollment.getCourseId(), enrollment.getBatchId()));
+            } else {
+                enqueue(enrollment);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 调用方事务提交后才把记录交给回写，未提交的记录不会被写入；不在事务中时立即交给回写
+     */
+    private void enqueue(Enrollment enrollment) {
+        uncommitted.add(enrollment);
+        TransactionCallbacks.afterCommit(() -> {
+            if (uncommitted.remove(enrollment)) {
+                pendingEnrollments.offer(enrollment);
+            }
+        });
+    }
+
+    /**
+     * 撤销尚未回写的占座（占座后调用方的后续步骤失败或事务回滚时使用）
+     *
+     * @return 是否撤销成功，记录已回写时返回false
+     */
+    public boolean cancel(Enrollment enrollment) {
+        if (!uncommitted.remove(enrollment) && !pendingEnrollments.remove(enrollment)) {
+            return false;
+        }
+        release(enrollment.getCourseId(), 1);
+        pendingKeys.remove(pendingKey(enrollment.getStudentId(), enrollment.getCourseId(), enrollment.getBatchId()));
+        return true;
+    }
+
+    /**
+     * 释放内存座位（数据库侧的已选人数由调用方负责）；在事务中释放时须在提交后调用，否则回滚后座位会被超卖
+     */
+    public void release(Long courseId, int count) {
+        SeatCounter counter = counters.get(courseId);
+        if (counter != null) {
+            counter.release(count);
+        }
+    }
+
+    /**
+     * 当前内存中的已选人数，账本未加载该课程时返回null
+     */
+    public Integer seatsTaken(Long courseId) {
+        SeatCounter counter = counters.get(courseId);
+        return counter != null ? counter.enrolled.get() : null;
+    }
+
+    /**
+     * 读取选课记录之前（退课、换课）回写待写记录，须在调用方开启事务之前调用：
+     * 可重复读的快照在事务第一次读取时建立，之后回写的记录对该事务不可见；
+     * 回写在独立事务中需要另一个数据库连接，持有连接等待回写锁时，并发请求数达到连接池大小即互相等待
+     */
+    public void flushBeforeTransaction() {
+        if (!isActive()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("座位账本须在事务开始之前回写");
+        }
+        flush();
+    }
+
+    /**
+     * 将待写记录分批写入数据库：一次多值 INSERT + 按课程聚合的已选人数增量
+     * <p>
+     * 定时回写与调用方的主动回写互斥：返回时此前已提交的选课（含定时任务已取出、正在写入的批次）均已写入。
+     */
+    @Scheduled(fixedDelayString = "${enrollment.seat-ledger.flush-interval-ms:200}")
+    public synchronized void flush() {
+        while (!pendingEnrollments.isEmpty()) {
+            List<Enrollment> chunk = new ArrayList<>(Math.min(flushBatchSize, pendingEnrollments.size()));
+            pendingEnrollments.drainTo(chunk, flushBatchSize);
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    enrollmentMapper.insertBatch(chunk);
+                    Map<Long, Integer> deltas = new HashMap<>();
+                    for (Enrollment enrollment : chunk) {
+                        deltas.merge(enrollment.getCourseId(), 1, Integer::sum);
+                    }
+                    deltas.forEach(courseMapper::adjustEnrolledCount);
+                });
+                for (Enrollment enrollment : chunk) {
+                    pendingKeys.remove(pendingKey(enrollment.getStudentId(), enrollment.getCourseId(), enrollment.getBatchId()));
+                }
+            } catch (Exception e) {
+                // 回写失败：按原顺序放回队首，等待下次重试
+                log.error("座位账本回写失败，{} 条记录将重试", chunk.size(), e);
+                for (int i = chunk.size() - 1; i >= 0; i--) {
+                    pendingEnrollments.offerFirst(chunk.get(i));
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 根据 elective_batches 的时间表自动开放/关闭账本
+     */
+    @Scheduled(fixedDelayString = "${enrollment.seat-ledger.round-check-interval-ms:5000}")
+    public void refreshRound() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        ElectiveBatch current = electiveBatchMapper.selectOne(new LambdaQueryWrapper<ElectiveBatch>()
+                .le(ElectiveBatch::getStartTime, now)
+                .ge(ElectiveBatch::getEndTime, now)
+                .orderByDesc(ElectiveBatch::getStartTime)
+                .last("LIMIT 1"));
+        if (current == null) {
+            if (isActive()) {
+                close();
+            }
+        } else if (!current.getBatchId().equals(activeBatchId)) {
+            open(current);
+        }
+    }
+
+    /**
+     * 启动（含崩溃重启）后立即按当前轮次重建账本
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refreshRound();
+    }
+
+    /**
+     * 从数据库重建计数：courses.enrolled_count 与 enrollments 表"已选"记录数不一致时（多计或少计）以记录数为准校正，
+     * 回写失败仍待重试的记录计入内存计数
+     */
+    private void rebuild() {
+        Map<Long, Integer> activeSeats = new HashMap<>();
+        for (EnrollmentMapper.CourseSeatCount row : enrollmentMapper.countActiveSeatsByCourse()) {
+            activeSeats.put(row.getCourseId(), row.getSeatCount());
+        }
+        Map<Long, Integer> pendingSeats = new HashMap<>();
+        for (Enrollment enrollment : pendingEnrollments) {
+            pendingSeats.merge(enrollment.getCourseId(), 1, Integer::sum);
+        }
+        List<Course> courses = courseMapper.selectList(new LambdaQueryWrapper<Course>()
+                .select(Course::getCourseId, Course::getCapacity, Course::getEnrolledCount));
+        counters.clear();
+        int repaired = 0;
+        for (Course course : courses) {
+            int enrolled = course.getEnrolledCount() != null ? course.getEnrolledCount() : 0;
+            int actual = activeSeats.getOrDefault(course.getCourseId(), 0);
+            if (enrolled != actual) {
+                courseMapper.update(null, new LambdaUpdateWrapper<Course>()
+                        .set(Course::getEnrolledCount, actual)
+                        .eq(Course::getCourseId, course.getCourseId()));
+                enrolled = actual;
+                repaired++;
+            }
+            counters.put(course.getCourseId(), new SeatCounter(course.getCapacity(),
+                    enrolled + pendingSeats.getOrDefault(course.getCourseId(), 0)));
+        }
+        if (repaired > 0) {
+            log.warn("座位账本重建时校正了 {} 门课程的已选人数", repaired);
+        }
+    }
+
+    private SeatCounter loadCounter(Long courseId) {
+        Course course = courseMapper.selectById(courseId);
+        return course == null ? null : new SeatCounter(course.getCapacity(),
+                course.getEnrolledCount() != null ? course.getEnrolledCount() : 0);
+    }
+
+    private static String pendingKey(Long studentId, Long courseId, Long batchId) {
+        return studentId + ":" + courseId + ":" + batchId;
+    }
+
+    /**
+     * 占座结果
+     */
+    public enum Reservation {
+        ACCEPTED, DUPLICATE, FULL
+    }
+
+    /**
+     * 单门课程的座位计数，CAS 自旋实现容量检查与自增
+     */
+    static final class SeatCounter {
+        private final int capacity;
+        private final AtomicInteger enrolled;
+
+        SeatCounter(Integer capacity, int enrolled) {
+            this.capacity = capacity != null ? capacity : 0;
+            this.enrolled = new AtomicInteger(enrolled);
+        }
+
+        /**
+         * @param releasing 已释放、尚未归还的座位数，容量判定时扣除
+         */
+        boolean tryAcquire(boolean hardCapacity, int releasing) {
+            while (true) {
+                int current = enrolled.get();
+                if (hardCapacity && capacity > 0 && current - releasing >= capacity) {
+                    return false;
+                }
+                if (enrolled.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release(int count) {
+            enrolled.updateAndGet(current -> Math.max(current - count, 0));
+        }
+    }
+}
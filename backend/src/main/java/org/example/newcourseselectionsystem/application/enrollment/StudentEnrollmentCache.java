@@ -0,0 +1,252 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.util.TransactionCallbacks;
+import org.example.newcourseselectionsystem.domain.entity.Enrollment;
+import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 学生选课状态缓存（LRU）：按选课状态保存每个学生的课程ID，取值为有序 long 数组
+ * <p>
+ * 课程查询、时间冲突检查、已选课表与毕业推荐共用，首次访问时一次查询加载该学生全部选课记录，
+ * 之后由选课/退课在事务提交后直接更新（write-through）；批量修改选课状态的流程需调用 {@link #evict} 或 {@link #clear}。
+ * 未命中时的加载结果经 {@link CacheFillGuard} 判定后才写入缓存，避免旧快照覆盖并发提交的变更。
+ * 本进程之外写入的状态（其他实例的选课/退课、成绩录入产生的"已修"）不会通知缓存，
+ * 每个学生的状态在加载 expire-after-write-seconds 后过期、重新加载，陈旧时间以此为上限。
+ * 命中/未命中次数以 cache.gets{cache=student-enrollments} 指标暴露。
+ */
+@Component
+@RequiredArgsConstructor
+public class StudentEnrollmentCache {
+
+    public static final String ENROLLED = "已选";
+    public static final String DROPPED = "已退选";
+    public static final String COMPLETED = "已修";
+    public static final String LOST = "未中签";
+
+    private final EnrollmentMapper enrollmentMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${enrollment.state-cache.max-students:20000}")
+    private int maxStudents;
+
+    @Value("${enrollment.state-cache.expire-after-write-seconds:60}")
+    private long expireAfterWriteSeconds;
+
+    private final CacheFillGuard fillGuard = new CacheFillGuard();
+    private Map<Long, CachedState> states;
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        states = Collections.synchronizedMap(new LinkedHashMap<Long, CachedState>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedState> eldest) {
+                return size() > maxStudents;
+            }
+        });
+        hits = Counter.builder("cache.gets").tag("cache", "student-enrollments").tag("result", "hit")
+                .description("学生选课状态缓存命中次数").register(meterRegistry);
+        misses = Counter.builder("cache.gets").tag("cache", "student-enrollments").tag("result", "miss")
+                .description("学生选课状态缓存未命中次数").register(meterRegistry);
+        meterRegistry.gaugeMapSize("cache.size", Collections.singletonList(
+                Tag.of("cache", "student-enrollments")), states);
+    }
+
+    /**
+     * 获取学生的选课状态，未缓存或已过期时从数据库加载
+     */
+    public EnrollmentState get(Long studentId) {
+        CachedState cached = states.get(studentId);
+        if (cached != null && !cached.isExpired(System.nanoTime())) {
+            hits.increment();
+            return cached.state;
+        }
+        misses.increment();
+        long version = fillGuard.version(studentId);
+        EnrollmentState state = load(studentId);
+        synchronized (states) {
+            if (!fillGuard.canFill(studentId, version)) {
+                return state;
+            }
+            long now = System.nanoTime();
+            cached = states.get(studentId);
+            if (cached != null && !cached.isExpired(now)) {
+                return cached.state;
+            }
+            states.put(studentId, new CachedState(state, now + TimeUnit.SECONDS.toNanos(expireAfterWriteSeconds)));
+            return state;
+        }
+    }
+
+    /**
+     * 选课成功：事务提交后记为"已选"
+     */
+    public void onEnrolled(Long studentId, Long courseId) {
+        TransactionCallbacks.afterCommit(() -> {
+            fillGuard.bump(studentId);
+            states.computeIfPresent(studentId, (id, cached) -> cached.update(cached.state.with(ENROLLED, courseId)));
+        });
+    }
+
+    /**
+     * 退课成功：事务提交后由"已选"改为"已退选"
+     */
+    public void onDropped(Long studentId, Long courseId) {
+        TransactionCallbacks.afterCommit(() -> {
+            fillGuard.bump(studentId);
+            states.computeIfPresent(studentId,
+                    (id, cached) -> cached.update(cached.state.without(ENROLLED, courseId).with(DROPPED, courseId)));
+        });
+    }
+
+    public void evict(Long studentId) {
+        TransactionCallbacks.afterCommit(() -> {
+            fillGuard.bump(studentId);
+            states.remove(studentId);
+        });
+    }
+
+    public void clear() {
+        TransactionCallbacks.afterCommit(() -> {
+            fillGuard.bumpAll();
+            states.clear();
+        });
+    }
+
+    private EnrollmentState load(Long studentId) {
+        List<Enrollment> enrollments = enrollmentMapper.selectList(new LambdaQueryWrapper<Enrollment>()
+                .select(Enrollment::getCourseId, Enrollment::getStatus)
+                .eq(Enrollment::getStudentId, studentId));
+        EnrollmentState state = EnrollmentState.EMPTY;
+        for (Enrollment enrollment : enrollments) {
+            if (enrollment.getStatus() != null && enrollment.getCourseId() != null) {
+                state = state.with(enrollment.getStatus(), enrollment.getCourseId());
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 缓存项：选课状态与过期时间（System.nanoTime），本进程的写入沿用加载时的过期时间
+     */
+    private static final class CachedState {
+        private final EnrollmentState state;
+        private final long expiresAt;
+
+        CachedState(EnrollmentState state, long expiresAt) {
+            this.state = state;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+
+        CachedState update(EnrollmentState updated) {
+            return new CachedState(updated, expiresAt);
+        }
+    }
+
+    /**
+     * 单个学生的选课状态（不可变）：选课状态 → 有序课程ID数组
+     */
+    public static final class EnrollmentState {
+
+        static final EnrollmentState EMPTY = new EnrollmentState(Collections.emptyMap());
+
+        private static final long[] NONE = new long[0];
+
+        private final Map<String, long[]> courseIdsByStatus;
+
+        private EnrollmentState(Map<String, long[]> courseIdsByStatus) {
+            this.courseIdsByStatus = courseIdsByStatus;
+        }
+
+        /**
+         * 指定状态下的课程ID（升序，调用方不得修改）
+         */
+        public long[] courseIds(String status) {
+            return courseIdsByStatus.getOrDefault(status, NONE);
+        }
+
+        public boolean contains(String status, long courseId) {
+            return Arrays.binarySearch(courseIds(status), courseId) >= 0;
+        }
+
+        /**
+         * 是否有该课程的任一状态的选课记录
+         */
+        public boolean containsAny(long courseId) {
+            for (long[] courseIds : courseIdsByStatus.values()) {
+                if (Arrays.binarySearch(courseIds, courseId) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 若干状态下课程ID的并集，供需要集合的调用方使用
+         */
+        public Set<Long> courseIdSet(String... statuses) {
+            Set<Long> result = new LinkedHashSet<>();
+            for (String status : statuses) {
+                for (long courseId : courseIds(status)) {
+                    result.add(courseId);
+                }
+            }
+            return result;
+        }
+
+        EnrollmentState with(String status, long courseId) {
+            long[] current = courseIds(status);
+            int position = Arrays.binarySearch(current, courseId);
+            if (position >= 0) {
+                return this;
+            }
+            int insertAt = -position - 1;
+            long[] updated = new long[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, insertAt);
+            updated[insertAt] = courseId;
+            System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+            return replace(status, updated);
+        }
+
+        EnrollmentState without(String status, long courseId) {
+            long[] current = courseIds(status);
+            int position = Arrays.binarySearch(current, courseId);
+            if (position < 0) {
+                return this;
+            }
+            long[] updated = new long[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, position);
+            System.arraycopy(current, position + 1, updated, position, current.length - position - 1);
+            return replace(status, updated);
+        }
+
+        private EnrollmentState replace(String status, long[] courseIds) {
+            Map<String, long[]> updated = new HashMap<>(courseIdsByStatus);
+            updated.put(status, courseIds);
+            return new EnrollmentState(updated);
+        }
+    }
+}
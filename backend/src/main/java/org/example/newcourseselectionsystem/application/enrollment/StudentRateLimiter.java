@@ -0,0 +1,221 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newcourseselectionsystem.application.util.TokenBuckets;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 按学生的接口限流（进程内令牌桶）
+ * <p>
+ * 每个受限接口按 rate-limit.endpoints.* 配置一条规则（接口路径、每秒补充令牌数、突发容量），
+ * 一条规则可覆盖多个路径（如查询及其分页版本），共用同一组令牌桶；
+ * 以学生ID为键各自维护一个无锁令牌桶；未携带学生ID的请求按客户端地址限流（同一 NAT 或代理出口的匿名请求共用一个桶，
+ * 部署在反向代理之后时需开启 server.forward-headers-strategy，客户端地址才是真实地址）。
+ * 放行路径只有一次哈希表查找和一次 CAS，被拒绝时才记录计数：各接口的拒绝次数记入指标
+ * rate.limit.rejected，被限流的学生及其拒绝次数可通过 /actuator/ratelimit 查看。
+ * 空闲超过 idle-seconds 的令牌桶和限流记录由定时任务清理。
+ */
+@Slf4j
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+@RequiredArgsConstructor
+public class StudentRateLimiter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Getter
+    @Setter
+    private boolean enabled = true;
+
+    @Getter
+    @Setter
+    private long idleSeconds = 300;
+
+    /**
+     * 规则名 -> 限流规则（由配置绑定）
+     */
+    @Getter
+    private final Map<String, Rule> endpoints = new LinkedHashMap<>();
+
+    /**
+     * 接口路径 -> 运行时限流状态，初始化后只读
+     */
+    private Map<String, Limit> limits = new HashMap<>();
+    private final Map<String, Throttled> throttled = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Map<String, Limit> byPath = new HashMap<>();
+        endpoints.forEach((name, rule) -> {
+            Limit limit = new Limit(name, rule, Counter.builder("rate.limit.rejected")
+                    .description("按学生限流拒绝的请求数")
+                    .tag("endpoint", name)
+                    .register(meterRegistry));
+            rule.getPath().forEach(path -> byPath.put(path, limit));
+        });
+        limits = byPath;
+    }
+
+    /**
+     * 对一次请求取令牌
+     *
+     * @param path          接口路径（与规则中的 path 比较）
+     * @param studentId     学生ID，可为空
+     * @param clientAddress 客户端地址，学生ID为空时作为限流键
+     * @return 0 表示放行；否则为建议的重试间隔（秒）
+     */
+    public long check(String path, Long studentId, String clientAddress) {
+        if (!enabled) {
+            return 0;
+        }
+        Limit limit = limits.get(path);
+        if (limit == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long key = studentId != null ? studentId : -1L - (String.valueOf(clientAddress).hashCode() & 0xffffffffL);
+        long waitNanos = limit.buckets.tryAcquire(key, now);
+        if (waitNanos == 0) {
+            return 0;
+        }
+        limit.rejected.increment();
+        String label = studentId != null ? String.valueOf(studentId) : "ip:" + clientAddress;
+        throttled.computeIfAbsent(label, Throttled::new).record(limit.name, now);
+        return Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    /**
+     * 各规则的配置、当前跟踪的键数与累计拒绝次数
+     */
+    public List<Map<String, Object>> rules() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Limit limit : new LinkedHashSet<>(limits.values())) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("endpoint", limit.name);
+            item.put("path", limit.rule.getPath());
+            item.put("permitsPerSecond", limit.rule.getPermitsPerSecond());
+            item.put("burst", limit.rule.getBurst());
+            item.put("trackedKeys", limit.buckets.size());
+            item.put("rejected", (long) limit.rejected.count());
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 最近被限流的学生（或客户端地址），按拒绝次数降序
+     *
+     * @param top 返回条数
+     */
+    public List<Map<String, Object>> topThrottled(int top) {
+        long now = System.nanoTime();
+        return throttled.values().stream()
+                .sorted(Comparator.comparingLong(Throttled::count).reversed())
+                .limit(top)
+                .map(entry -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("key", entry.key);
+                    item.put("rejected", entry.count());
+                    item.put("lastEndpoint", entry.lastEndpoint);
+                    item.put("secondsSinceLastRejected", TimeUnit.NANOSECONDS.toSeconds(now - entry.lastRejectedNanos));
+                    return item;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 清理空闲的令牌桶与过期的限流记录
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        try {
+            long now = System.nanoTime();
+            long idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+            int evicted = 0;
+            for (Limit limit : new LinkedHashSet<>(limits.values())) {
+                evicted += limit.buckets.evictIdle(now, idleNanos);
+            }
+            throttled.values().removeIf(entry -> now - entry.lastRejectedNanos > idleNanos);
+            if (evicted > 0) {
+                log.debug("清理空闲限流桶 {} 个", evicted);
+            }
+        } catch (Exception e) {
+            log.error("清理限流桶失败", e);
+        }
+    }
+
+    /**
+     * 单个接口的限流规则
+     */
+    @Data
+    public static class Rule {
+        /**
+         * 接口路径（与控制器映射一致，如 /api/enrollments/enroll），多个路径以逗号分隔
+         */
+        private List<String> path = new ArrayList<>();
+        /**
+         * 每秒补充的令牌数
+         */
+        private double permitsPerSecond = 1;
+        /**
+         * 桶容量（允许的突发请求数）
+         */
+        private int burst = 1;
+    }
+
+    private static final class Limit {
+        private final String name;
+        private final Rule rule;
+        private final TokenBuckets buckets;
+        private final Counter rejected;
+
+        Limit(String name, Rule rule, Counter rejected) {
+            this.name = name;
+            this.rule = rule;
+            this.buckets = new TokenBuckets(rule.getPermitsPerSecond(), rule.getBurst());
+            this.rejected = rejected;
+        }
+    }
+
+    private static final class Throttled {
+        private final String key;
+        private final LongAdder rejected = new LongAdder();
+        private volatile String lastEndpoint;
+        private volatile long lastRejectedNanos;
+
+        Throttled(String key) {
+            this.key = key;
+        }
+
+        void record(String endpoint, long nowNanos) {
+            rejected.increment();
+            lastEndpoint = endpoint;
+            lastRejectedNanos = nowNanos;
+        }
+
+        long count() {
+            return rejected.sum();
+        }
+    }
+}
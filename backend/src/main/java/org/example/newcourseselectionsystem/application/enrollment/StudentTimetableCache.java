@@ -0,0 +1,181 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.catalog.CatalogChangedEvent;
+import org.example.newcourseselectionsystem.application.catalog.CourseSchedule;
+import org.example.newcourseselectionsystem.application.catalog.CourseScheduleCache;
+import org.example.newcourseselectionsystem.application.catalog.TimetableBits;
+import org.example.newcourseselectionsystem.application.util.TransactionCallbacks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 学生课表位图缓存（LRU）
+ * <p>
+ * 首次访问时从"已选"记录构建，之后在选课/退课事务提交后增量更新，
+ * 时间冲突检查只需一次按位与。构建结果与选课状态缓存一样经 {@link CacheFillGuard} 判定后才写入。
+ */
+@Component
+@RequiredArgsConstructor
+public class StudentTimetableCache {
+
+    private final StudentEnrollmentCache studentEnrollmentCache;
+    private final CourseScheduleCache courseScheduleCache;
+
+    @Value("${enrollment.timetable-cache.max-students:20000}")
+    private int maxStudents;
+
+    private final CacheFillGuard fillGuard = new CacheFillGuard();
+    private Map<Long, StudentTimetable> timetables;
+
+    @PostConstruct
+    void init() {
+        timetables = Collections.synchronizedMap(new LinkedHashMap<Long, StudentTimetable>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, StudentTimetable> eldest) {
+                return size() > maxStudents;
+            }
+        });
+    }
+
+    /**
+     * 获取学生当前课表，未缓存时从数据库构建
+     */
+    public StudentTimetable get(Long studentId) {
+        StudentTimetable timetable = timetables.get(studentId);
+        if (timetable != null) {
+            return timetable;
+        }
+        long version = fillGuard.version(studentId);
+        timetable = load(studentId);
+        synchronized (timetables) {
+            if (!fillGuard.canFill(studentId, version)) {
+                return timetable;
+            }
+            StudentTimetable cached = timetables.putIfAbsent(studentId, timetable);
+            return cached != null ? cached : timetable;
+        }
+    }
+
+    /**
+     * 选课成功：事务提交后把课程加入已缓存的课表
+     */
+    public void onEnrolled(Long studentId, Long courseId) {
+        TransactionCallbacks.afterCommit(() -> {
+            fillGuard.bump(studentId);
+            CourseSchedule schedule = courseScheduleCache.get(courseId);
+            if (schedule != null) {
+                timetables.computeIfPresent(studentId, (id, timetable) -> timetable.with(courseId, schedule.getBits()));
+            }
+        });
+    }
+
+    /**
+     * 退课成功：事务提交后把课程移出已缓存的课表
+     */
+    public void onDropped(Long studentId, Long courseId) {
+        TransactionCallbacks.afterCommit(() -> {
+            fillGuard.bump(studentId);
+            timetables.computeIfPresent(studentId, (id, timetable) -> timetable.without(courseId));
+        });
+    }
+
+    public void evict(Long studentId) {
+        fillGuard.bump(studentId);
+        timetables.remove(studentId);
+    }
+
+    public void clear() {
+        fillGuard.bumpAll();
+        timetables.clear();
+    }
+
+    /**
+     * 课程目录变化后课程位图可能改变，丢弃全部学生课表
+     */
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        clear();
+    }
+
+    private StudentTimetable load(Long studentId) {
+        List<Long> courseIds = new ArrayList<>();
+        for (long courseId : studentEnrollmentCache.get(studentId).courseIds(StudentEnrollmentCache.ENROLLED)) {
+            courseIds.add(courseId);
+        }
+        StudentTimetable timetable = StudentTimetable.EMPTY;
+        if (courseIds.isEmpty()) {
+            return timetable;
+        }
+        for (CourseSchedule schedule : courseScheduleCache.getAll(courseIds).values()) {
+            timetable = timetable.with(schedule.getCourseId(), schedule.getBits());
+        }
+        return timetable;
+    }
+
+    /**
+     * 学生课表：各已选课程的位图及其并集（不可变）
+     */
+    public static final class StudentTimetable {
+
+        static final StudentTimetable EMPTY = new StudentTimetable(Collections.emptyMap(), TimetableBits.EMPTY);
+
+        private final Map<Long, TimetableBits> courseBits;
+        private final TimetableBits union;
+
+        private StudentTimetable(Map<Long, TimetableBits> courseBits, TimetableBits union) {
+            this.courseBits = courseBits;
+            this.union = union;
+        }
+
+        StudentTimetable with(Long courseId, TimetableBits bits) {
+            Map<Long, TimetableBits> copy = new LinkedHashMap<>(courseBits);
+            copy.put(courseId, bits);
+            return new StudentTimetable(copy, union.or(bits));
+        }
+
+        /**
+         * 去掉一门课程后的课表（换课时检查新课程不计入将退选的课程）
+         */
+        public StudentTimetable without(Long courseId) {
+            if (!courseBits.containsKey(courseId)) {
+                return this;
+            }
+            Map<Long, TimetableBits> copy = new LinkedHashMap<>(courseBits);
+            copy.remove(courseId);
+            TimetableBits rebuilt = TimetableBits.EMPTY;
+            for (TimetableBits bits : copy.values()) {
+                rebuilt = rebuilt.or(bits);
+            }
+            return new StudentTimetable(copy, rebuilt);
+        }
+
+        /**
+         * 与给定位图冲突的第一门已选课程（不含该课程本身），无冲突返回null
+         */
+        public Long findConflict(Long courseId, TimetableBits bits) {
+            if (!union.intersects(bits)) {
+                return null;
+            }
+            for (Map.Entry<Long, TimetableBits> entry : courseBits.entrySet()) {
+                if (!entry.getKey().equals(courseId) && entry.getValue().intersects(bits)) {
+                    return entry.getKey();
+                }
+            }
+            return null;
+        }
+
+        public Set<Long> getCourseIds() {
+            return Collections.unmodifiableSet(courseBits.keySet());
+        }
+    }
+}
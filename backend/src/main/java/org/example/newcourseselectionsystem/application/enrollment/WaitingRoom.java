@@ -0,0 +1,340 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newcourseselectionsystem.application.dto.AdmissionDTO;
+import org.example.newcourseselectionsystem.domain.entity.ElectiveBatch;
+import org.example.newcourseselectionsystem.infrastructure.mapper.ElectiveBatchMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.StudentMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 选课开放时段的虚拟等候室（可选，默认关闭）
+ * <p>
+ * 按 elective_batches 的开始时间，在轮次开放前后的时段内限制同时进入选课、查课接口的学生数：
+ * 名额未满时直接发放准入凭证，否则进入内存中的先到先得队列，由定时任务在名额空出时按顺序放行。
+ * 准入凭证为 HMAC-SHA256 签名的"学生ID:轮次ID:到期时间"，只对签发给的学生有效，校验时核对签名并确认该学生仍持有
+ * 这一次放行的名额（离开或重新放行后旧凭证失效）；到期后名额收回，学生需重新排队。
+ * 排队名次由入队序号与已放行序号相减得到，查询为 O(1)。
+ * <p>
+ * 名额、排队与放行记录都保存在本实例内存中：凭证只在签发它的实例上有效，同时在线上限也按实例计算。
+ * 多实例部署时须按学生ID做会话保持（同一学生的请求始终路由到同一实例），总上限为各实例上限之和。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WaitingRoom {
+
+    private final ElectiveBatchMapper electiveBatchMapper;
+    private final StudentMapper studentMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${admission.enabled:false}")
+    private boolean enabled;
+
+    @Value("${admission.max-active-students:2000}")
+    private int maxActiveStudents;
+
+    @Value("${admission.slice-minutes:10}")
+    private long sliceMinutes;
+
+    @Value("${admission.pre-open-minutes:10}")
+    private long preOpenMinutes;
+
+    @Value("${admission.window-minutes:60}")
+    private long windowMinutes;
+
+    @Value("${admission.secret:}")
+    private String secret;
+
+    /**
+     * 已放行学生 -> 准入凭证到期时间（毫秒）
+     */
+    private final Map<Long, Long> activeStudents = new ConcurrentHashMap<>();
+    /**
+     * 已放行但尚未取走的凭证
+     */
+    private final Map<Long, String> issuedTokens = new ConcurrentHashMap<>();
+    private final Map<Long, Long> waitingSeq = new ConcurrentHashMap<>();
+    /**
+     * 排队顺序：学生ID与入队序号，与 waitingSeq 中的序号不一致的旧记录在放行时跳过
+     */
+    private final ConcurrentLinkedQueue<Map.Entry<Long, Long>> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicLong nextSeq = new AtomicLong();
+    private final AtomicLong servedSeq = new AtomicLong();
+
+    private volatile Long activeBatchId;
+    private SecretKeySpec key;
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes;
+        if (secret == null || secret.isEmpty()) {
+            // 未配置密钥时每次启动随机生成，重启后旧凭证失效
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        key = new SecretKeySpec(keyBytes, "HmacSHA256");
+        Gauge.builder("admission.active", activeStudents, Map::size)
+                .description("持有有效准入凭证的学生数").register(meterRegistry);
+        Gauge.builder("admission.waiting", waitingSeq, Map::size)
+                .description("等候室中排队的学生数").register(meterRegistry);
+    }
+
+    /**
+     * 等候室是否正在限流
+     */
+    public boolean isActive() {
+        return activeBatchId != null;
+    }
+
+    /**
+     * 为指定轮次开启等候室
+     */
+    public synchronized void open(Long batchId) {
+        if (batchId.equals(activeBatchId)) {
+            return;
+        }
+        activeStudents.clear();
+        issuedTokens.clear();
+        waitingSeq.clear();
+        waiting.clear();
+        servedSeq.set(nextSeq.get());
+        activeBatchId = batchId;
+        log.info("选课等候室已开启：轮次 {}，同时在线上限 {}", batchId, maxActiveStudents);
+    }
+
+    /**
+     * 关闭等候室，所有请求直接放行
+     */
+    public synchronized void close() {
+        activeBatchId = null;
+        activeStudents.clear();
+        issuedTokens.clear();
+        waitingSeq.clear();
+        waiting.clear();
+        log.info("选课等候室已关闭");
+    }
+
+    /**
+     * 学生进入等候室：名额未满时直接放行，否则排队（重复进入保持原名次）；不存在的学生不能占用名额或排队
+     */
+    public AdmissionDTO join(Long studentId) {
+        if (!isActive()) {
+            return AdmissionDTO.builder().admitted(true).message("当前无需排队").build();
+        }
+        AdmissionDTO admitted = admittedStatus(studentId);
+        if (admitted != null) {
+            return admitted;
+        }
+        if (!waitingSeq.containsKey(studentId) && studentMapper.selectById(studentId) == null) {
+            return AdmissionDTO.builder().admitted(false).message("学生不存在").build();
+        }
+        synchronized (this) {
+            if (!waitingSeq.containsKey(studentId) && waiting.isEmpty() && tryAdmit(studentId)) {
+                return admittedStatus(studentId);
+            }
+            waitingSeq.computeIfAbsent(studentId, id -> {
+                long seq = nextSeq.incrementAndGet();
+                waiting.add(new AbstractMap.SimpleImmutableEntry<>(id, seq));
+                return seq;
+            });
+        }
+        return status(studentId);
+    }
+
+    /**
+     * 查询排队状态：已放行时返回凭证，否则返回名次
+     */
+    public AdmissionDTO status(Long studentId) {
+        if (!isActive()) {
+            return AdmissionDTO.builder().admitted(true).message("当前无需排队").build();
+        }
+        AdmissionDTO admitted = admittedStatus(studentId);
+        if (admitted != null) {
+            return admitted;
+        }
+        Long seq = waitingSeq.get(studentId);
+        if (seq == null) {
+            return AdmissionDTO.builder().admitted(false).message("尚未进入等候室").build();
+        }
+        return AdmissionDTO.builder()
+                .admitted(false)
+                .position(Math.max(seq - servedSeq.get(), 1))
+                .waitingCount(waitingSeq.size())
+                .message("正在排队，请稍候")
+                .build();
+    }
+
+    /**
+     * 已放行的学生完成选课后主动离开，立即空出名额，凭证随之失效；只能以自己的凭证离开
+     *
+     * @param token 准入凭证，离开的是凭证签发给的学生
+     * @return 是否离开成功，凭证无效时返回false（等候室未开启时无需离开，返回true）
+     */
+    public boolean leave(String token) {
+        if (!isActive()) {
+            return true;
+        }
+        Long studentId = admittedStudent(token);
+        if (studentId == null) {
+            return false;
+        }
+        activeStudents.remove(studentId);
+        issuedTokens.remove(studentId);
+        waitingSeq.remove(studentId);
+        return true;
+    }
+
+    /**
+     * 校验准入凭证：签名正确、属于当前轮次、未过期，签发给该学生且该学生仍持有这次放行的名额
+     *
+     * @param token     准入凭证
+     * @param studentId 发起请求的学生
+     */
+    public boolean verify(String token, Long studentId) {
+        return studentId != null && studentId.equals(admittedStudent(token));
+    }
+
+    /**
+     * 凭证签发给的学生（校验规则同 {@link #verify}），凭证无效时返回null
+     */
+    public Long admittedStudent(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        String payload = token.substring(0, dot);
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            return null;
+        }
+        String[] parts = new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8).split(":");
+        if (parts.length != 3 || !parts[1].equals(String.valueOf(activeBatchId))) {
+            return null;
+        }
+        Long studentId = Long.valueOf(parts[0]);
+        long expiresAt = Long.parseLong(parts[2]);
+        // 名额已收回（离开、到期）或已重新放行时，到期时间与当前名额不一致
+        if (expiresAt <= System.currentTimeMillis() || !Long.valueOf(expiresAt).equals(activeStudents.get(studentId))) {
+            return null;
+        }
+        return studentId;
+    }
+
+    /**
+     * 按 elective_batches 的时间表开启/关闭等候室，收回到期名额并按顺序放行排队学生
+     */
+    @Scheduled(fixedDelayString = "${admission.check-interval-ms:1000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            ElectiveBatch opening = electiveBatchMapper.selectOne(new LambdaQueryWrapper<ElectiveBatch>()
+                    .le(ElectiveBatch::getStartTime, now.plusMinutes(preOpenMinutes))
+                    .ge(ElectiveBatch::getStartTime, now.minusMinutes(windowMinutes))
+                    .orderByDesc(ElectiveBatch::getStartTime)
+                    .last("LIMIT 1"));
+            if (opening == null) {
+                if (isActive()) {
+                    close();
+                }
+                return;
+            }
+            open(opening.getBatchId());
+            admitWaiting();
+        } catch (Exception e) {
+            log.error("刷新选课等候室失败", e);
+        }
+    }
+
+    /**
+     * 收回到期名额，再按排队顺序放行
+     */
+    public synchronized void admitWaiting() {
+        long now = System.currentTimeMillis();
+        activeStudents.values().removeIf(expiresAt -> expiresAt <= now);
+        Map.Entry<Long, Long> next;
+        while (activeStudents.size() < maxActiveStudents && (next = waiting.poll()) != null) {
+            if (!waitingSeq.remove(next.getKey(), next.getValue())) {
+                // 已不在排队（或以新序号重新排队）
+                continue;
+            }
+            servedSeq.set(next.getValue());
+            tryAdmit(next.getKey());
+        }
+    }
+
+    private boolean tryAdmit(Long studentId) {
+        if (activeStudents.size() >= maxActiveStudents) {
+            return false;
+        }
+        long expiresAt = System.currentTimeMillis() + sliceMinutes * 60_000;
+        activeStudents.put(studentId, expiresAt);
+        String payload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (studentId + ":" + activeBatchId + ":" + expiresAt).getBytes(StandardCharsets.UTF_8));
+        issuedTokens.put(studentId, payload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(payload)));
+        return true;
+    }
+
+    private AdmissionDTO admittedStatus(Long studentId) {
+        Long expiresAt = activeStudents.get(studentId);
+        String token = issuedTokens.get(studentId);
+        if (expiresAt == null || token == null || expiresAt <= System.currentTimeMillis()) {
+            return null;
+        }
+        return AdmissionDTO.builder()
+                .admitted(true)
+                .token(token)
+                .expiresAt(expiresAt)
+                .message("已准入，请在请求头 X-Admission-Token 中携带凭证")
+                .build();
+    }
+
+    private byte[] sign(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("无法初始化准入凭证签名", e);
+        }
+    }
+}
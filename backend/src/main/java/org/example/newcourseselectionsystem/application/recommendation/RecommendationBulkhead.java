@@ -0,0 +1,117 @@
+package org.example.newcourseselectionsystem.application.recommendation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AI 推荐流的并发隔离舱
+ * <p>
+ * 每个推荐流会占用一个异步请求与一条上游连接长达数分钟，这里限制同时进行的推荐流数量：
+ * 名额未满时直接进入；已满时最多 max-waiting 个请求在请求线程上等待 wait-timeout-ms，
+ * 等待队列已满或等待超时立即拒绝，由接口返回 503。推荐请求因此不会占满选课接口所需的线程与内存。
+ * 名额在推荐流结束（完成、出错、客户端断开或超时）时归还，同一名额只归还一次。
+ */
+@Component
+@RequiredArgsConstructor
+public class RecommendationBulkhead {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${recommendation.bulkhead.max-concurrent:20}")
+    private int maxConcurrent;
+
+    @Value("${recommendation.bulkhead.max-waiting:10}")
+    private int maxWaiting;
+
+    @Value("${recommendation.bulkhead.wait-timeout-ms:2000}")
+    private long waitTimeoutMs;
+
+    @Getter
+    @Value("${recommendation.bulkhead.retry-after-seconds:10}")
+    private int retryAfterSeconds;
+
+    private Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private Counter rejectedQueueFull;
+    private Counter rejectedTimeout;
+    private Timer waitTimer;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrent, true);
+        Gauge.builder("recommendation.streams.active", this, bulkhead -> maxConcurrent - bulkhead.permits.availablePermits())
+                .description("正在进行的 AI 推荐流数量")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.streams.waiting", waiting, AtomicInteger::get)
+                .description("等待推荐名额的请求数")
+                .register(meterRegistry);
+        rejectedQueueFull = rejectedCounter("queue_full");
+        rejectedTimeout = rejectedCounter("timeout");
+        waitTimer = Timer.builder("recommendation.streams.wait")
+                .description("推荐请求等待名额的时间")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 申请一个推荐流名额
+     *
+     * @return 名额；繁忙（等待队列已满或等待超时）时返回null
+     */
+    public Permit tryAcquire() {
+        if (permits.tryAcquire()) {
+            return new Permit();
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            rejectedQueueFull.increment();
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            if (permits.tryAcquire(waitTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return new Permit();
+            }
+            rejectedTimeout.increment();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedTimeout.increment();
+            return null;
+        } finally {
+            waiting.decrementAndGet();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Counter rejectedCounter(String reason) {
+        return Counter.builder("recommendation.streams.rejected")
+                .description("因繁忙被拒绝的推荐请求数")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 已占用的名额，推荐流结束时归还
+     */
+    public final class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.newcourseselectionsystem.application.request;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * 批量选课（购物车）请求
+ */
+@Data
+public class CartEnrollmentRequest implements StudentScoped {
+
+    /**
+     * 学生ID
+     */
+    @NotNull(message = "学生ID不能为空")
+    private Long studentId;
+
+    /**
+     * 选课轮次ID
+     */
+    @NotNull(message = "选课轮次ID不能为空")
+    private Long batchId;
+
+    /**
+     * 课程ID列表，重复的课程只处理一次
+     */
+    @NotEmpty(message = "课程列表不能为空")
+    @Size(max = 30, message = "一次最多提交30门课程")
+    private List<Long> courseIds;
+
+    /**
+     * 是否全部成功才提交：true 时任一课程失败则全部不选；默认 false，能选的课程尽量选上
+     */
+    private Boolean allOrNothing;
+}
@@ -8,7 +8,7 @@ import javax.validation.Valid;
  * 合并后的课程查询请求：包含课程字段条件 + 可选的节次条件
  */
 @Data
-public class CombinedCourseQueryRequest {
+public class CombinedCourseQueryRequest implements StudentScoped {
 
     /**
      * 课程字段过滤条件（全部可选）
@@ -25,4 +25,9 @@ public class CombinedCourseQueryRequest {
      * 学生ID（可选）。如果提供，将在返回的课程中标记该学生是否已选该课程。
      */
     private Long studentId;
+
+    /**
+     * 是否排除与该学生已选课程时间冲突的课程（可选，需同时提供 studentId）
+     */
+    private Boolean excludeConflicting;
 }
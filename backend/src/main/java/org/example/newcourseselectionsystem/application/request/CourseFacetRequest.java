@@ -0,0 +1,23 @@
+package org.example.newcourseselectionsystem.application.request;
+
+import lombok.Data;
+
+import javax.validation.constraints.Pattern;
+import java.util.List;
+
+/**
+ * 课程分面统计请求：在同一筛选条件下一次返回多个属性的取值及各自的课程数
+ */
+@Data
+public class CourseFacetRequest {
+
+    /**
+     * 课程查询条件（可选，为空表示全部课程）
+     */
+    private CourseQueryRequest condition;
+
+    /**
+     * 需要统计的分面：college、campus、type、credits、classroom、weekday；为空时统计全部
+     */
+    private List<@Pattern(regexp = "college|campus|type|credits|classroom|weekday", message = "不支持的分面名称") String> facets;
+}
@@ -0,0 +1,41 @@
+package org.example.newcourseselectionsystem.application.request;
+
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Pattern;
+
+/**
+ * 课程分页参数（游标分页）
+ */
+@Data
+public class CoursePageRequest {
+
+    @Min(value = 1, message = "每页条数最小为1")
+    @Max(value = 200, message = "每页条数最大为200")
+    private Integer pageSize = 20;
+
+    /**
+     * 上一页返回的 nextPageToken，首页不传
+     */
+    private String pageToken;
+
+    /**
+     * 排序字段：courseId、credits、remainingSeats（剩余名额）、relevance（课程名关键字相关度）；
+     * 不传时有课程名关键字按相关度，否则按课程ID
+     */
+    @Pattern(regexp = "courseId|credits|remainingSeats|relevance", message = "不支持的排序字段")
+    private String sortBy;
+
+    /**
+     * 排序方向：asc（默认）或 desc
+     */
+    @Pattern(regexp = "(?i)asc|desc", message = "排序方向只能为 asc 或 desc")
+    private String direction;
+
+    /**
+     * 是否返回匹配总数
+     */
+    private Boolean includeTotal;
+}
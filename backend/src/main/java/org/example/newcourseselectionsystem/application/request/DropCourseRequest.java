@@ -3,12 +3,13 @@ package org.example.newcourseselectionsystem.application.request;
 import lombok.Data;
 
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 
 /**
  * 退课请求
  */
 @Data
-public class DropCourseRequest {
+public class DropCourseRequest implements StudentScoped {
 
     /**
      * 学生ID
@@ -21,5 +22,10 @@ public class DropCourseRequest {
      */
     @NotNull(message = "课程ID不能为空")
     private Long courseId;
-}
 
+    /**
+     * 请求键（可选）：客户端为每次操作生成，超时重试时沿用，重复请求直接返回首次的结果
+     */
+    @Size(max = 64, message = "请求键最长64个字符")
+    private String requestKey;
+}
@@ -3,12 +3,13 @@ package org.example.newcourseselectionsystem.application.request;
 import lombok.Data;
 
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 
 /**
  * 选课请求
  */
 @Data
-public class EnrollmentRequest {
+public class EnrollmentRequest implements StudentScoped {
 
     /**
      * 学生ID
@@ -27,4 +28,10 @@ public class EnrollmentRequest {
      */
     @NotNull(message = "选课轮次ID不能为空")
     private Long batchId;
+
+    /**
+     * 请求键（可选）：客户端为每次操作生成，超时重试时沿用，重复请求直接返回首次的结果
+     */
+    @Size(max = 64, message = "请求键最长64个字符")
+    private String requestKey;
 }
@@ -4,6 +4,7 @@ import lombok.Data;
 
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.Pattern;
 import java.util.List;
 
 /**
@@ -24,4 +25,10 @@ public class SessionQueryRequest {
     @Min(value = 1, message = "节次最小为1")
     @Max(value = 12, message = "节次最大为12")
     private Integer endPeriod;
+
+    /**
+     * 节次与查询区间的关系：covers（默认，节次覆盖查询区间）、overlaps（有交集）、inside（节次落在查询区间内）
+     */
+    @Pattern(regexp = "(?i)covers|overlaps|inside", message = "节次匹配方式只能为 covers、overlaps 或 inside")
+    private String matchMode;
 }
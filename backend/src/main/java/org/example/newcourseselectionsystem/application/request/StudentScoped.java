@@ -0,0 +1,9 @@
+package org.example.newcourseselectionsystem.application.request;
+
+/**
+ * 携带学生ID的请求体，按学生限流时据此取限流键
+ */
+public interface StudentScoped {
+
+    Long getStudentId();
+}
@@ -0,0 +1,35 @@
+package org.example.newcourseselectionsystem.application.request;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * 换课请求：退选一门课程的同时选上另一门课程
+ */
+@Data
+public class SwapCourseRequest implements StudentScoped {
+
+    /**
+     * 学生ID
+     */
+    @NotNull(message = "学生ID不能为空")
+    private Long studentId;
+
+    /**
+     * 要退选的课程ID
+     */
+    @NotNull(message = "退选课程ID不能为空")
+    private Long dropCourseId;
+
+    /**
+     * 要选上的课程ID
+     */
+    @NotNull(message = "新选课程ID不能为空")
+    private Long enrollCourseId;
+
+    /**
+     * 选课轮次ID
+     */
+    private Long batchId;
+}
@@ -0,0 +1,30 @@
+package org.example.newcourseselectionsystem.application.service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 课程时间冲突查询（基于预计算的全目录冲突图）
+ */
+public interface CourseConflictService {
+
+    /**
+     * 两门课程是否时间冲突
+     */
+    boolean conflicts(Long courseId, Long otherCourseId);
+
+    /**
+     * 与指定课程时间冲突的全部课程ID
+     */
+    List<Long> listConflictingCourseIds(Long courseId);
+
+    /**
+     * 指定课程与给定课程集合中第一门冲突的课程，无冲突返回null
+     */
+    Long findFirstConflict(Long courseId, Collection<Long> otherCourseIds);
+
+    /**
+     * 按当前课程目录重建冲突图
+     */
+    void rebuild();
+}
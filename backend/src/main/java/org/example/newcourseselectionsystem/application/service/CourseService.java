@@ -1,12 +1,17 @@
 package org.example.newcourseselectionsystem.application.service;
 
+import org.example.newcourseselectionsystem.application.dto.CoursePageDTO;
 import org.example.newcourseselectionsystem.application.dto.CourseWithSessionsDTO;
+import org.example.newcourseselectionsystem.application.dto.FacetValueDTO;
 import org.example.newcourseselectionsystem.application.request.CourseAttributeQueryRequest;
+import org.example.newcourseselectionsystem.application.request.CourseFacetRequest;
+import org.example.newcourseselectionsystem.application.request.CoursePageRequest;
 import org.example.newcourseselectionsystem.application.request.CourseQueryRequest;
 import org.example.newcourseselectionsystem.application.request.SessionQueryRequest;
 import org.example.newcourseselectionsystem.application.request.CombinedCourseQueryRequest;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 课程相关业务
@@ -18,16 +23,31 @@ public interface CourseService {
      */
     List<CourseWithSessionsDTO> searchCourses(CombinedCourseQueryRequest request);
 
+    /**
+     * 合并查询的分页版本（游标分页），已选课程在前的顺序跨页保持
+     */
+    CoursePageDTO searchCourses(CombinedCourseQueryRequest request, CoursePageRequest page);
+
     /**
      * 根据课程表的全部字段进行组合过滤，并返回附带节次的课程信息
      */
     List<CourseWithSessionsDTO> listCoursesByCondition(CourseQueryRequest request);
 
+    /**
+     * 课程字段组合过滤的分页版本（游标分页）
+     */
+    CoursePageDTO listCoursesByCondition(CourseQueryRequest request, CoursePageRequest page);
+
     /**
      * 根据节次条件找到符合条件的所有课程，返回携带节次信息的完整课程信息
      */
     List<CourseWithSessionsDTO> listCoursesBySession(SessionQueryRequest request);
 
+    /**
+     * 节次倒查课程的分页版本（游标分页）
+     */
+    CoursePageDTO listCoursesBySession(SessionQueryRequest request, CoursePageRequest page);
+
     /**
      * 根据条件筛选课程，然后返回指定属性的所有唯一值集合
      * 
@@ -36,6 +56,14 @@ public interface CourseService {
      */
     List<Object> getAttributeValues(CourseAttributeQueryRequest request);
 
+    /**
+     * 分面统计：在同一筛选条件下一次返回多个属性的取值及各取值匹配的课程数
+     *
+     * @param request 筛选条件与分面名称
+     * @return 分面名称 → 按展示顺序排列的取值及计数
+     */
+    Map<String, List<FacetValueDTO>> getFacets(CourseFacetRequest request);
+
     /**
      * 根据课程ID列表批量查询课程并携带节次，封装为DTO
      */
@@ -45,4 +73,9 @@ public interface CourseService {
      * 根据课程ID列表批量查询课程并携带节次，封装为DTO（支持学生ID判断已选）
      */
     List<CourseWithSessionsDTO> listCoursesByIds(List<Long> courseIds, Long studentId);
+
+    /**
+     * 按课程ID列表查询的分页版本（游标分页）
+     */
+    CoursePageDTO listCoursesByIds(List<Long> courseIds, Long studentId, CoursePageRequest page);
 }
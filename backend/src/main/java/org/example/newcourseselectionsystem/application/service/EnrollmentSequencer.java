@@ -0,0 +1,20 @@
+package org.example.newcourseselectionsystem.application.service;
+
+import org.example.newcourseselectionsystem.application.dto.EnrollmentResponse;
+
+import java.util.function.Supplier;
+
+/**
+ * 按课程分片串行执行选课变更（开启 enrollment.sequencer.enabled 时存在）
+ */
+public interface EnrollmentSequencer {
+
+    /**
+     * 在课程所在分片上单独执行一个自带事务的处理，处理中对选课服务的调用加入该事务
+     *
+     * @param courseId 课程ID
+     * @param action   自行开启事务的处理
+     * @return 处理结果；分片繁忙或等待超时时返回失败响应
+     */
+    EnrollmentResponse executeAlone(Long courseId, Supplier<EnrollmentResponse> action);
+}
@@ -1,9 +1,13 @@
 package org.example.newcourseselectionsystem.application.service;
 
+import org.example.newcourseselectionsystem.application.dto.CartEnrollmentResponse;
 import org.example.newcourseselectionsystem.application.dto.CourseWithSessionsDTO;
 import org.example.newcourseselectionsystem.application.dto.EnrollmentResponse;
+import org.example.newcourseselectionsystem.application.dto.WaitlistPositionDTO;
+import org.example.newcourseselectionsystem.application.request.CartEnrollmentRequest;
 import org.example.newcourseselectionsystem.application.request.DropCourseRequest;
 import org.example.newcourseselectionsystem.application.request.EnrollmentRequest;
+import org.example.newcourseselectionsystem.application.request.SwapCourseRequest;
 
 import java.util.List;
 
@@ -20,6 +24,31 @@ public interface EnrollmentService {
      */
     EnrollmentResponse enrollCourse(EnrollmentRequest request);
 
+    /**
+     * 同一课程、同一轮次的一组选课请求（异步选课队列按课程合并后提交）：课程行只锁一次，
+     * 已选人数一次调整，选课记录一次批量写入
+     *
+     * @param requests 课程ID与轮次ID相同的选课请求，按排队顺序分配座位
+     * @return 与请求一一对应的选课响应
+     */
+    List<EnrollmentResponse> enrollCourseGroup(List<EnrollmentRequest> requests);
+
+    /**
+     * 批量选课（购物车）：同一轮次的多门课程一次校验、一次占座、一次批量写入
+     *
+     * @param request 批量选课请求
+     * @return 按课程列出的选课结果
+     */
+    CartEnrollmentResponse enrollCart(CartEnrollmentRequest request);
+
+    /**
+     * 换课：在同一事务内选上新课程并退选原课程，新课程没有座位时原课程保持不变
+     *
+     * @param request 换课请求
+     * @return 换课响应（enrollmentId 为新课程的选课记录ID）
+     */
+    EnrollmentResponse swapCourse(SwapCourseRequest request);
+
     /**
      * 学生退课
      *
@@ -35,5 +64,29 @@ public interface EnrollmentService {
      * @return 学生已选的课程列表（包含节次信息）
      */
     List<CourseWithSessionsDTO> getStudentCourses(Long studentId);
-}
 
+    /**
+     * 加入课程候补队列（仅限强制容量的轮次且课程已满）
+     *
+     * @param request 选课请求
+     * @return 候补结果
+     */
+    EnrollmentResponse joinWaitlist(EnrollmentRequest request);
+
+    /**
+     * 退出课程候补队列
+     *
+     * @param request 学生与课程
+     * @return 退出结果
+     */
+    EnrollmentResponse leaveWaitlist(DropCourseRequest request);
+
+    /**
+     * 查询学生在课程候补队列中的名次（只读内存）
+     *
+     * @param studentId 学生ID
+     * @param courseId  课程ID
+     * @return 候补名次
+     */
+    WaitlistPositionDTO getWaitlistPosition(Long studentId, Long courseId);
+}
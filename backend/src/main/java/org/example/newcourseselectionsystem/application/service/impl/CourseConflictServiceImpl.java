@@ -0,0 +1,107 @@
+package org.example.newcourseselectionsystem.application.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newcourseselectionsystem.application.catalog.CatalogChangedEvent;
+import org.example.newcourseselectionsystem.application.catalog.CatalogSnapshot;
+import org.example.newcourseselectionsystem.application.catalog.CourseCatalog;
+import org.example.newcourseselectionsystem.application.catalog.CourseConflictGraph;
+import org.example.newcourseselectionsystem.application.catalog.CourseSchedule;
+import org.example.newcourseselectionsystem.application.catalog.CourseScheduleCache;
+import org.example.newcourseselectionsystem.application.service.CourseConflictService;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 课程时间冲突查询实现
+ * <p>
+ * 冲突图在目录版本变化时整体重建并原子替换；冲突图之后新增、尚未收录的课程
+ * 回退为课表位图直接求交，结果与冲突图一致。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CourseConflictServiceImpl implements CourseConflictService {
+
+    private final CourseScheduleCache courseScheduleCache;
+    private final CourseCatalog courseCatalog;
+
+    private volatile CourseConflictGraph graph = CourseConflictGraph.EMPTY;
+    private volatile Collection<CourseSchedule> graphSchedules = Collections.emptyList();
+
+    @Override
+    public boolean conflicts(Long courseId, Long otherCourseId) {
+        CourseConflictGraph current = graph;
+        if (current.contains(courseId) && current.contains(otherCourseId)) {
+            return current.conflicts(courseId, otherCourseId);
+        }
+        CourseSchedule a = courseScheduleCache.get(courseId);
+        CourseSchedule b = courseScheduleCache.get(otherCourseId);
+        return a != null && b != null && !courseId.equals(otherCourseId) && a.getBits().intersects(b.getBits());
+    }
+
+    @Override
+    public List<Long> listConflictingCourseIds(Long courseId) {
+        CourseConflictGraph current = graph;
+        if (current.contains(courseId)) {
+            return current.conflictsOf(courseId);
+        }
+        CourseSchedule target = courseScheduleCache.get(courseId);
+        List<Long> result = new ArrayList<>();
+        if (target == null || target.getBits().isEmpty()) {
+            return result;
+        }
+        for (CourseSchedule schedule : graphSchedules) {
+            if (!schedule.getCourseId().equals(courseId) && schedule.getBits().intersects(target.getBits())) {
+                result.add(schedule.getCourseId());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Long findFirstConflict(Long courseId, Collection<Long> otherCourseIds) {
+        CourseConflictGraph current = graph;
+        if (current.contains(courseId)) {
+            List<Long> uncovered = new ArrayList<>();
+            for (Long other : otherCourseIds) {
+                if (current.contains(other)) {
+                    if (current.conflicts(courseId, other)) {
+                        return other;
+                    }
+                } else {
+                    uncovered.add(other);
+                }
+            }
+            otherCourseIds = uncovered;
+        }
+        for (Long other : otherCourseIds) {
+            if (conflicts(courseId, other)) {
+                return other;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        Collection<CourseSchedule> schedules = snapshot.getSchedules();
+        CourseConflictGraph built = CourseConflictGraph.build(snapshot.getVersion(), schedules);
+        graphSchedules = schedules;
+        graph = built;
+        log.info("课程冲突图已重建：目录版本 {}，课程 {} 门，冲突对 {} 个，耗时 {} ms",
+                built.getVersion(), built.getCourseCount(), built.getEdgeCount(), System.currentTimeMillis() - start);
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        rebuild();
+    }
+}
@@ -1,33 +1,71 @@
 package org.example.newcourseselectionsystem.application.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newcourseselectionsystem.application.catalog.CatalogPromptPrefix;
+import org.example.newcourseselectionsystem.application.catalog.CatalogSnapshot;
+import org.example.newcourseselectionsystem.application.catalog.CourseCatalog;
+import org.example.newcourseselectionsystem.application.catalog.CourseRetriever;
+import org.example.newcourseselectionsystem.application.catalog.EnrolledCountOverlay;
 import org.example.newcourseselectionsystem.application.dto.CourseWithSessionsDTO;
+import org.example.newcourseselectionsystem.application.dto.TypeCreditDeficitDTO;
+import org.example.newcourseselectionsystem.application.enrollment.StudentTimetableCache;
 import org.example.newcourseselectionsystem.application.request.CourseRecommendationRequest;
+import org.example.newcourseselectionsystem.application.request.GraduationQueryRequest;
 import org.example.newcourseselectionsystem.application.service.CourseRecommendationService;
 import org.example.newcourseselectionsystem.application.service.EnrollmentService;
+import org.example.newcourseselectionsystem.application.service.GraduationService;
 import org.example.newcourseselectionsystem.domain.entity.Course;
 import org.example.newcourseselectionsystem.domain.entity.Student;
 import org.example.newcourseselectionsystem.infrastructure.client.DeepSeekApiClient;
-import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
 import org.example.newcourseselectionsystem.infrastructure.mapper.StudentMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import reactor.core.publisher.Flux;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 课程推荐服务实现
+ * <p>
+ * 默认不再把全部课程写进提示：先在本地按请求文本、学院、各类型欠缺学分与课表检索候选课程，
+ * 只把排名靠前、且在 token 预算内的候选交给模型。
+ * 与学生无关的系统提示、全量课程列表取自 {@link CatalogPromptPrefix} 的缓存并排在最前，
+ * 每次请求只拼接学生信息、已选课程、已选人数与请求文本。
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CourseRecommendationServiceImpl implements CourseRecommendationService {
 
+    /**
+     * 全量课程模式下，已选人数达到容量该比例的课程在学生消息中列出名额情况
+     */
+    private static final double TIGHT_SEAT_RATIO = 0.9;
+
     private final StudentMapper studentMapper;
-    private final CourseMapper courseMapper;
     private final EnrollmentService enrollmentService;
     private final DeepSeekApiClient deepSeekApiClient;
+    private final CourseRetriever courseRetriever;
+    private final GraduationService graduationService;
+    private final StudentTimetableCache studentTimetableCache;
+    private final EnrolledCountOverlay enrolledCountOverlay;
+    private final CourseCatalog courseCatalog;
+    private final CatalogPromptPrefix catalogPromptPrefix;
+
+    @Value("${recommendation.retrieval.enabled:true}")
+    private boolean retrievalEnabled;
+
+    @Value("${recommendation.retrieval.top-k:40}")
+    private int topK;
+
+    @Value("${recommendation.retrieval.token-budget:4000}")
+    private int tokenBudget;
 
     @Override
     public Flux<String> getRecommendationStream(CourseRecommendationRequest request) {
@@ -41,23 +79,11 @@ public class CourseRecommendationServiceImpl implements CourseRecommendationServ
                 return Flux.just("错误: 学生不存在");
             }
 
-            // 2. 获取全量课程
-            List<Course> allCourses = courseMapper.selectList(new LambdaQueryWrapper<>());
-
-            // 3. 获取学生已选课程
+            // 2. 获取学生已选课程
             List<CourseWithSessionsDTO> enrolledCourses = enrollmentService.getStudentCourses(studentId);
 
-            // 4. 构建背景信息字符串
-            String backgroundInfo = buildBackgroundInfo(student, allCourses, enrolledCourses);
-
-            // 5. 构建消息列表
-            List<DeepSeekApiClient.Message> messages = new java.util.ArrayList<>();
-            messages.add(new DeepSeekApiClient.Message("system",
-                    "你是一个专业的课程推荐助手，能够根据学生的需求和背景信息推荐合适的课程。"));
-            messages.add(new DeepSeekApiClient.Message("user", backgroundInfo + "\n\n" + userPrompt));
-
-            // 6. 调用 DeepSeek API 流式接口
-            return deepSeekApiClient.chatStream(messages);
+            // 3. 构建消息列表
+            return deepSeekApiClient.chatStream(buildMessages(student, enrolledCourses, userPrompt));
 
         } catch (Exception e) {
             return Flux.just("错误: " + e.getMessage());
@@ -65,12 +91,45 @@ public class CourseRecommendationServiceImpl implements CourseRecommendationServ
     }
 
     /**
-     * 构建背景信息字符串
+     * 消息顺序：缓存的系统提示 →（全量模式）缓存的课程列表 → 本次学生的背景信息与请求
      */
-    private String buildBackgroundInfo(Student student, List<Course> allCourses,
-            List<CourseWithSessionsDTO> enrolledCourses) {
-        StringBuilder sb = new StringBuilder();
+    private List<Object> buildMessages(Student student, List<CourseWithSessionsDTO> enrolledCourses, String userPrompt) {
+        List<Object> messages = new ArrayList<>(3);
+        messages.add(catalogPromptPrefix.systemMessage());
+        StringBuilder sb = new StringBuilder(retrievalEnabled ? tokenBudget * 2 : 1024);
+        appendStudentInfo(sb, student, enrolledCourses);
+        if (retrievalEnabled) {
+            appendCandidates(sb, retrieveCandidates(student, userPrompt));
+        } else {
+            messages.add(catalogPromptPrefix.catalogMessage());
+            appendTightSeats(sb);
+        }
+        sb.append("\n").append(userPrompt);
+        messages.add(new DeepSeekApiClient.Message("user", sb.toString()));
+        return messages;
+    }
+
+    /**
+     * 本地检索候选课程：排除已选课程与和已选课程时间冲突的课程，按相关度取前 top-k 门
+     */
+    private List<Course> retrieveCandidates(Student student, String userPrompt) {
+        GraduationQueryRequest query = new GraduationQueryRequest();
+        query.setStudentId(student.getStudentId());
+        Map<String, Double> typeNeeds = new HashMap<>();
+        for (TypeCreditDeficitDTO deficit : graduationService.getStatus(query).getDeficits()) {
+            if (deficit.getRequiredCredits() > 0) {
+                typeNeeds.put(deficit.getType(), (double) deficit.getRemainingCredits() / deficit.getRequiredCredits());
+            }
+        }
+        StudentTimetableCache.StudentTimetable timetable = studentTimetableCache.get(student.getStudentId());
+        Set<Long> enrolledIds = timetable.getCourseIds();
+        return courseRetriever.retrieve(userPrompt, student.getCollege(), typeNeeds,
+                schedule -> enrolledIds.contains(schedule.getCourseId())
+                        || timetable.findConflict(schedule.getCourseId(), schedule.getBits()) != null,
+                topK);
+    }
 
+    private void appendStudentInfo(StringBuilder sb, Student student, List<CourseWithSessionsDTO> enrolledCourses) {
         // 学生基本信息
         sb.append("学生基本信息：\n");
         sb.append("姓名：").append(student.getStudentName()).append("\n");
@@ -93,24 +152,48 @@ public class CourseRecommendationServiceImpl implements CourseRecommendationServ
             }
         }
         sb.append("\n");
+    }
 
-        // 全量课程信息
-        sb.append("所有可选课程列表：\n");
-        if (CollectionUtils.isEmpty(allCourses)) {
+    /**
+     * 候选课程：缓存的静态描述行 + 当前已选人数，总量不超过 token 预算
+     */
+    private void appendCandidates(StringBuilder sb, List<Course> candidates) {
+        sb.append("候选课程列表（已按与需求的相关度排序，已排除已选和时间冲突的课程）：\n");
+        if (CollectionUtils.isEmpty(candidates)) {
             sb.append("暂无可选课程\n");
-        } else {
-            for (Course course : allCourses) {
-                sb.append("- 课程ID：").append(course.getCourseId())
-                        .append("，课程名称：").append(course.getCourseName())
-                        .append("，学分：").append(course.getCredits())
-                        .append("，描述：").append(course.getDescription() != null ? course.getDescription() : "无")
-                        .append("，学院：").append(course.getCollege())
-                        .append("，容量：").append(course.getCapacity())
-                        .append("，已选人数：").append(course.getEnrolledCount() != null ? course.getEnrolledCount() : 0)
-                        .append("\n");
+            return;
+        }
+        int used = 0;
+        int written = 0;
+        for (Course course : candidates) {
+            CatalogPromptPrefix.Line line = catalogPromptPrefix.line(course);
+            if (written > 0 && used + line.getTokens() > tokenBudget) {
+                break;
             }
+            sb.append(line.getText()).append("，已选人数：").append(enrolledCountOverlay.get(course)).append("\n");
+            used += line.getTokens();
+            written++;
         }
+        log.debug("推荐提示候选课程 {} / {} 门，约 {} tokens", written, candidates.size(), used);
+    }
 
-        return sb.toString();
+    /**
+     * 全量模式下课程列表来自缓存，不含已选人数；这里只列出名额已满或将满的课程
+     */
+    private void appendTightSeats(StringBuilder sb) {
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        sb.append("名额情况（以下课程已满或将满，括号内为已选人数/容量，其余课程均有空余名额）：\n");
+        int tight = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            Course course = snapshot.courseAt(i);
+            Integer capacity = course.getCapacity();
+            int enrolled = enrolledCountOverlay.get(course);
+            if (capacity != null && enrolled >= capacity * TIGHT_SEAT_RATIO) {
+                sb.append(tight == 0 ? "" : "，").append(course.getCourseId())
+                        .append("(").append(enrolled).append("/").append(capacity).append(")");
+                tight++;
+            }
+        }
+        sb.append(tight == 0 ? "无\n" : "\n");
     }
 }
@@ -1,133 +1,84 @@
 package org.example.newcourseselectionsystem.application.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.catalog.CatalogSnapshot;
+import org.example.newcourseselectionsystem.application.catalog.CourseAttribute;
+import org.example.newcourseselectionsystem.application.catalog.CourseCatalog;
+import org.example.newcourseselectionsystem.application.catalog.EnrolledCountOverlay;
+import org.example.newcourseselectionsystem.application.catalog.FacetCache;
+import org.example.newcourseselectionsystem.application.dto.CoursePageDTO;
 import org.example.newcourseselectionsystem.application.dto.CourseSessionDTO;
 import org.example.newcourseselectionsystem.application.dto.CourseWithSessionsDTO;
+import org.example.newcourseselectionsystem.application.dto.FacetValueDTO;
+import org.example.newcourseselectionsystem.application.enrollment.StudentEnrollmentCache;
 import org.example.newcourseselectionsystem.application.request.CourseAttributeQueryRequest;
+import org.example.newcourseselectionsystem.application.request.CourseFacetRequest;
+import org.example.newcourseselectionsystem.application.request.CoursePageRequest;
 import org.example.newcourseselectionsystem.application.request.CourseQueryRequest;
 import org.example.newcourseselectionsystem.application.request.SessionQueryRequest;
 import org.example.newcourseselectionsystem.application.request.CombinedCourseQueryRequest;
+import org.example.newcourseselectionsystem.application.service.CourseConflictService;
 import org.example.newcourseselectionsystem.application.service.CourseService;
+import org.example.newcourseselectionsystem.application.util.PageCursor;
 import org.example.newcourseselectionsystem.domain.entity.Course;
 import org.example.newcourseselectionsystem.domain.entity.CourseSession;
-import org.example.newcourseselectionsystem.domain.entity.Enrollment;
-import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
-import org.example.newcourseselectionsystem.infrastructure.mapper.CourseSessionMapper;
-import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
 import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
-import java.lang.reflect.Method;
 import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
 import java.util.stream.Collectors;
 
 /**
  * 课程查询实现（更新为按instructorName过滤）
+ * <p>
+ * 课程检索在内存目录快照上完成，不再访问 courses / course_sessions 表；已选人数取自覆盖层。
  */
 @Service
 @RequiredArgsConstructor
 public class CourseServiceImpl implements CourseService {
 
-    private final CourseMapper courseMapper;
-    private final CourseSessionMapper courseSessionMapper;
-    private final EnrollmentMapper enrollmentMapper;
+    private final StudentEnrollmentCache studentEnrollmentCache;
+    private final CourseCatalog courseCatalog;
+    private final EnrolledCountOverlay enrolledCountOverlay;
+    private final FacetCache facetCache;
+    private final CourseConflictService courseConflictService;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
 
     @Override
     public List<CourseWithSessionsDTO> searchCourses(CombinedCourseQueryRequest request) {
         if (request == null) {
             return Collections.emptyList();
         }
-        CourseQueryRequest courseCond = request.getCourseCondition();
-        SessionQueryRequest sessionCond = request.getSessionCondition();
-        Long studentId = request.getStudentId();
-
-        List<Long> candidateCourseIds = null;
-        List<Course> candidateCourses = Collections.emptyList();
-
-        // 1) 先处理课程字段条件（如果有）
-        if (courseCond != null) {
-            LambdaQueryWrapper<Course> courseWrapper = buildCourseWrapper(courseCond);
-            candidateCourses = courseMapper.selectList(courseWrapper);
-            if (CollectionUtils.isEmpty(candidateCourses)) {
-                return Collections.emptyList();
-            }
-            candidateCourseIds = candidateCourses.stream().map(Course::getCourseId).collect(Collectors.toList());
-        }
-
-        // 2) 再处理节次条件（如果有）并与课程候选集合求交集或并集
-        if (sessionCond != null) {
-            LambdaQueryWrapper<CourseSession> sessionWrapper = new LambdaQueryWrapper<>();
-            if (sessionCond.getWeekdays() != null && !sessionCond.getWeekdays().isEmpty()) {
-                sessionWrapper.in(CourseSession::getWeekday, sessionCond.getWeekdays());
-            }
-            // 希望课程节次区间覆盖查询区间：[start,end] 被课程区间包含
-            if (sessionCond.getStartPeriod() != null) {
-                sessionWrapper.le(CourseSession::getStartPeriod, sessionCond.getStartPeriod());
-            }
-            if (sessionCond.getEndPeriod() != null) {
-                sessionWrapper.ge(CourseSession::getEndPeriod, sessionCond.getEndPeriod());
-            }
-            List<CourseSession> matchedSessions = courseSessionMapper.selectList(sessionWrapper);
-            if (CollectionUtils.isEmpty(matchedSessions)) {
-                return Collections.emptyList();
-            }
-            List<Long> matchedIds = matchedSessions.stream().map(CourseSession::getCourseId).distinct().collect(Collectors.toList());
-
-            if (candidateCourseIds == null) {
-                // 只有节次条件：候选ID = 节次匹配ID
-                candidateCourseIds = matchedIds;
-                candidateCourses = courseMapper.selectList(new LambdaQueryWrapper<Course>().in(Course::getCourseId, candidateCourseIds));
-            } else {
-                // 两者交集
-                candidateCourseIds.retainAll(matchedIds);
-                if (CollectionUtils.isEmpty(candidateCourseIds)) {
-                    return Collections.emptyList();
-                }
-                candidateCourses = courseMapper.selectList(new LambdaQueryWrapper<Course>().in(Course::getCourseId, candidateCourseIds));
-            }
-        }
-
-        // 如果两类条件都为空，则返回全部课程
-        if (courseCond == null && sessionCond == null) {
-            candidateCourses = courseMapper.selectList(null);
-            candidateCourseIds = candidateCourses.stream().map(Course::getCourseId).collect(Collectors.toList());
+        SearchMatch match = matchCombined(request);
+        List<CourseWithSessionsDTO> result = new ArrayList<>(match.courses.cardinality());
+        for (int i : match.snapshot.order(match.courses, request.getCourseCondition())) {
+            result.add(match.assemble(i));
         }
+        // 新增排序逻辑：已选课程(true)排在前面，未选(false/null)排在后面（稳定排序，组内保持相关度/课程ID顺序）
+        result.sort((o1, o2) -> {
+            boolean b1 = Boolean.TRUE.equals(o1.getIsEnrolled());
+            boolean b2 = Boolean.TRUE.equals(o2.getIsEnrolled());
+            // Boolean.compare(b2, b1) 实现降序排列 (true > false)
+            return Boolean.compare(b2, b1);
+        });
+        return result;
+    }
 
-        Map<Long, List<CourseSessionDTO>> sessionGroup = loadSessions(candidateCourseIds);
-
-        // 预先查询该学生已选的课程ID集合（仅当提供了studentId）
-        Set<Long> enrolledCourseIds = Collections.emptySet();
-        if (studentId != null) {
-            LambdaQueryWrapper<Enrollment> enrollmentWrapper = new LambdaQueryWrapper<>();
-            enrollmentWrapper.eq(Enrollment::getStudentId, studentId)
-                    .eq(Enrollment::getStatus, "已选");
-            List<Enrollment> enrollments = enrollmentMapper.selectList(enrollmentWrapper);
-            enrolledCourseIds = enrollments.stream().map(Enrollment::getCourseId).collect(Collectors.toSet());
+    @Override
+    public CoursePageDTO searchCourses(CombinedCourseQueryRequest request, CoursePageRequest page) {
+        if (request == null) {
+            return emptyPage(page);
         }
-
-        Set<Long> finalEnrolledCourseIds = enrolledCourseIds; // effectively final for lambda
-        return candidateCourses.stream()
-                .map(course -> {
-                    CourseWithSessionsDTO dto = assembleCourseDTO(course, sessionGroup.get(course.getCourseId()),
-                            course.getEnrolledCount() != null ? course.getEnrolledCount() : 0);
-                    if (studentId != null) {
-                        dto.setIsEnrolled(finalEnrolledCourseIds.contains(course.getCourseId()));
-                    } else {
-                        dto.setIsEnrolled(null);
-                    }
-                    return dto;
-                })
-                // 新增排序逻辑：已选课程(true)排在前面，未选(false/null)排在后面
-                .sorted((o1, o2) -> {
-                    boolean b1 = Boolean.TRUE.equals(o1.getIsEnrolled());
-                    boolean b2 = Boolean.TRUE.equals(o2.getIsEnrolled());
-                    // Boolean.compare(b2, b1) 实现降序排列 (true > false)
-                    return Boolean.compare(b2, b1);
-                })
-                .collect(Collectors.toList());
+        SearchMatch match = matchCombined(request);
+        CourseQueryRequest courseCond = request.getCourseCondition();
+        // 已选课程在前：作为排序键的第一分组，跨页保持
+        return paginate(match.snapshot, match.courses, page, courseCond != null ? courseCond.getCourseName() : null,
+                i -> match.isEnrolled(i) ? 0 : 1, match::assemble);
     }
 
     @Override
@@ -135,18 +86,18 @@ public class CourseServiceImpl implements CourseService {
         if (request == null) {
             return Collections.emptyList();
         }
-        // 动态拼接课程字段筛选条件（原直连逻辑）
-        LambdaQueryWrapper<Course> wrapper = buildCourseWrapper(request);
-        List<Course> courses = courseMapper.selectList(wrapper);
-        if (CollectionUtils.isEmpty(courses)) {
-            return Collections.emptyList();
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        return assembleCourseDTOs(snapshot, snapshot.order(snapshot.matchCourses(request), request));
+    }
+
+    @Override
+    public CoursePageDTO listCoursesByCondition(CourseQueryRequest request, CoursePageRequest page) {
+        if (request == null) {
+            return emptyPage(page);
         }
-        List<Long> courseIds = courses.stream().map(Course::getCourseId).collect(Collectors.toList());
-        Map<Long, List<CourseSessionDTO>> sessionGroup = loadSessions(courseIds);
-        return courses.stream()
-                .map(course -> assembleCourseDTO(course, sessionGroup.get(course.getCourseId()),
-                        course.getEnrolledCount() != null ? course.getEnrolledCount() : 0))
-                .collect(Collectors.toList());
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        return paginate(snapshot, snapshot.matchCourses(request), page, request.getCourseName(),
+                i -> 0, i -> assembleCourseDTO(snapshot, i));
     }
 
     @Override
@@ -154,28 +105,19 @@ public class CourseServiceImpl implements CourseService {
         if (request == null) {
             return Collections.emptyList();
         }
-        LambdaQueryWrapper<CourseSession> sessionWrapper = new LambdaQueryWrapper<>();
-        if (request.getWeekdays() != null && !request.getWeekdays().isEmpty()) {
-            sessionWrapper.in(CourseSession::getWeekday, request.getWeekdays());
-        }
         // 希望课程节次区间覆盖查询区间：[start,end] 被课程区间包含
-        if (request.getStartPeriod() != null) {
-            sessionWrapper.le(CourseSession::getStartPeriod, request.getStartPeriod());
-        }
-        if (request.getEndPeriod() != null) {
-            sessionWrapper.ge(CourseSession::getEndPeriod, request.getEndPeriod());
-        }
-        List<CourseSession> sessions = courseSessionMapper.selectList(sessionWrapper);
-        if (CollectionUtils.isEmpty(sessions)) {
-            return Collections.emptyList();
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        return assembleCourseDTOs(snapshot, snapshot.matchSessions(request).stream().toArray());
+    }
+
+    @Override
+    public CoursePageDTO listCoursesBySession(SessionQueryRequest request, CoursePageRequest page) {
+        if (request == null) {
+            return emptyPage(page);
         }
-        List<Long> courseIds = sessions.stream().map(CourseSession::getCourseId).distinct().collect(Collectors.toList());
-        List<Course> courses = courseMapper.selectList(new LambdaQueryWrapper<Course>().in(Course::getCourseId, courseIds));
-        Map<Long, List<CourseSessionDTO>> sessionGroup = loadSessions(courseIds);
-        return courses.stream()
-                .map(course -> assembleCourseDTO(course, sessionGroup.get(course.getCourseId()),
-                        course.getEnrolledCount() != null ? course.getEnrolledCount() : 0))
-                .collect(Collectors.toList());
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        return paginate(snapshot, snapshot.matchSessions(request), page, null,
+                i -> 0, i -> assembleCourseDTO(snapshot, i));
     }
 
     @Override
@@ -188,66 +130,132 @@ public class CourseServiceImpl implements CourseService {
         if (CollectionUtils.isEmpty(courseIds)) {
             return Collections.emptyList();
         }
-        List<Course> courses = courseMapper.selectList(new LambdaQueryWrapper<Course>().in(Course::getCourseId, courseIds));
-        if (CollectionUtils.isEmpty(courses)) {
-            return Collections.emptyList();
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        List<CourseWithSessionsDTO> result = assembleCourseDTOs(snapshot, snapshot.ofCourseIds(courseIds).stream().toArray());
+        if (!result.isEmpty()) {
+            markEnrolled(result, studentId);
         }
-        Map<Long, List<CourseSessionDTO>> sessionGroup = loadSessions(courseIds);
+        return result;
+    }
 
+    @Override
+    public CoursePageDTO listCoursesByIds(List<Long> courseIds, Long studentId, CoursePageRequest page) {
+        if (CollectionUtils.isEmpty(courseIds)) {
+            return emptyPage(page);
+        }
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        CoursePageDTO result = paginate(snapshot, snapshot.ofCourseIds(courseIds), page, null,
+                i -> 0, i -> assembleCourseDTO(snapshot, i));
+        if (!result.getItems().isEmpty()) {
+            markEnrolled(result.getItems(), studentId);
+        }
+        return result;
+    }
+
+    /**
+     * 按ID查询时标记学生选过的课程（不区分选课状态）
+     */
+    private void markEnrolled(List<CourseWithSessionsDTO> courses, Long studentId) {
+        if (studentId == null) {
+            return;
+        }
+        StudentEnrollmentCache.EnrollmentState state = studentEnrollmentCache.get(studentId);
+        for (CourseWithSessionsDTO dto : courses) {
+            if (state.containsAny(dto.getCourseId())) {
+                dto.setIsEnrolled(true);
+            }
+        }
+    }
+
+    /**
+     * 合并查询的匹配阶段：候选课程下标 + 学生已选课程，列表与分页共用
+     */
+    private SearchMatch matchCombined(CombinedCourseQueryRequest request) {
+        CourseQueryRequest courseCond = request.getCourseCondition();
+        SessionQueryRequest sessionCond = request.getSessionCondition();
+        Long studentId = request.getStudentId();
+
+        // 1) 课程字段条件与节次条件在目录快照上分别求出候选下标，两者取交集；都为空时即全部课程
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        BitSet matched = snapshot.matchCourses(courseCond);
+        if (sessionCond != null) {
+            matched.and(snapshot.matchSessions(sessionCond));
+        }
+
+        // 2) 预先查询该学生已选的课程ID集合（仅当提供了studentId）
         Set<Long> enrolledCourseIds = Collections.emptySet();
-        if (studentId != null) {
-            List<Enrollment> enrollments = enrollmentMapper.selectList(
-                    new LambdaQueryWrapper<Enrollment>().eq(Enrollment::getStudentId, studentId)
-            );
-            if (!CollectionUtils.isEmpty(enrollments)) {
-                enrolledCourseIds = enrollments.stream().map(Enrollment::getCourseId).collect(Collectors.toSet());
+        if (studentId != null && !matched.isEmpty()) {
+            enrolledCourseIds = studentEnrollmentCache.get(studentId).courseIdSet(StudentEnrollmentCache.ENROLLED);
+        }
+
+        // 3) 可选：借助预计算冲突图排除与已选课程冲突的未选课程
+        if (Boolean.TRUE.equals(request.getExcludeConflicting()) && !enrolledCourseIds.isEmpty()) {
+            for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+                Long courseId = snapshot.courseAt(i).getCourseId();
+                if (!enrolledCourseIds.contains(courseId)
+                        && courseConflictService.findFirstConflict(courseId, enrolledCourseIds) != null) {
+                    matched.clear(i);
+                }
             }
         }
-        Set<Long> finalEnrolledIds = enrolledCourseIds;
-
-        return courses.stream()
-                .map(course -> {
-                    CourseWithSessionsDTO dto = assembleCourseDTO(course, sessionGroup.get(course.getCourseId()),
-                            course.getEnrolledCount() != null ? course.getEnrolledCount() : 0);
-                    if (finalEnrolledIds.contains(course.getCourseId())) {
-                        dto.setIsEnrolled(true);
-                    }
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return new SearchMatch(snapshot, matched, studentId, enrolledCourseIds);
     }
 
-    private LambdaQueryWrapper<Course> buildCourseWrapper(CourseQueryRequest request) {
-        LambdaQueryWrapper<Course> wrapper = new LambdaQueryWrapper<>();
-        if (request == null) {
-            return wrapper;
+    /**
+     * 游标分页：为全部候选计算排序键，只对游标之后的部分排序，并且只组装当前页的DTO
+     *
+     * @param courseName 课程名关键字，用于相关度排序
+     * @param group      排序键的第一分组（如已选课程在前）
+     * @param assembler  按课程下标组装DTO
+     */
+    private CoursePageDTO paginate(CatalogSnapshot snapshot, BitSet matched, CoursePageRequest page, String courseName,
+            IntUnaryOperator group, IntFunction<CourseWithSessionsDTO> assembler) {
+        String sortBy = page.getSortBy() != null ? page.getSortBy()
+                : (StringUtils.hasText(courseName) ? "relevance" : "courseId");
+        boolean descending = "desc".equalsIgnoreCase(page.getDirection());
+        String sort = sortBy + ":" + (descending ? "desc" : "asc");
+        PageCursor after = PageCursor.decode(page.getPageToken(), sort);
+        int[] relevance = "relevance".equals(sortBy) && StringUtils.hasText(courseName)
+                ? snapshot.nameRelevance(matched, courseName) : null;
+
+        List<PageRow> rows = new ArrayList<>();
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            Course course = snapshot.courseAt(i);
+            long key = sortKey(sortBy, course, relevance != null ? relevance[i] : 0);
+            PageCursor cursor = new PageCursor(group.applyAsInt(i), descending ? -key : key, course.getCourseId());
+            if (after == null || cursor.compareTo(after) > 0) {
+                rows.add(new PageRow(i, cursor));
+            }
         }
-        wrapper.eq(request.getCourseId() != null, Course::getCourseId, request.getCourseId());
-        wrapper.like(StringUtils.hasText(request.getCourseName()), Course::getCourseName, request.getCourseName());
-        wrapper.eq(request.getCredits() != null, Course::getCredits, request.getCredits());
-        wrapper.like(StringUtils.hasText(request.getDescription()), Course::getDescription, request.getDescription());
-        wrapper.eq(StringUtils.hasText(request.getCollege()), Course::getCollege, request.getCollege());
-        // 更新为按instructorName过滤
-        wrapper.like(StringUtils.hasText(request.getInstructorName()), Course::getInstructorName, request.getInstructorName());
-        wrapper.eq(StringUtils.hasText(request.getCampus()), Course::getCampus, request.getCampus());
-        wrapper.eq(StringUtils.hasText(request.getClassroom()), Course::getClassroom, request.getClassroom());
-        wrapper.ge(request.getStartWeek() != null, Course::getStartWeek, request.getStartWeek());
-        wrapper.le(request.getEndWeek() != null, Course::getEndWeek, request.getEndWeek());
-        wrapper.eq(request.getCapacity() != null, Course::getCapacity, request.getCapacity());
-        wrapper.eq(StringUtils.hasText(request.getType()), Course::getType, request.getType()); // 新增筛选条件：按课程类型过滤
-        return wrapper;
+        rows.sort(Comparator.comparing(row -> row.cursor));
+
+        int pageSize = page.getPageSize() != null ? page.getPageSize() : DEFAULT_PAGE_SIZE;
+        List<CourseWithSessionsDTO> items = new ArrayList<>(Math.min(pageSize, rows.size()));
+        for (int k = 0; k < pageSize && k < rows.size(); k++) {
+            items.add(assembler.apply(rows.get(k).index));
+        }
+        String nextPageToken = rows.size() > pageSize ? rows.get(pageSize - 1).cursor.encode(sort) : null;
+        Integer total = Boolean.TRUE.equals(page.getIncludeTotal()) ? matched.cardinality() : null;
+        return new CoursePageDTO(items, nextPageToken, total);
     }
 
-    private Map<Long, List<CourseSessionDTO>> loadSessions(List<Long> courseIds) {
-        if (CollectionUtils.isEmpty(courseIds)) {
-            return Collections.emptyMap();
+    private long sortKey(String sortBy, Course course, int relevance) {
+        switch (sortBy) {
+            case "credits":
+                return course.getCredits() != null ? course.getCredits() : 0;
+            case "remainingSeats":
+                // 剩余名额随选课实时变化，翻页期间名额变动的课程可能跨页移动
+                int capacity = course.getCapacity() != null ? course.getCapacity() : 0;
+                return capacity - enrolledCountOverlay.get(course);
+            case "relevance":
+                return relevance;
+            default:
+                return 0;
         }
-        // 一次性批量加载节次信息，避免 N+1 查询
-        return courseSessionMapper.selectList(
-                new LambdaQueryWrapper<CourseSession>().in(CourseSession::getCourseId, courseIds)).stream()
-                .collect(Collectors.groupingBy(
-                        CourseSession::getCourseId,
-                        Collectors.mapping(this::convertSession, Collectors.toList())));
+    }
+
+    private static CoursePageDTO emptyPage(CoursePageRequest page) {
+        return new CoursePageDTO(Collections.emptyList(), null, Boolean.TRUE.equals(page.getIncludeTotal()) ? 0 : null);
     }
 
     private CourseSessionDTO convertSession(CourseSession session) {
@@ -260,12 +268,24 @@ public class CourseServiceImpl implements CourseService {
         return dto;
     }
 
-    private CourseWithSessionsDTO assembleCourseDTO(Course course, List<CourseSessionDTO> sessions,
-            Integer enrolledCount) {
+    private List<CourseWithSessionsDTO> assembleCourseDTOs(CatalogSnapshot snapshot, int[] indexes) {
+        List<CourseWithSessionsDTO> result = new ArrayList<>(indexes.length);
+        for (int i : indexes) {
+            result.add(assembleCourseDTO(snapshot, i));
+        }
+        return result;
+    }
+
+    /**
+     * 由快照中的课程组装DTO，已选人数取自覆盖层的最新值
+     */
+    private CourseWithSessionsDTO assembleCourseDTO(CatalogSnapshot snapshot, int index) {
+        Course course = snapshot.courseAt(index);
+        List<CourseSession> sessions = snapshot.scheduleAt(index).getSessions();
         CourseWithSessionsDTO dto = new CourseWithSessionsDTO();
         BeanUtils.copyProperties(course, dto);
-        dto.setSessions(sessions == null ? Collections.emptyList() : sessions);
-        dto.setEnrolledCount(enrolledCount);
+        dto.setSessions(sessions.stream().map(this::convertSession).collect(Collectors.toList()));
+        dto.setEnrolledCount(enrolledCountOverlay.get(course));
         // 设置instructorName
         dto.setInstructorName(course.getInstructorName());
         return dto;
@@ -277,49 +297,76 @@ public class CourseServiceImpl implements CourseService {
                 !org.springframework.util.StringUtils.hasText(request.getAttributeName())) {
             return Collections.emptyList();
         }
+        // 属性名解析为预编译的取值函数，避免逐行反射
+        CourseAttribute attribute = CourseAttribute.of(request.getAttributeName());
 
         // 复用现有的筛选逻辑
-        LambdaQueryWrapper<Course> wrapper = buildCourseWrapper(request.getCondition());
-        List<Course> courses = courseMapper.selectList(wrapper);
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        BitSet matched = snapshot.matchCourses(request.getCondition());
 
-        if (CollectionUtils.isEmpty(courses)) {
-            return Collections.emptyList();
+        // 提取指定属性的值并去重，数字类型按数值排序，字符串类型按字母排序
+        Set<Object> uniqueValues = new TreeSet<>(CatalogSnapshot::compareValues);
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            Course course = snapshot.courseAt(i);
+            Object value = attribute == CourseAttribute.ENROLLED_COUNT ? enrolledCountOverlay.get(course) : attribute.get(course);
+            if (value != null) {
+                uniqueValues.add(value);
+            }
         }
+        return new ArrayList<>(uniqueValues);
+    }
+
+    @Override
+    public Map<String, List<FacetValueDTO>> getFacets(CourseFacetRequest request) {
+        List<String> facets = request == null || CollectionUtils.isEmpty(request.getFacets())
+                ? CatalogSnapshot.FACETS : request.getFacets();
+        CourseQueryRequest condition = request != null ? request.getCondition() : null;
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        // 常用筛选条件（如某学院、某校区）下的分面结果按目录版本缓存
+        return facetCache.get(Arrays.asList(snapshot.getVersion(), condition, facets), () -> {
+            Map<String, List<FacetValueDTO>> result = new LinkedHashMap<>();
+            snapshot.facetCounts(snapshot.matchCourses(condition), facets).forEach((facet, counts) ->
+                    result.put(facet, Collections.unmodifiableList(counts.entrySet().stream()
+                            .map(entry -> new FacetValueDTO(entry.getKey(), entry.getValue()))
+                            .collect(Collectors.toList()))));
+            return Collections.unmodifiableMap(result);
+        });
+    }
+
+    private static final class PageRow {
+        private final int index;
+        private final PageCursor cursor;
 
-        // 提取指定属性的值并去重
-        String attributeName = request.getAttributeName();
-        Set<Object> uniqueValues = courses.stream()
-                .map(course -> extractAttributeValue(course, attributeName))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-
-        return uniqueValues.stream()
-                .sorted((a, b) -> {
-                    // 对结果进行排序，数字类型按数值排序，字符串类型按字母排序
-                    if (a instanceof Comparable && b instanceof Comparable) {
-                        @SuppressWarnings("unchecked")
-                        Comparable<Object> aComp = (Comparable<Object>) a;
-                        return aComp.compareTo(b);
-                    }
-                    return a.toString().compareTo(b.toString());
-                })
-                .collect(Collectors.toList());
+        PageRow(int index, PageCursor cursor) {
+            this.index = index;
+            this.cursor = cursor;
+        }
     }
 
     /**
-     * 从Course对象中提取指定属性的值
+     * 合并查询的匹配结果
      */
-    private Object extractAttributeValue(Course course, String attributeName) {
-        try {
-            // 将属性名转换为getter方法名（首字母大写）
-            String methodName = "get" +
-                    attributeName.substring(0, 1).toUpperCase() +
-                    attributeName.substring(1);
-
-            Method method = Course.class.getMethod(methodName);
-            return method.invoke(course);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("无效的属性名称: " + attributeName, e);
+    private final class SearchMatch {
+        private final CatalogSnapshot snapshot;
+        private final BitSet courses;
+        private final Long studentId;
+        private final Set<Long> enrolledCourseIds;
+
+        SearchMatch(CatalogSnapshot snapshot, BitSet courses, Long studentId, Set<Long> enrolledCourseIds) {
+            this.snapshot = snapshot;
+            this.courses = courses;
+            this.studentId = studentId;
+            this.enrolledCourseIds = enrolledCourseIds;
+        }
+
+        boolean isEnrolled(int index) {
+            return enrolledCourseIds.contains(snapshot.courseAt(index).getCourseId());
+        }
+
+        CourseWithSessionsDTO assemble(int index) {
+            CourseWithSessionsDTO dto = assembleCourseDTO(snapshot, index);
+            dto.setIsEnrolled(studentId != null ? isEnrolled(index) : null);
+            return dto;
         }
     }
 }
@@ -1,19 +1,38 @@
 package org.example.newcourseselectionsystem.application.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.dto.CartEnrollmentResponse;
+import org.example.newcourseselectionsystem.application.dto.CartItemResultDTO;
 import org.example.newcourseselectionsystem.application.dto.CourseSessionDTO;
 import org.example.newcourseselectionsystem.application.dto.CourseWithSessionsDTO;
 import org.example.newcourseselectionsystem.application.dto.EnrollmentResponse;
+import org.example.newcourseselectionsystem.application.dto.WaitlistPositionDTO;
+import org.example.newcourseselectionsystem.application.catalog.CourseSchedule;
+import org.example.newcourseselectionsystem.application.catalog.CourseScheduleCache;
+import org.example.newcourseselectionsystem.application.catalog.EnrolledCountOverlay;
+import org.example.newcourseselectionsystem.application.catalog.TimetableBits;
+import org.example.newcourseselectionsystem.application.enrollment.CourseWaitlist;
+import org.example.newcourseselectionsystem.application.enrollment.SeatLedger;
+import org.example.newcourseselectionsystem.application.enrollment.StudentEnrollmentCache;
+import org.example.newcourseselectionsystem.application.enrollment.StudentTimetableCache;
+import org.example.newcourseselectionsystem.application.request.CartEnrollmentRequest;
 import org.example.newcourseselectionsystem.application.request.DropCourseRequest;
 import org.example.newcourseselectionsystem.application.request.EnrollmentRequest;
+import org.example.newcourseselectionsystem.application.request.SwapCourseRequest;
 import org.example.newcourseselectionsystem.application.service.EnrollmentService;
+import org.example.newcourseselectionsystem.application.util.SelectionModes;
+import org.example.newcourseselectionsystem.application.util.TransactionCallbacks;
 import org.example.newcourseselectionsystem.domain.entity.Course;
 import org.example.newcourseselectionsystem.domain.entity.CourseSession;
+import org.example.newcourseselectionsystem.domain.entity.ElectiveBatch;
 import org.example.newcourseselectionsystem.domain.entity.Enrollment;
 import org.example.newcourseselectionsystem.domain.entity.Student;
+import org.example.newcourseselectionsystem.domain.entity.WaitlistEntry;
 import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
 import org.example.newcourseselectionsystem.infrastructure.mapper.CourseSessionMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.ElectiveBatchMapper;
 import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
 import org.example.newcourseselectionsystem.infrastructure.mapper.StudentMapper;
 import org.springframework.beans.BeanUtils;
@@ -23,9 +42,14 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -35,10 +59,19 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class EnrollmentServiceImpl implements EnrollmentService {
 
+    private static final String CART_ABANDONED = "购物车中有课程未通过，本课程未提交";
+
     private final StudentMapper studentMapper;
     private final CourseMapper courseMapper;
     private final EnrollmentMapper enrollmentMapper;
     private final CourseSessionMapper courseSessionMapper;
+    private final ElectiveBatchMapper electiveBatchMapper;
+    private final SeatLedger seatLedger;
+    private final CourseScheduleCache courseScheduleCache;
+    private final StudentTimetableCache studentTimetableCache;
+    private final StudentEnrollmentCache studentEnrollmentCache;
+    private final EnrolledCountOverlay enrolledCountOverlay;
+    private final CourseWaitlist courseWaitlist;
 
     @Override
     @Transactional(isolation = Isolation.REPEATABLE_READ, rollbackFor = Exception.class)
@@ -78,34 +111,58 @@ public class EnrollmentServiceImpl implements EnrollmentService {
                     .build();
         }
 
-        // 4. 课程容量限制（预选：允许超容量，返回提醒）
+        // 4. 课程容量限制：由轮次的选课模式决定（志愿预选允许超容量并提醒；即选即中/先到先得强制容量）
+        boolean hardCapacity = SelectionModes.isCapacityEnforced(resolveSelectionMode(request.getBatchId()));
         Integer enrolledCount = course.getEnrolledCount() != null ? course.getEnrolledCount() : 0;
         Integer capacity = course.getCapacity();
         String warnMessage = null;
-        if (capacity != null && capacity > 0 && enrolledCount >= capacity) {
+        if (!hardCapacity && capacity != null && capacity > 0 && enrolledCount >= capacity) {
             warnMessage = String.format("该课程选课人数已超过容量，抽签难度较大，请谨慎选择（当前：%d/%d）", enrolledCount, capacity);
         }
 
         // 5. 时间冲突检查（返回警告，不阻止选课）
-        String timeConflictWarn = checkTimeConflict(studentId, courseId, course.getCourseName());
-        if (warnMessage == null || warnMessage.trim().isEmpty()) {
-            warnMessage = timeConflictWarn;
-        } else if (timeConflictWarn != null && !timeConflictWarn.trim().isEmpty()) {
-            warnMessage = warnMessage + "；" + timeConflictWarn;
-        }
+        warnMessage = joinWarnings(warnMessage,
+                checkTimeConflict(studentTimetableCache.get(studentId), courseId, course.getCourseName()));
 
-        // 6. 创建选课记录
         Enrollment enrollment = new Enrollment();
         enrollment.setStudentId(studentId);
         enrollment.setCourseId(courseId);
         enrollment.setBatchId(request.getBatchId());
         enrollment.setStatus("已选");
         enrollment.setEnrolledAt(LocalDateTime.now());
-        enrollmentMapper.insert(enrollment);
 
-        // 7. 更新课程的已选人数
-        course.setEnrolledCount(enrolledCount + 1);
-        courseMapper.updateById(course);
+        // 6. 座位账本开放时在内存中占座，选课记录在事务提交后由账本批量回写，事务回滚时撤销占座
+        if (seatLedger.isActive()) {
+            SeatLedger.Reservation reservation = seatLedger.reserve(enrollment, hardCapacity);
+            if (reservation == SeatLedger.Reservation.DUPLICATE) {
+                return EnrollmentResponse.builder()
+                        .success(false)
+                        .message("您在当前轮次已经选择过该课程")
+                        .build();
+            }
+            if (reservation == SeatLedger.Reservation.FULL) {
+                return courseFullResponse(courseId, capacity);
+            }
+            TransactionCallbacks.afterRollback(() -> seatLedger.cancel(enrollment));
+            studentTimetableCache.onEnrolled(studentId, courseId);
+            studentEnrollmentCache.onEnrolled(studentId, courseId);
+            return EnrollmentResponse.builder()
+                    .success(true)
+                    .message("选课成功")
+                    .warn(warnMessage)
+                    .build();
+        }
+
+        // 7. 原子占座：容量检查与已选人数自增在同一条条件更新中完成
+        if (courseMapper.reserveSeat(courseId, hardCapacity) == 0) {
+            return courseFullResponse(courseId, capacity);
+        }
+
+        // 8. 创建选课记录
+        enrollmentMapper.insert(enrollment);
+        studentTimetableCache.onEnrolled(studentId, courseId);
+        studentEnrollmentCache.onEnrolled(studentId, courseId);
+        enrolledCountOverlay.adjust(courseId, 1);
 
         return EnrollmentResponse.builder()
                 .success(true)
@@ -115,68 +172,404 @@ public class EnrollmentServiceImpl implements EnrollmentService {
                 .build();
     }
 
+    @Override
+    @Transactional(isolation = Isolation.REPEATABLE_READ, rollbackFor = Exception.class)
+    public List<EnrollmentResponse> enrollCourseGroup(List<EnrollmentRequest> requests) {
+        // 座位账本开放时占座本就在内存中完成，逐个处理即可
+        if (seatLedger.isActive()) {
+            return requests.stream().map(this::enrollCourse).collect(Collectors.toList());
+        }
+        Long courseId = requests.get(0).getCourseId();
+        Long batchId = requests.get(0).getBatchId();
+        List<EnrollmentResponse> responses = new ArrayList<>(Collections.nCopies(requests.size(), null));
+
+        // 1. 锁定课程行，整组只加一次锁
+        List<Course> locked = courseMapper.selectSeatsForUpdate(Collections.singletonList(courseId));
+        if (locked.isEmpty()) {
+            return Collections.nCopies(requests.size(), EnrollmentResponse.builder()
+                    .success(false)
+                    .message("课程不存在或未开放选课")
+                    .build());
+        }
+        Course seat = locked.get(0);
+
+        // 2. 批量校验学生身份与重复选课
+        Set<Long> studentIds = requests.stream().map(EnrollmentRequest::getStudentId).collect(Collectors.toSet());
+        Set<Long> existingStudents = studentMapper.selectBatchIds(studentIds).stream()
+                .map(Student::getStudentId)
+                .collect(Collectors.toSet());
+        Set<Long> enrolledStudents = enrollmentMapper.selectList(new LambdaQueryWrapper<Enrollment>()
+                        .select(Enrollment::getStudentId)
+                        .eq(Enrollment::getCourseId, courseId)
+                        .eq(Enrollment::getBatchId, batchId)
+                        .eq(Enrollment::getStatus, "已选")
+                        .in(Enrollment::getStudentId, studentIds)).stream()
+                .map(Enrollment::getStudentId)
+                .collect(Collectors.toSet());
+
+        // 3. 按排队顺序分配座位
+        boolean hardCapacity = SelectionModes.isCapacityEnforced(resolveSelectionMode(batchId));
+        Integer capacity = seat.getCapacity();
+        int enrolledCount = seat.getEnrolledCount() != null ? seat.getEnrolledCount() : 0;
+        List<Enrollment> accepted = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Long studentId = requests.get(i).getStudentId();
+            if (!existingStudents.contains(studentId)) {
+                responses.set(i, EnrollmentResponse.builder()
+                        .success(false)
+                        .message("学生不存在或状态异常")
+                        .build());
+                continue;
+            }
+            if (!enrolledStudents.add(studentId)) {
+                responses.set(i, EnrollmentResponse.builder()
+                        .success(false)
+                        .message("您在当前轮次已经选择过该课程")
+                        .build());
+                continue;
+            }
+            boolean overCapacity = capacity != null && capacity > 0 && enrolledCount >= capacity;
+            if (hardCapacity && overCapacity) {
+                responses.set(i, courseFullResponse(courseId, capacity));
+                continue;
+            }
+            String warnMessage = null;
+            if (overCapacity) {
+                warnMessage = String.format("该课程选课人数已超过容量，抽签难度较大，请谨慎选择（当前：%d/%d）", enrolledCount, capacity);
+            }
+            warnMessage = joinWarnings(warnMessage,
+                    checkTimeConflict(studentTimetableCache.get(studentId), courseId, seat.getCourseName()));
+            responses.set(i, EnrollmentResponse.builder()
+                    .success(true)
+                    .message("选课成功")
+                    .warn(warnMessage)
+                    .build());
+
+            Enrollment enrollment = new Enrollment();
+            enrollment.setStudentId(studentId);
+            enrollment.setCourseId(courseId);
+            enrollment.setBatchId(batchId);
+            enrollment.setStatus("已选");
+            enrollment.setEnrolledAt(LocalDateTime.now());
+            accepted.add(enrollment);
+            acceptedIndexes.add(i);
+            enrolledCount++;
+        }
+
+        // 4. 一次调整已选人数、一次批量写入选课记录
+        if (!accepted.isEmpty()) {
+            courseMapper.adjustEnrolledCount(courseId, accepted.size());
+            enrollmentMapper.insertBatch(accepted);
+            enrolledCountOverlay.adjust(courseId, accepted.size());
+            for (int i = 0; i < accepted.size(); i++) {
+                Enrollment enrollment = accepted.get(i);
+                responses.get(acceptedIndexes.get(i)).setEnrollmentId(enrollment.getEnrollmentId());
+                studentTimetableCache.onEnrolled(enrollment.getStudentId(), courseId);
+                studentEnrollmentCache.onEnrolled(enrollment.getStudentId(), courseId);
+            }
+        }
+        return responses;
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.REPEATABLE_READ, rollbackFor = Exception.class)
+    public CartEnrollmentResponse enrollCart(CartEnrollmentRequest request) {
+        Long studentId = request.getStudentId();
+        Long batchId = request.getBatchId();
+        boolean allOrNothing = Boolean.TRUE.equals(request.getAllOrNothing());
+        List<Long> courseIds = new ArrayList<>(new LinkedHashSet<>(request.getCourseIds()));
+
+        // 1. 未开放座位账本时先锁定购物车中的课程行，且须在本事务第一次读取之前：可重复读的快照在第一次读取时建立，
+        //    锁定后再读取，同一学生并发提交的含相同课程的购物车已提交的选课才对本事务可见，重复选课检查不会同时通过
+        Map<Long, Course> seats = seatLedger.isActive() ? Collections.emptyMap()
+                : courseMapper.selectSeatsForUpdate(courseIds).stream()
+                        .collect(Collectors.toMap(Course::getCourseId, course -> course));
+
+        // 2. 学生身份验证（整车只查一次）
+        Student student = studentMapper.selectById(studentId);
+        if (student == null) {
+            return CartEnrollmentResponse.builder()
+                    .success(false)
+                    .message("学生不存在或状态异常")
+                    .results(Collections.emptyList())
+                    .build();
+        }
+
+        // 3. 批量加载：课程、本轮次已选记录、课表与选课模式各一次
+        Map<Long, Course> courses = courseMapper.selectBatchIds(courseIds).stream()
+                .collect(Collectors.toMap(Course::getCourseId, course -> course));
+        Set<Long> alreadyEnrolled = enrollmentMapper.selectList(new LambdaQueryWrapper<Enrollment>()
+                        .select(Enrollment::getCourseId)
+                        .eq(Enrollment::getStudentId, studentId)
+                        .eq(Enrollment::getBatchId, batchId)
+                        .eq(Enrollment::getStatus, "已选")
+                        .in(Enrollment::getCourseId, courseIds)).stream()
+                .map(Enrollment::getCourseId)
+                .collect(Collectors.toSet());
+        Map<Long, CourseSchedule> schedules = courseScheduleCache.getAll(courseIds);
+        StudentTimetableCache.StudentTimetable timetable = studentTimetableCache.get(studentId);
+        boolean hardCapacity = SelectionModes.isCapacityEnforced(resolveSelectionMode(batchId));
+
+        // 4. 逐门校验：存在性、重复选课，与已选课程及购物车内靠前课程的时间冲突（仅警告）
+        List<CartItemResultDTO> results = new ArrayList<>(courseIds.size());
+        List<CartItemResultDTO> candidates = new ArrayList<>();
+        List<CourseSchedule> cartSchedules = new ArrayList<>();
+        for (Long courseId : courseIds) {
+            CartItemResultDTO item = new CartItemResultDTO();
+            item.setCourseId(courseId);
+            results.add(item);
+            Course course = courses.get(courseId);
+            if (course == null) {
+                rejectItem(item, "课程不存在或未开放选课");
+                continue;
+            }
+            if (alreadyEnrolled.contains(courseId)) {
+                rejectItem(item, "您在当前轮次已经选择过该课程");
+                continue;
+            }
+            Integer capacity = course.getCapacity();
+            int enrolledCount = course.getEnrolledCount() != null ? course.getEnrolledCount() : 0;
+            if (!hardCapacity && capacity != null && capacity > 0 && enrolledCount >= capacity) {
+                item.setWarn(String.format("该课程选课人数已超过容量，抽签难度较大，请谨慎选择（当前：%d/%d）",
+                        enrolledCount, capacity));
+            }
+            CourseSchedule schedule = schedules.get(courseId);
+            if (schedule != null && !schedule.getBits().isEmpty()) {
+                item.setWarn(joinWarnings(item.getWarn(),
+                        checkCartConflict(course, schedule, timetable, cartSchedules)));
+                cartSchedules.add(schedule);
+            }
+            candidates.add(item);
+        }
+        if (allOrNothing && candidates.size() < courseIds.size()) {
+            return cartResponse(abandon(candidates), results);
+        }
+
+        List<Enrollment> enrollments = new ArrayList<>(candidates.size());
+        for (CartItemResultDTO item : candidates) {
+            Enrollment enrollment = new Enrollment();
+            enrollment.setStudentId(studentId);
+            enrollment.setCourseId(item.getCourseId());
+            enrollment.setBatchId(batchId);
+            enrollment.setStatus("已选");
+            enrollment.setEnrolledAt(LocalDateTime.now());
+            enrollments.add(enrollment);
+        }
+
+        // 5. 占座：座位账本开放时在内存中批量占座（事务回滚时撤销），否则按已锁定的课程行统一判定后一次更新已选人数、一次批量插入
+        List<Long> placed = new ArrayList<>();
+        if (seatLedger.isActive()) {
+            List<SeatLedger.Reservation> reservations = seatLedger.reserveAll(enrollments, hardCapacity, allOrNothing);
+            boolean rolledBack = allOrNothing && reservations.stream().anyMatch(r -> r != SeatLedger.Reservation.ACCEPTED);
+            for (int i = 0; i < candidates.size(); i++) {
+                CartItemResultDTO item = candidates.get(i);
+                SeatLedger.Reservation reservation = reservations.get(i);
+                if (reservation == SeatLedger.Reservation.DUPLICATE) {
+                    rejectItem(item, "您在当前轮次已经选择过该课程");
+                } else if (reservation == SeatLedger.Reservation.FULL) {
+                    rejectItem(item, courseFullResponse(item.getCourseId(),
+                            courses.get(item.getCourseId()).getCapacity()).getMessage());
+                } else if (rolledBack) {
+                    rejectItem(item, CART_ABANDONED);
+                } else {
+                    Enrollment enrollment = enrollments.get(i);
+                    TransactionCallbacks.afterRollback(() -> seatLedger.cancel(enrollment));
+                    item.setSuccess(true);
+                    item.setMessage("选课成功");
+                    placed.add(item.getCourseId());
+                }
+            }
+        } else if (!candidates.isEmpty()) {
+            List<Enrollment> accepted = new ArrayList<>();
+            for (int i = 0; i < candidates.size(); i++) {
+                CartItemResultDTO item = candidates.get(i);
+                Course seat = seats.get(item.getCourseId());
+                if (seat == null || (hardCapacity && !hasFreeSeat(seat))) {
+                    rejectItem(item, courseFullResponse(item.getCourseId(),
+                            seat != null ? seat.getCapacity() : null).getMessage());
+                } else {
+                    accepted.add(enrollments.get(i));
+                }
+            }
+            if (allOrNothing && accepted.size() < candidates.size()) {
+                abandon(candidates);
+                return cartResponse(0, results);
+            }
+            if (!accepted.isEmpty()) {
+                placed = accepted.stream().map(Enrollment::getCourseId).collect(Collectors.toList());
+                courseMapper.incrementEnrolledCounts(placed);
+                enrollmentMapper.insertBatch(accepted);
+                Map<Long, Long> enrollmentIds = accepted.stream()
+                        .collect(Collectors.toMap(Enrollment::getCourseId, Enrollment::getEnrollmentId));
+                for (CartItemResultDTO item : candidates) {
+                    if (enrollmentIds.containsKey(item.getCourseId())) {
+                        item.setSuccess(true);
+                        item.setMessage("选课成功");
+                        item.setEnrollmentId(enrollmentIds.get(item.getCourseId()));
+                    }
+                }
+                for (Long courseId : placed) {
+                    enrolledCountOverlay.adjust(courseId, 1);
+                }
+            }
+        }
+
+        // 6. 事务提交后统一更新学生课表与选课状态缓存
+        for (Long courseId : placed) {
+            studentTimetableCache.onEnrolled(studentId, courseId);
+            studentEnrollmentCache.onEnrolled(studentId, courseId);
+        }
+        return cartResponse(placed.size(), results);
+    }
+
+    private static void rejectItem(CartItemResultDTO item, String message) {
+        item.setSuccess(false);
+        item.setMessage(message);
+    }
+
+    /**
+     * 全部成功模式下放弃整车：尚未失败的课程标记为未提交
+     *
+     * @return 成功门数（恒为0）
+     */
+    private static int abandon(List<CartItemResultDTO> candidates) {
+        for (CartItemResultDTO item : candidates) {
+            if (item.getSuccess() == null) {
+                rejectItem(item, CART_ABANDONED);
+            }
+        }
+        return 0;
+    }
+
+    private static boolean hasFreeSeat(Course seat) {
+        int enrolled = seat.getEnrolledCount() != null ? seat.getEnrolledCount() : 0;
+        return seat.getCapacity() == null || seat.getCapacity() <= 0 || enrolled < seat.getCapacity();
+    }
+
+    private static CartEnrollmentResponse cartResponse(int succeeded, List<CartItemResultDTO> results) {
+        int failed = results.size() - succeeded;
+        return CartEnrollmentResponse.builder()
+                .success(failed == 0)
+                .message(failed == 0 ? String.format("选课成功，共%d门", succeeded)
+                        : String.format("成功选课%d门，未成功%d门", succeeded, failed))
+                .results(results)
+                .build();
+    }
+
+    /**
+     * 购物车课程的时间冲突：先查学生已选课表，再查购物车中排在前面的课程
+     */
+    private String checkCartConflict(Course course, CourseSchedule schedule, StudentTimetableCache.StudentTimetable timetable,
+            List<CourseSchedule> cartSchedules) {
+        Long conflictCourseId = timetable.findConflict(course.getCourseId(), schedule.getBits());
+        if (conflictCourseId != null) {
+            return formatConflict(course.getCourseId(), course.getCourseName(), schedule,
+                    courseScheduleCache.get(conflictCourseId), "已选课程");
+        }
+        for (CourseSchedule other : cartSchedules) {
+            if (other.getBits().intersects(schedule.getBits())) {
+                return formatConflict(course.getCourseId(), course.getCourseName(), schedule, other, "购物车课程");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 合并两条警告，任一为空时返回另一条
+     */
+    private static String joinWarnings(String first, String second) {
+        if (first == null || first.trim().isEmpty()) {
+            return second;
+        }
+        if (second == null || second.trim().isEmpty()) {
+            return first;
+        }
+        return first + "；" + second;
+    }
+
+    /**
+     * 课程已满的响应
+     */
+    private EnrollmentResponse courseFullResponse(Long courseId, Integer capacity) {
+        int capacityValue = capacity != null ? capacity : 0;
+        Integer taken = seatLedger.seatsTaken(courseId);
+        int enrolledValue = taken != null ? taken : capacityValue;
+        return EnrollmentResponse.builder()
+                .success(false)
+                .message(String.format("课程已满，当前选课人数：%d/%d，可加入候补队列等待递补",
+                        Math.max(enrolledValue, capacityValue), capacityValue))
+                .build();
+    }
+
+    /**
+     * 查询轮次的选课模式
+     *
+     * @param batchId 选课轮次ID
+     * @return 选课模式，轮次不存在时返回null（按预选模式处理）
+     */
+    private String resolveSelectionMode(Long batchId) {
+        if (batchId == null) {
+            return null;
+        }
+        ElectiveBatch batch = electiveBatchMapper.selectById(batchId);
+        return batch != null ? batch.getSelectionMode() : null;
+    }
+
     /**
      * 检查时间冲突
      *
-     * @param studentId  学生ID
+     * @param timetable  学生课表
      * @param courseId   新选课程ID
      * @param courseName 新选课程名称
      * @return 冲突警告信息，如果没有冲突返回null
      */
-    private String checkTimeConflict(Long studentId, Long courseId, String courseName) {
-        // 1. 查询学生所有状态为"已选"的选课记录，获取course_id列表
-        LambdaQueryWrapper<Enrollment> enrollmentWrapper = new LambdaQueryWrapper<>();
-        enrollmentWrapper.eq(Enrollment::getStudentId, studentId)
-                .eq(Enrollment::getStatus, "已选");
-        List<Enrollment> enrolledCourses = enrollmentMapper.selectList(enrollmentWrapper);
-        List<Long> enrolledCourseIds = enrolledCourses.stream()
-                .map(Enrollment::getCourseId)
-                .collect(Collectors.toList());
-
-        if (enrolledCourseIds.isEmpty()) {
+    private String checkTimeConflict(StudentTimetableCache.StudentTimetable timetable, Long courseId, String courseName) {
+        // 1. 新选课程的课表位图（起止周 × 星期 × 节次，已区分单双周）
+        CourseSchedule newSchedule = courseScheduleCache.get(courseId);
+        if (newSchedule == null || newSchedule.getBits().isEmpty()) {
             return null;
         }
 
-        // 2. 查询这些课程的所有course_sessions记录
-        LambdaQueryWrapper<CourseSession> enrolledSessionsWrapper = new LambdaQueryWrapper<>();
-        enrolledSessionsWrapper.in(CourseSession::getCourseId, enrolledCourseIds);
-        List<CourseSession> enrolledSessions = courseSessionMapper.selectList(enrolledSessionsWrapper);
-
-        // 3. 查询新选课程的所有course_sessions记录
-        LambdaQueryWrapper<CourseSession> newCourseSessionsWrapper = new LambdaQueryWrapper<>();
-        newCourseSessionsWrapper.eq(CourseSession::getCourseId, courseId);
-        List<CourseSession> newCourseSessions = courseSessionMapper.selectList(newCourseSessionsWrapper);
-
-        // 4. 比较节次是否冲突
-        for (CourseSession newSession : newCourseSessions) {
-            for (CourseSession enrolledSession : enrolledSessions) {
-                // 冲突条件：同一weekday（星期），且时间段有重叠
-                if (newSession.getWeekday().equals(enrolledSession.getWeekday())) {
-                    // 时间段重叠判断：(new_start <= old_end) && (new_end >= old_start)
-                    if (newSession.getStartPeriod() <= enrolledSession.getEndPeriod() &&
-                            newSession.getEndPeriod() >= enrolledSession.getStartPeriod()) {
-                        // 需要获取冲突的课程名称
-                        Course conflictCourse = courseMapper.selectById(enrolledSession.getCourseId());
-                        String conflictCourseName = conflictCourse != null ? conflictCourse.getCourseName() : "未知课程";
-                        String newCourseIdStr = courseId == null ? "" : String.format("%08d", courseId);
-                        String conflictCourseIdStr = enrolledSession.getCourseId() == null ? "" : String.format("%08d", enrolledSession.getCourseId());
-                        String safeNewCourseName = (courseName == null || courseName.trim().isEmpty()) ? "未知课程" : courseName;
-                        return String.format(
-                                "选课时间冲突：新选课程《%s》(课程号:%s) 与已选课程《%s》(课程号:%s) 在[%s]第%d-%d节冲突",
-                                safeNewCourseName,
-                                newCourseIdStr,
-                                conflictCourseName,
-                                conflictCourseIdStr,
-                                enrolledSession.getWeekday(),
-                                enrolledSession.getStartPeriod(),
-                                enrolledSession.getEndPeriod()
-                        );
-                    }
-                }
-            }
+        // 2. 与学生缓存的课表按位与，定位第一门冲突的已选课程
+        Long conflictCourseId = timetable.findConflict(courseId, newSchedule.getBits());
+        if (conflictCourseId == null) {
+            return null;
         }
 
-        return null;
+        // 3. 仅在冲突时解析冲突的节次用于提示
+        return formatConflict(courseId, courseName, newSchedule, courseScheduleCache.get(conflictCourseId), "已选课程");
+    }
+
+    /**
+     * 组装时间冲突提示
+     *
+     * @param courseId         新选课程ID
+     * @param courseName       新选课程名称
+     * @param newSchedule      新选课程课表
+     * @param conflictSchedule 与之冲突的课程课表
+     * @param conflictLabel    冲突课程的称谓（已选课程/购物车课程）
+     */
+    private String formatConflict(Long courseId, String courseName, CourseSchedule newSchedule,
+            CourseSchedule conflictSchedule, String conflictLabel) {
+        Long conflictCourseId = conflictSchedule.getCourseId();
+        TimetableBits.Slot slot = conflictSchedule.getBits().firstCommonSlot(newSchedule.getBits());
+        CourseSession conflictSession = conflictSchedule.sessionAt(slot);
+        String conflictCourseName = conflictSchedule.getCourseName() != null ? conflictSchedule.getCourseName() : "未知课程";
+        String newCourseIdStr = courseId == null ? "" : String.format("%08d", courseId);
+        String conflictCourseIdStr = String.format("%08d", conflictCourseId);
+        String safeNewCourseName = (courseName == null || courseName.trim().isEmpty()) ? "未知课程" : courseName;
+        return String.format(
+                "选课时间冲突：新选课程《%s》(课程号:%s) 与%s《%s》(课程号:%s) 在[%s]第%d-%d节冲突",
+                safeNewCourseName,
+                newCourseIdStr,
+                conflictLabel,
+                conflictCourseName,
+                conflictCourseIdStr,
+                slot.getWeekday(),
+                conflictSession != null ? conflictSession.getStartPeriod() : slot.getPeriod(),
+                conflictSession != null ? conflictSession.getEndPeriod() : slot.getPeriod()
+        );
     }
 
     @Override
@@ -185,6 +578,9 @@ public class EnrollmentServiceImpl implements EnrollmentService {
         Long studentId = request.getStudentId();
         Long courseId = request.getCourseId();
 
+        // 座位账本开放时，调用方须在本事务开始之前回写待写记录（SeatLedger#flushBeforeTransaction），
+        // 否则刚选上、尚未回写的课程在此查不到
+
         // 1. 学生身份验证
         Student student = studentMapper.selectById(studentId);
         if (student == null) {
@@ -218,22 +614,23 @@ public class EnrollmentServiceImpl implements EnrollmentService {
                     .build();
         }
 
-        // 4. 批量更新所有选课记录状态为"已退选"
-        int droppedCount = 0;
-        for (Enrollment enrollment : enrollments) {
-            enrollment.setStatus("已退选");
-            enrollmentMapper.updateById(enrollment);
-            droppedCount++;
-        }
+        // 4. 批量更新选课记录状态为"已退选"（带状态条件，并发重复退课只会有一次生效）
+        int droppedCount = enrollmentMapper.update(null, new LambdaUpdateWrapper<Enrollment>()
+                .set(Enrollment::getStatus, "已退选")
+                .eq(Enrollment::getStudentId, studentId)
+                .eq(Enrollment::getCourseId, courseId)
+                .eq(Enrollment::getStatus, "已选"));
 
-        // 5. 更新课程的已选人数（减去退选的数量，确保不会小于0）
-        Integer enrolledCount = course.getEnrolledCount() != null ? course.getEnrolledCount() : 0;
-        if (enrolledCount >= droppedCount) {
-            course.setEnrolledCount(enrolledCount - droppedCount);
-            courseMapper.updateById(course);
-        } else if (enrolledCount > 0) {
-            course.setEnrolledCount(0);
-            courseMapper.updateById(course);
+        // 5. 原子释放座位（减去实际退选的数量，确保不会小于0）
+        if (droppedCount > 0) {
+            courseMapper.releaseSeats(courseId, droppedCount);
+            TransactionCallbacks.afterCommit(() -> seatLedger.release(courseId, droppedCount));
+            studentTimetableCache.onDropped(studentId, courseId);
+            studentEnrollmentCache.onDropped(studentId, courseId);
+            enrolledCountOverlay.adjust(courseId, -droppedCount);
+
+            // 6. 空出的座位在同一事务内按候补顺序递补
+            promoteFromWaitlist(courseId, droppedCount);
         }
 
         return EnrollmentResponse.builder()
@@ -244,27 +641,327 @@ public class EnrollmentServiceImpl implements EnrollmentService {
                 .build();
     }
 
+    @Override
+    @Transactional(isolation = Isolation.REPEATABLE_READ, rollbackFor = Exception.class)
+    public EnrollmentResponse swapCourse(SwapCourseRequest request) {
+        Long studentId = request.getStudentId();
+        Long dropCourseId = request.getDropCourseId();
+        Long enrollCourseId = request.getEnrollCourseId();
+
+        // 座位账本开放时，调用方须在本事务开始之前回写待写记录（见退课）
+
+        // 1. 学生身份验证
+        Student student = studentMapper.selectById(studentId);
+        if (student == null) {
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("学生不存在或状态异常")
+                    .build();
+        }
+        if (dropCourseId.equals(enrollCourseId)) {
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("退选课程与新选课程不能相同")
+                    .build();
+        }
+
+        // 2. 按课程ID升序锁定两门课程，与其他换课、批量选课的加锁顺序一致，避免交叉等待造成死锁
+        Map<Long, Course> locked = courseMapper.selectSeatsForUpdate(Arrays.asList(dropCourseId, enrollCourseId)).stream()
+                .collect(Collectors.toMap(Course::getCourseId, course -> course));
+        Course seat = locked.get(enrollCourseId);
+        if (seat == null) {
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("课程不存在或未开放选课")
+                    .build();
+        }
+        if (!locked.containsKey(dropCourseId)) {
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("课程不存在")
+                    .build();
+        }
+
+        // 3. 原课程必须已选，新课程在当前轮次不能已选
+        Long droppable = enrollmentMapper.selectCount(new LambdaQueryWrapper<Enrollment>()
+                .eq(Enrollment::getStudentId, studentId)
+                .eq(Enrollment::getCourseId, dropCourseId)
+                .eq(Enrollment::getStatus, "已选"));
+        if (droppable == 0) {
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("您尚未选择该课程或该课程已退选")
+                    .build();
+        }
+        Long duplicated = enrollmentMapper.selectCount(new LambdaQueryWrapper<Enrollment>()
+                .eq(Enrollment::getStudentId, studentId)
+                .eq(Enrollment::getCourseId, enrollCourseId)
+                .eq(Enrollment::getBatchId, request.getBatchId())
+                .eq(Enrollment::getStatus, "已选"));
+        if (duplicated > 0) {
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("您在当前轮次已经选择过该课程")
+                    .build();
+        }
+
+        // 4. 容量：强制容量时新课程须有空位（课程行已锁定，判定结果在事务内不变）；志愿预选仅提醒
+        boolean hardCapacity = SelectionModes.isCapacityEnforced(resolveSelectionMode(request.getBatchId()));
+        Integer capacity = seat.getCapacity();
+        int enrolledCount = seat.getEnrolledCount() != null ? seat.getEnrolledCount() : 0;
+        if (hardCapacity && !seatLedger.isActive() && !hasFreeSeat(seat)) {
+            return courseFullResponse(enrollCourseId, capacity);
+        }
+        String warnMessage = null;
+        if (!hardCapacity && capacity != null && capacity > 0 && enrolledCount >= capacity) {
+            warnMessage = String.format("该课程选课人数已超过容量，抽签难度较大，请谨慎选择（当前：%d/%d）", enrolledCount, capacity);
+        }
+
+        // 5. 时间冲突检查不计入将退选的课程
+        warnMessage = joinWarnings(warnMessage, checkTimeConflict(
+                studentTimetableCache.get(studentId).without(dropCourseId), enrollCourseId, seat.getCourseName()));
+
+        Enrollment enrollment = new Enrollment();
+        enrollment.setStudentId(studentId);
+        enrollment.setCourseId(enrollCourseId);
+        enrollment.setBatchId(request.getBatchId());
+        enrollment.setStatus("已选");
+        enrollment.setEnrolledAt(LocalDateTime.now());
+
+        // 6. 账本开放时先在内存中占到新课程的座位，占不到则原课程保持不变；事务回滚时撤销占座
+        if (seatLedger.isActive()) {
+            SeatLedger.Reservation reservation = seatLedger.reserve(enrollment, hardCapacity);
+            if (reservation == SeatLedger.Reservation.DUPLICATE) {
+                return EnrollmentResponse.builder()
+                        .success(false)
+                        .message("您在当前轮次已经选择过该课程")
+                        .build();
+            }
+            if (reservation == SeatLedger.Reservation.FULL) {
+                return courseFullResponse(enrollCourseId, capacity);
+            }
+            TransactionCallbacks.afterRollback(() -> seatLedger.cancel(enrollment));
+        }
+
+        // 7. 退选原课程（带状态条件，与并发退课只有一次生效）
+        int droppedCount = enrollmentMapper.update(null, new LambdaUpdateWrapper<Enrollment>()
+                .set(Enrollment::getStatus, "已退选")
+                .eq(Enrollment::getStudentId, studentId)
+                .eq(Enrollment::getCourseId, dropCourseId)
+                .eq(Enrollment::getStatus, "已选"));
+        if (droppedCount == 0) {
+            seatLedger.cancel(enrollment);
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("您尚未选择该课程或该课程已退选")
+                    .build();
+        }
+        courseMapper.releaseSeats(dropCourseId, droppedCount);
+        TransactionCallbacks.afterCommit(() -> seatLedger.release(dropCourseId, droppedCount));
+        studentTimetableCache.onDropped(studentId, dropCourseId);
+        studentEnrollmentCache.onDropped(studentId, dropCourseId);
+        enrolledCountOverlay.adjust(dropCourseId, -droppedCount);
+
+        // 8. 选上新课程：持有课程行锁，条件更新占座必然成功
+        if (!seatLedger.isActive()) {
+            if (courseMapper.reserveSeat(enrollCourseId, hardCapacity) == 0) {
+                throw new IllegalStateException("换课占座失败：课程 " + enrollCourseId);
+            }
+            enrollmentMapper.insert(enrollment);
+            enrolledCountOverlay.adjust(enrollCourseId, 1);
+        }
+        studentTimetableCache.onEnrolled(studentId, enrollCourseId);
+        studentEnrollmentCache.onEnrolled(studentId, enrollCourseId);
+
+        // 9. 原课程空出的座位在同一事务内递补
+        promoteFromWaitlist(dropCourseId, droppedCount);
+
+        return EnrollmentResponse.builder()
+                .success(true)
+                .message("换课成功")
+                .warn(warnMessage)
+                .enrollmentId(enrollment.getEnrollmentId())
+                .build();
+    }
+
+    /**
+     * 按候补顺序递补空出的座位；所属轮次已结束或已选该课程的候补记录直接取消
+     *
+     * @param courseId   课程ID
+     * @param freedSeats 空出的座位数
+     * @return 递补成功的人数
+     */
+    private int promoteFromWaitlist(Long courseId, int freedSeats) {
+        int promoted = 0;
+        Map<Long, Boolean> openBatches = new HashMap<>();
+        for (WaitlistEntry entry : courseWaitlist.waiting(courseId)) {
+            if (promoted >= freedSeats) {
+                break;
+            }
+            boolean stale = (entry.getBatchId() != null
+                    && !openBatches.computeIfAbsent(entry.getBatchId(), this::isBatchOpen))
+                    || studentEnrollmentCache.get(entry.getStudentId()).contains(StudentEnrollmentCache.ENROLLED, courseId);
+            if (stale) {
+                if (courseWaitlist.resolve(entry, CourseWaitlist.CANCELLED)) {
+                    courseWaitlist.onResolved(entry);
+                }
+                continue;
+            }
+            // 条件更新：已被取消或已被并发的退课递补的记录跳过
+            if (!courseWaitlist.resolve(entry, CourseWaitlist.PROMOTED)) {
+                continue;
+            }
+            Enrollment enrollment = new Enrollment();
+            enrollment.setStudentId(entry.getStudentId());
+            enrollment.setCourseId(courseId);
+            enrollment.setBatchId(entry.getBatchId());
+            enrollment.setStatus("已选");
+            enrollment.setEnrolledAt(LocalDateTime.now());
+            SeatLedger.Reservation reservation = occupySeat(enrollment, freedSeats - promoted);
+            if (reservation == SeatLedger.Reservation.FULL) {
+                // 座位已被他人抢先占用，候补记录保持等待
+                courseWaitlist.restore(entry);
+                break;
+            }
+            if (reservation == SeatLedger.Reservation.DUPLICATE) {
+                // 学生已在账本中选上该课程（尚未回写），候补记录作废
+                courseWaitlist.restore(entry);
+                if (courseWaitlist.resolve(entry, CourseWaitlist.CANCELLED)) {
+                    courseWaitlist.onResolved(entry);
+                }
+                continue;
+            }
+            courseWaitlist.onResolved(entry);
+            promoted++;
+        }
+        return promoted;
+    }
+
+    /**
+     * 递补占座（强制容量）：座位账本开放时经由账本（退课事务回滚时撤销占座），否则条件更新占座并写入选课记录
+     *
+     * @param releasing 本事务退课释放、尚未递补的座位数（账本在事务提交后才归还这些座位）
+     * @return 占座结果
+     */
+    private SeatLedger.Reservation occupySeat(Enrollment enrollment, int releasing) {
+        Long studentId = enrollment.getStudentId();
+        Long courseId = enrollment.getCourseId();
+        if (seatLedger.isActive()) {
+            SeatLedger.Reservation reservation = seatLedger.reserveReleased(enrollment, releasing);
+            if (reservation != SeatLedger.Reservation.ACCEPTED) {
+                return reservation;
+            }
+            TransactionCallbacks.afterRollback(() -> seatLedger.cancel(enrollment));
+        } else {
+            if (courseMapper.reserveSeat(courseId, true) == 0) {
+                return SeatLedger.Reservation.FULL;
+            }
+            enrollmentMapper.insert(enrollment);
+            enrolledCountOverlay.adjust(courseId, 1);
+        }
+        studentTimetableCache.onEnrolled(studentId, courseId);
+        studentEnrollmentCache.onEnrolled(studentId, courseId);
+        return SeatLedger.Reservation.ACCEPTED;
+    }
+
+    private boolean isBatchOpen(Long batchId) {
+        ElectiveBatch batch = electiveBatchMapper.selectById(batchId);
+        return batch != null && batch.getEndTime() != null && !LocalDateTime.now().isAfter(batch.getEndTime());
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public EnrollmentResponse joinWaitlist(EnrollmentRequest request) {
+        Long studentId = request.getStudentId();
+        Long courseId = request.getCourseId();
+
+        // 锁定课程行，同一课程的加入候补串行执行，避免同一学生重复加入；
+        // 加锁读取不建立快照，须在本事务第一次普通读取之前，之后的读取才能看到先前加入者已提交的记录
+        List<Course> locked = courseMapper.selectSeatsForUpdate(Collections.singletonList(courseId));
+        Student student = studentMapper.selectById(studentId);
+        if (student == null) {
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("学生不存在或状态异常")
+                    .build();
+        }
+        Course course = locked.isEmpty() ? null : locked.get(0);
+        if (course == null) {
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("课程不存在或未开放选课")
+                    .build();
+        }
+        if (SelectionModes.isPreference(resolveSelectionMode(request.getBatchId()))) {
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("志愿选课轮次允许超容量预选，无需候补")
+                    .build();
+        }
+        if (studentEnrollmentCache.get(studentId).contains(StudentEnrollmentCache.ENROLLED, courseId)) {
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("您已经选择过该课程")
+                    .build();
+        }
+        Integer taken = seatLedger.seatsTaken(courseId);
+        int enrolled = taken != null ? taken : (course.getEnrolledCount() != null ? course.getEnrolledCount() : 0);
+        if (course.getCapacity() == null || course.getCapacity() <= 0 || enrolled < course.getCapacity()) {
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("课程尚有空余座位，请直接选课")
+                    .build();
+        }
+        if (courseWaitlist.isWaiting(courseId, studentId)) {
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("您已在该课程的候补队列中")
+                    .build();
+        }
+
+        int position = courseWaitlist.size(courseId) + 1;
+        courseWaitlist.join(studentId, courseId, request.getBatchId());
+        return EnrollmentResponse.builder()
+                .success(true)
+                .message(String.format("已加入候补队列，当前排在第%d位，有空位时将按顺序自动递补", position))
+                .build();
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public EnrollmentResponse leaveWaitlist(DropCourseRequest request) {
+        if (!courseWaitlist.cancel(request.getCourseId(), request.getStudentId())) {
+            return EnrollmentResponse.builder()
+                    .success(false)
+                    .message("您不在该课程的候补队列中")
+                    .build();
+        }
+        return EnrollmentResponse.builder()
+                .success(true)
+                .message("已退出候补队列")
+                .build();
+    }
+
+    @Override
+    public WaitlistPositionDTO getWaitlistPosition(Long studentId, Long courseId) {
+        return new WaitlistPositionDTO(courseId, studentId,
+                courseWaitlist.position(courseId, studentId), courseWaitlist.size(courseId));
+    }
+
     @Override
     public List<CourseWithSessionsDTO> getStudentCourses(Long studentId) {
         if (studentId == null) {
             return Collections.emptyList();
         }
 
-        // 1. 查询学生所有状态为"已选"的选课记录
-        LambdaQueryWrapper<Enrollment> enrollmentWrapper = new LambdaQueryWrapper<>();
-        enrollmentWrapper.eq(Enrollment::getStudentId, studentId)
-                .eq(Enrollment::getStatus, "已选");
-        List<Enrollment> enrollments = enrollmentMapper.selectList(enrollmentWrapper);
-
-        if (CollectionUtils.isEmpty(enrollments)) {
+        // 1. 从选课状态缓存取学生所有状态为"已选"的课程ID
+        long[] enrolledCourseIds = studentEnrollmentCache.get(studentId).courseIds(StudentEnrollmentCache.ENROLLED);
+        if (enrolledCourseIds.length == 0) {
             return Collections.emptyList();
         }
 
         // 2. 获取课程ID列表
-        List<Long> courseIds = enrollments.stream()
-                .map(Enrollment::getCourseId)
-                .distinct()
-                .collect(Collectors.toList());
+        List<Long> courseIds = Arrays.stream(enrolledCourseIds).boxed().collect(Collectors.toList());
 
         // 3. 查询课程信息
         List<Course> courses = courseMapper.selectList(
@@ -2,6 +2,7 @@ package org.example.newcourseselectionsystem.application.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.enrollment.StudentEnrollmentCache;
 import org.example.newcourseselectionsystem.application.dto.CourseRecommendationResponse;
 import org.example.newcourseselectionsystem.application.dto.CourseWithSessionsDTO;
 import org.example.newcourseselectionsystem.application.dto.CreditProgressDTO;
@@ -14,9 +15,7 @@ import org.example.newcourseselectionsystem.application.service.EnrollmentServic
 import org.example.newcourseselectionsystem.application.service.GraduationService;
 import org.example.newcourseselectionsystem.application.util.GraduationRequirements;
 import org.example.newcourseselectionsystem.domain.entity.Course;
-import org.example.newcourseselectionsystem.domain.entity.Enrollment;
 import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
-import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -26,7 +25,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class GraduationServiceImpl implements GraduationService {
 
-    private final EnrollmentMapper enrollmentMapper;
+    private final StudentEnrollmentCache studentEnrollmentCache;
     private final CourseMapper courseMapper;
     private final EnrollmentService enrollmentService; // reuse to assemble CourseWithSessionsDTO
     private final CourseService courseService;
@@ -34,16 +33,13 @@ public class GraduationServiceImpl implements GraduationService {
     @Override
     public GraduationStatusResponse getStatus(GraduationQueryRequest request) {
         Long studentId = request.getStudentId();
-        List<Enrollment> enrollments = enrollmentMapper.selectList(new LambdaQueryWrapper<Enrollment>()
-                .eq(Enrollment::getStudentId, studentId)
-                .eq(Enrollment::getStatus, "已修"));
         // Treat all entries in enrollments as earned credits per user instruction
-        Set<Long> courseIds = enrollments.stream().map(Enrollment::getCourseId).collect(Collectors.toSet());
+        Set<Long> courseIds = studentEnrollmentCache.get(studentId).courseIdSet(StudentEnrollmentCache.COMPLETED);
         if (courseIds.isEmpty()) {
             List<TypeCreditDeficitDTO> deficits = GraduationRequirements.CREDIT_REQUIREMENTS.entrySet().stream()
                     .map(e -> new TypeCreditDeficitDTO(e.getKey(), e.getValue(), 0, e.getValue()))
                     .collect(Collectors.toList());
-            int totalRequired = GraduationRequirements.CREDIT_REQUIREMENTS.values().stream().mapToInt(Integer::intValue).sum();
+            int totalRequired = GraduationRequirements.totalRequired();
             return new GraduationStatusResponse(studentId, deficits, totalRequired, 0);
         }
         List<Course> courses = courseMapper.selectBatchIds(courseIds);
@@ -64,7 +60,7 @@ public class GraduationServiceImpl implements GraduationService {
             deficits.add(new TypeCreditDeficitDTO(type, required, earned, remaining));
             totalEarned += earned;
         }
-        int totalRequired = GraduationRequirements.CREDIT_REQUIREMENTS.values().stream().mapToInt(Integer::intValue).sum();
+        int totalRequired = GraduationRequirements.totalRequired();
         return new GraduationStatusResponse(studentId, deficits, totalRequired, totalEarned);
     }
 
@@ -76,10 +72,8 @@ public class GraduationServiceImpl implements GraduationService {
         sorted.sort(Comparator.comparingInt(TypeCreditDeficitDTO::getRemainingCredits).reversed());
 
         Map<String, List<CourseWithSessionsDTO>> recs = new LinkedHashMap<>();
-        Set<Long> alreadyCourseIds = enrollmentMapper.selectList(new LambdaQueryWrapper<Enrollment>()
-                .eq(Enrollment::getStudentId, request.getStudentId())
-                .in(Enrollment::getStatus, Arrays.asList("已修", "已选")))
-                .stream().map(Enrollment::getCourseId).collect(Collectors.toSet());
+        Set<Long> alreadyCourseIds = studentEnrollmentCache.get(request.getStudentId())
+                .courseIdSet(StudentEnrollmentCache.COMPLETED, StudentEnrollmentCache.ENROLLED);
 
         Random rand = new Random();
         for (TypeCreditDeficitDTO d : sorted) {
@@ -0,0 +1,336 @@
+package org.example.newcourseselectionsystem.application.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.newcourseselectionsystem.application.dto.CartEnrollmentResponse;
+import org.example.newcourseselectionsystem.application.dto.CourseWithSessionsDTO;
+import org.example.newcourseselectionsystem.application.dto.EnrollmentResponse;
+import org.example.newcourseselectionsystem.application.dto.WaitlistPositionDTO;
+import org.example.newcourseselectionsystem.application.enrollment.SeatLedger;
+import org.example.newcourseselectionsystem.application.request.CartEnrollmentRequest;
+import org.example.newcourseselectionsystem.application.request.DropCourseRequest;
+import org.example.newcourseselectionsystem.application.request.EnrollmentRequest;
+import org.example.newcourseselectionsystem.application.request.SwapCourseRequest;
+import org.example.newcourseselectionsystem.application.service.EnrollmentSequencer;
+import org.example.newcourseselectionsystem.application.service.EnrollmentService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 按课程单写者执行的选课服务（可选，默认关闭）
+ * <p>
+ * 选课、退课、换课与合并选课按课程ID散列到固定的分片，每个分片由一个线程串行执行，
+ * 同一课程的变更在本实例内排队执行，减少在 courses 行锁上的等待；不同课程落在不同分片，在多核上并行执行。
+ * 分片线程把队列中连续的、针对同一门课程的多个操作放进同一个数据库事务提交，合并提交失败时逐个重新执行。
+ * 只合并同一门课程的操作：散列到同一分片的不同课程若在一个事务中按到达顺序加锁，会与其他分片的事务互相死锁；
+ * 换课要锁定两门课程，总是单独执行。座位账本开放时占座与归还发生在内存中、重新执行会重复生效，此时不合并。
+ * 调用线程等待操作提交后返回，接口语义与 {@link EnrollmentServiceImpl} 一致。
+ * 分片队列有界，队列已满或等待超过 timeout-ms 时返回"繁忙"的失败响应（超时的操作仍会执行，携带请求键重试可取得结果）。
+ * 携带请求键的选课/退课由 {@link #executeAlone} 把幂等记录与业务处理放在分片线程的同一个事务中。
+ * <p>
+ * 换课按新选课程路由（占座是竞争所在），原课程的座位释放是原子递减，可与原课程分片并发；
+ * 批量选课涉及多门课程、候补与查询不改变座位，直接交给 {@link EnrollmentServiceImpl}。
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(name = "enrollment.sequencer.enabled", havingValue = "true")
+public class SequencedEnrollmentService implements EnrollmentService, EnrollmentSequencer {
+
+    private static final String BUSY = "选课人数过多，请稍后重试";
+    private static final String TIMEOUT = "选课处理超时，请查看已选课程确认结果";
+
+    private final EnrollmentService delegate;
+    private final SeatLedger seatLedger;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${enrollment.sequencer.shards:0}")
+    private int shardCount;
+
+    @Value("${enrollment.sequencer.batch-size:64}")
+    private int batchSize;
+
+    @Value("${enrollment.sequencer.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${enrollment.sequencer.timeout-ms:10000}")
+    private long timeoutMs;
+
+    private final List<Shard> shards = new ArrayList<>();
+    private Counter rejected;
+
+    public SequencedEnrollmentService(@Qualifier("enrollmentServiceImpl") EnrollmentService delegate,
+            SeatLedger seatLedger, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.seatLedger = seatLedger;
+        this.meterRegistry = meterRegistry;
+        // 分片事务：被合并的各个操作加入此事务
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @PostConstruct
+    void start() {
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < count; i++) {
+            Shard shard = new Shard();
+            Thread thread = new Thread(shard, "enrollment-sequencer-" + i);
+            thread.setDaemon(true);
+            shard.thread = thread;
+            shards.add(shard);
+            thread.start();
+        }
+        Gauge.builder("enrollment.sequencer.pending", shards, list -> list.stream().mapToInt(s -> s.queue.size()).sum())
+                .description("选课分片中等待执行的操作数").register(meterRegistry);
+        rejected = Counter.builder("enrollment.sequencer.rejected")
+                .description("分片队列已满或等待超时的选课操作数").register(meterRegistry);
+        log.info("选课分片执行已开启：{} 个分片", count);
+    }
+
+    @PreDestroy
+    void stop() {
+        for (Shard shard : shards) {
+            shard.thread.interrupt();
+        }
+    }
+
+    @Override
+    public EnrollmentResponse enrollCourse(EnrollmentRequest request) {
+        return execute(request.getCourseId(), true, () -> delegate.enrollCourse(request), SequencedEnrollmentService::failure);
+    }
+
+    @Override
+    public List<EnrollmentResponse> enrollCourseGroup(List<EnrollmentRequest> requests) {
+        return execute(requests.get(0).getCourseId(), true, () -> delegate.enrollCourseGroup(requests),
+                message -> Collections.nCopies(requests.size(), failure(message)));
+    }
+
+    @Override
+    public CartEnrollmentResponse enrollCart(CartEnrollmentRequest request) {
+        return delegate.enrollCart(request);
+    }
+
+    @Override
+    public EnrollmentResponse swapCourse(SwapCourseRequest request) {
+        // 换课锁定两门课程，不与其他操作合并
+        return execute(request.getEnrollCourseId(), false, () -> delegate.swapCourse(request),
+                SequencedEnrollmentService::failure);
+    }
+
+    @Override
+    public EnrollmentResponse dropCourse(DropCourseRequest request) {
+        return execute(request.getCourseId(), true, () -> delegate.dropCourse(request), SequencedEnrollmentService::failure);
+    }
+
+    @Override
+    public EnrollmentResponse joinWaitlist(EnrollmentRequest request) {
+        return delegate.joinWaitlist(request);
+    }
+
+    @Override
+    public EnrollmentResponse leaveWaitlist(DropCourseRequest request) {
+        return delegate.leaveWaitlist(request);
+    }
+
+    @Override
+    public WaitlistPositionDTO getWaitlistPosition(Long studentId, Long courseId) {
+        return delegate.getWaitlistPosition(studentId, courseId);
+    }
+
+    @Override
+    public List<CourseWithSessionsDTO> getStudentCourses(Long studentId) {
+        return delegate.getStudentCourses(studentId);
+    }
+
+    /**
+     * 不与其他操作合并；处理中对本服务的调用直接在分片线程上执行、加入该事务。
+     * 用于请求幂等：幂等记录与选课/退课在同一个事务中提交
+     */
+    @Override
+    public EnrollmentResponse executeAlone(Long courseId, Supplier<EnrollmentResponse> action) {
+        return submit(courseId, new Operation<>(courseId, action, false, true), SequencedEnrollmentService::failure);
+    }
+
+    /**
+     * @param mergeable 是否可与同一课程的相邻操作合并到一个事务（只涉及这一门课程的操作）
+     */
+    private <T> T execute(Long courseId, boolean mergeable, Supplier<T> action, Function<String, T> failure) {
+        return submit(courseId, new Operation<>(courseId, action, mergeable, false), failure);
+    }
+
+    /**
+     * 把操作交给课程所在分片，等待其提交后返回结果
+     */
+    private <T> T submit(Long courseId, Operation<T> operation, Function<String, T> failure) {
+        if (isShardThread()) {
+            // 已在分片线程上（单独执行的处理中调用本服务），直接执行，避免等待自己
+            return operation.action.get();
+        }
+        if (!shards.get(Math.floorMod(courseId.hashCode(), shards.size())).queue.offer(operation)) {
+            rejected.increment();
+            return failure.apply(BUSY);
+        }
+        try {
+            return operation.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            rejected.increment();
+            return failure.apply(TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待选课操作完成时被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private boolean isShardThread() {
+        Thread current = Thread.currentThread();
+        for (Shard shard : shards) {
+            if (shard.thread == current) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static EnrollmentResponse failure(String message) {
+        return EnrollmentResponse.builder()
+                .success(false)
+                .message(message)
+                .build();
+    }
+
+    /**
+     * 单个分片：一个线程串行执行本分片课程的全部变更
+     */
+    private final class Shard implements Runnable {
+        private final BlockingQueue<Operation<?>> queue = new ArrayBlockingQueue<>(Math.max(queueCapacity, 1));
+        private Thread thread;
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Operation<?>> batch = new ArrayList<>();
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, batchSize - 1);
+                    executeBatch(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Throwable e) {
+                    // 包括 Error：本批尚未完成的操作以异常结束，调用方不会一直等待
+                    log.error("选课分片线程异常", e);
+                    for (Operation<?> operation : batch) {
+                        operation.result.completeExceptionally(e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 按顺序执行本批操作：连续的、同一课程的可合并操作放进一个事务提交，其余逐个执行
+         */
+        private void executeBatch(List<Operation<?>> batch) {
+            int start = 0;
+            while (start < batch.size()) {
+                int end = start + 1;
+                while (end < batch.size() && batch.get(start).mergesWith(batch.get(end))) {
+                    end++;
+                }
+                executeRun(batch.subList(start, end));
+                start = end;
+            }
+        }
+
+        /**
+         * 多个操作合并为一个事务提交；任一操作抛出异常时整批回滚并逐个重新执行。座位账本开放时逐个执行
+         */
+        private void executeRun(List<Operation<?>> run) {
+            if (run.size() > 1 && !seatLedger.isActive()) {
+                try {
+                    List<Object> results = transactionTemplate.execute(status -> {
+                        List<Object> values = new ArrayList<>(run.size());
+                        for (Operation<?> operation : run) {
+                            values.add(operation.action.get());
+                        }
+                        return values;
+                    });
+                    for (int i = 0; i < run.size(); i++) {
+                        run.get(i).complete(results.get(i));
+                    }
+                    return;
+                } catch (Exception e) {
+                    log.warn("合并提交 {} 个选课操作失败，逐个重新执行", run.size(), e);
+                }
+            }
+            for (Operation<?> operation : run) {
+                try {
+                    operation.complete(operation.alone
+                            ? operation.action.get()
+                            : transactionTemplate.execute(status -> operation.action.get()));
+                } catch (Exception e) {
+                    operation.result.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private static final class Operation<T> {
+        private final Long courseId;
+        private final Supplier<T> action;
+        /**
+         * 只涉及 courseId 这一门课程，可与同一课程的相邻操作合并
+         */
+        private final boolean mergeable;
+        /**
+         * 处理自行开启事务（{@link #executeAlone}），不合并
+         */
+        private final boolean alone;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Operation(Long courseId, Supplier<T> action, boolean mergeable, boolean alone) {
+            this.courseId = courseId;
+            this.action = action;
+            this.mergeable = mergeable;
+            this.alone = alone;
+        }
+
+        boolean mergesWith(Operation<?> next) {
+            return mergeable && next.mergeable && courseId.equals(next.courseId);
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Object value) {
+            result.complete((T) value);
+        }
+    }
+}
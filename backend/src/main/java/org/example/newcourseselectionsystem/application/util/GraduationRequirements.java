@@ -37,4 +37,11 @@ public final class GraduationRequirements {
 
         CREDIT_REQUIREMENTS = Collections.unmodifiableMap(m);
     }
+
+    /**
+     * 毕业总学分要求
+     */
+    public static int totalRequired() {
+        return CREDIT_REQUIREMENTS.values().stream().mapToInt(Integer::intValue).sum();
+    }
 }
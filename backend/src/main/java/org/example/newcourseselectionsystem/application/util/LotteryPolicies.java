@@ -0,0 +1,18 @@
+package org.example.newcourseselectionsystem.application.util;
+
+/**
+ * 志愿轮次抽签策略常量与判定工具（对应 elective_batches.lottery_policy）
+ */
+public final class LotteryPolicies {
+    private LotteryPolicies() {}
+
+    public static final String UNIFORM = "均等抽签";              // 每条志愿中签概率相同
+    public static final String GRADUATION_WEIGHTED = "毕业加权";  // 临近毕业且该类课程仍缺学分的学生权重更高
+
+    /**
+     * 是否按毕业进度加权；未指定策略时按均等抽签处理
+     */
+    public static boolean isWeighted(String lotteryPolicy) {
+        return lotteryPolicy != null && lotteryPolicy.contains("加权");
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.newcourseselectionsystem.application.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 游标分页的排序键：分组（如已选课程在前）→ 排序值 → 课程ID
+ * <p>
+ * 降序排序时由调用方传入取反后的排序值，比较始终按升序进行。
+ * 游标编码时携带排序方式，换了排序条件的旧游标会被拒绝。
+ */
+public final class PageCursor implements Comparable<PageCursor> {
+
+    private final int group;
+    private final long key;
+    private final long courseId;
+
+    public PageCursor(int group, long key, long courseId) {
+        this.group = group;
+        this.key = key;
+        this.courseId = courseId;
+    }
+
+    /**
+     * 编码为不透明的分页令牌
+     *
+     * @param sort 排序方式标识（排序字段:方向）
+     */
+    public String encode(String sort) {
+        String raw = sort + "|" + group + "|" + key + "|" + courseId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析分页令牌，令牌为空时返回null
+     *
+     * @throws InvalidPageTokenException 令牌格式错误或与当前排序方式不一致
+     */
+    public static PageCursor decode(String token, String sort) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageTokenException("无效的分页令牌");
+        }
+        if (parts.length != 4 || !parts[0].equals(sort)) {
+            throw new InvalidPageTokenException("分页令牌与当前排序条件不一致");
+        }
+        try {
+            return new PageCursor(Integer.parseInt(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+        } catch (NumberFormatException e) {
+            throw new InvalidPageTokenException("无效的分页令牌");
+        }
+    }
+
+    @Override
+    public int compareTo(PageCursor other) {
+        int result = Integer.compare(group, other.group);
+        if (result == 0) {
+            result = Long.compare(key, other.key);
+        }
+        return result != 0 ? result : Long.compare(courseId, other.courseId);
+    }
+
+    /**
+     * 客户端传入的分页令牌无效（格式错误或与当前排序条件不一致）
+     */
+    public static class InvalidPageTokenException extends IllegalArgumentException {
+        public InvalidPageTokenException(String message) {
+            super(message);
+        }
+    }
+}
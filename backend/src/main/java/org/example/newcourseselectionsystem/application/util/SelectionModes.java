@@ -0,0 +1,26 @@
+package org.example.newcourseselectionsystem.application.util;
+
+/**
+ * 选课模式常量与判定工具（对应 elective_batches.selection_mode）
+ */
+public final class SelectionModes {
+    private SelectionModes() {}
+
+    public static final String PREFERENCE = "志愿选课";    // 志愿制：允许超容量预选，结束后抽签
+    public static final String INSTANT = "即选即中";       // 选课后立即生效，容量满即止
+    public static final String FIRST_COME = "先到先得";    // 有余量即可选
+
+    /**
+     * 是否为志愿（抽签）模式；未指定轮次时沿用预选行为
+     */
+    public static boolean isPreference(String selectionMode) {
+        return selectionMode == null || selectionMode.contains("志愿");
+    }
+
+    /**
+     * 是否强制容量上限：即选即中、先到先得均不允许超容量
+     */
+    public static boolean isCapacityEnforced(String selectionMode) {
+        return !isPreference(selectionMode);
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.newcourseselectionsystem.application.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按键（学生ID）划分的令牌桶，无锁实现
+ * <p>
+ * 每个键只保存一个 long：下一个令牌的"理论到达时间"（GCRA 算法，与令牌桶等价）。
+ * 取令牌时按当前时间计算是否超出突发容量，通过 CAS 推进到达时间，不加锁也不分配对象；
+ * 到达时间早于当前时间即表示桶已满，空闲超过一定时长的键可直接移除而不影响限流结果。
+ */
+public class TokenBuckets {
+
+    /**
+     * 每个令牌的间隔（纳秒）
+     */
+    private final long intervalNanos;
+    /**
+     * 允许超前消耗的时长（纳秒），即 (突发容量 - 1) 个令牌间隔
+     */
+    private final long toleranceNanos;
+
+    private final Map<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param permitsPerSecond 每秒补充的令牌数
+     * @param burst            桶容量（允许的突发请求数）
+     */
+    public TokenBuckets(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("令牌补充速率须大于0，桶容量至少为1");
+        }
+        this.intervalNanos = Math.max(1L, (long) (1_000_000_000L / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+    }
+
+    /**
+     * 尝试取一个令牌
+     *
+     * @param key      限流键
+     * @param nowNanos 当前时间（{@link System#nanoTime()}）
+     * @return 0 表示放行；否则为需要等待的纳秒数
+     */
+    public long tryAcquire(long key, long nowNanos) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        }
+        while (true) {
+            long tat = bucket.get();
+            long start = Math.max(tat, nowNanos);
+            long ahead = start - nowNanos;
+            if (ahead > toleranceNanos) {
+                return ahead - toleranceNanos;
+            }
+            if (bucket.compareAndSet(tat, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 移除空闲时长超过 idleNanos 的键（这些键的桶早已补满）
+     *
+     * @return 移除的键数
+     */
+    public int evictIdle(long nowNanos, long idleNanos) {
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> nowNanos - bucket.get() > idleNanos);
+        return before - buckets.size();
+    }
+
+    /**
+     * 当前跟踪的键数
+     */
+    public int size() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.newcourseselectionsystem.config;
+
+import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.interfaces.AdmissionInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * 选课等候室拦截范围：选课与查课接口
+ */
+@Configuration
+@RequiredArgsConstructor
+public class AdmissionConfig implements WebMvcConfigurer {
+
+    private final AdmissionInterceptor admissionInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admissionInterceptor)
+                .addPathPatterns("/api/enrollments/**", "/api/courses/**");
+    }
+}
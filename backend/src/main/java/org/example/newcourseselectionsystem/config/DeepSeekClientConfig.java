@@ -0,0 +1,84 @@
+package org.example.newcourseselectionsystem.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * DeepSeek 调用使用的 HTTP 客户端：全局一个 WebClient，连接池有界并复用长连接
+ * <p>
+ * 连接池开启指标（reactor.netty.connection.provider.*，按 name=deepseek 区分），可在 /actuator/metrics 查看；
+ * 各阶段超时：从连接池取连接、建立 TCP 连接、首字节及相邻两次读取之间的最长间隔（流式响应逐段到达）。
+ * 开启 http2 时通过 TLS 协商优先使用 HTTP/2，服务端不支持时回退 HTTP/1.1。
+ */
+@Configuration
+public class DeepSeekClientConfig {
+
+    @Value("${deepseek.api.key:}")
+    private String apiKey;
+
+    @Value("${deepseek.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${deepseek.http.pending-acquire-max:200}")
+    private int pendingAcquireMax;
+
+    @Value("${deepseek.http.pending-acquire-timeout-ms:2000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${deepseek.http.max-idle-seconds:50}")
+    private long maxIdleSeconds;
+
+    @Value("${deepseek.http.max-life-minutes:10}")
+    private long maxLifeMinutes;
+
+    @Value("${deepseek.http.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${deepseek.http.response-timeout-seconds:60}")
+    private long responseTimeoutSeconds;
+
+    @Value("${deepseek.http.http2:true}")
+    private boolean http2;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider deepSeekConnectionProvider() {
+        return ConnectionProvider.builder("deepseek")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                // 空闲连接在服务端关闭之前回收，避免复用到已被对端关闭的连接
+                .maxIdleTime(Duration.ofSeconds(maxIdleSeconds))
+                .maxLifeTime(Duration.ofMinutes(maxLifeMinutes))
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClient deepSeekWebClient(WebClient.Builder webClientBuilder, ConnectionProvider deepSeekConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(deepSeekConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(Duration.ofSeconds(responseTimeoutSeconds));
+        if (http2) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .build();
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.newcourseselectionsystem.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置（座位账本回写、轮次开放检测等）
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.Data;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 /**
@@ -32,4 +33,10 @@ public class ElectiveBatch {
     private String status; // 状态：未开始、进行中、已结束
 
     private String description; // 说明
+
+    private String lotteryPolicy; // 抽签策略：均等抽签、毕业加权（仅志愿轮次）
+
+    private BigDecimal seniorityWeight; // 毕业加权：毕业进度系数，为空时使用全局配置
+
+    private BigDecimal deficitWeight; // 毕业加权：学分缺口系数，为空时使用全局配置
 }
@@ -0,0 +1,35 @@
+package org.example.newcourseselectionsystem.domain.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 选课/退课请求幂等记录实体
+ */
+@Data
+@TableName("idempotency_records")
+public class IdempotencyRecord {
+
+    @TableId(value = "record_id", type = IdType.AUTO)
+    private Long recordId;
+
+    private Long studentId;
+
+    private String requestKey; // 客户端生成的请求键
+
+    private String operation; // 操作类型：选课、退课
+
+    private Boolean success; // 首次处理结果
+
+    private String message;
+
+    private String warn;
+
+    private Long enrollmentId;
+
+    private LocalDateTime createdAt;
+}
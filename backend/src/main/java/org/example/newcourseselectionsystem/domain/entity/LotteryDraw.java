@@ -0,0 +1,35 @@
+package org.example.newcourseselectionsystem.domain.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 志愿轮次抽签记录实体
+ */
+@Data
+@TableName("lottery_draws")
+public class LotteryDraw {
+
+    @TableId(value = "draw_id", type = IdType.AUTO)
+    private Long drawId;
+
+    private Long batchId; // 抽签的选课轮次
+
+    private Long seed; // 随机种子，用于复现抽签结果
+
+    private String policy; // 抽签策略及所用系数
+
+    private Integer courseCount; // 超容量、参与抽签的课程数
+
+    private Integer entrantCount; // 参与抽签的选课记录数
+
+    private Integer loserCount; // 未中签的选课记录数
+
+    private LocalDateTime drawnAt; // 抽签时间
+
+    private Long elapsedMs; // 抽签耗时（毫秒）
+}
@@ -0,0 +1,31 @@
+package org.example.newcourseselectionsystem.domain.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 课程候补记录实体
+ */
+@Data
+@TableName("waitlist_entries")
+public class WaitlistEntry {
+
+    @TableId(value = "entry_id", type = IdType.AUTO)
+    private Long entryId;
+
+    private Long studentId;
+
+    private Long courseId;
+
+    private Long batchId; // 候补所属的选课轮次
+
+    private LocalDateTime joinedAt; // 加入候补时间
+
+    private String status; // 候补状态：等待中、已递补、已取消
+
+    private LocalDateTime resolvedAt; // 递补或取消时间
+}
@@ -1,25 +1,34 @@
 package org.example.newcourseselectionsystem.infrastructure.client;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * DeepSeek API 客户端
@@ -29,50 +38,75 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class DeepSeekApiClient {
 
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient deepSeekWebClient;
     private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
 
-    @Value("${deepseek.api.key:}")
-    private String apiKey;
+    @Value("${deepseek.api.url:https://api.deepseek.com/chat/completions}")
+    private String apiUrl;
 
-    private static final String BASE_URL = "https://api.deepseek.com/chat/completions";
+    @Value("${deepseek.http.stream-timeout-minutes:5}")
+    private long streamTimeoutMinutes;
+
+    private static final byte[] DONE = "[DONE]".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 从发出请求到收到响应首个分片的耗时
+     */
+    private Timer timeToFirstByte;
+
+    @PostConstruct
+    public void init() {
+        timeToFirstByte = Timer.builder("deepseek.time.to.first.byte")
+                .description("DeepSeek 流式调用从发出请求到收到首个分片的耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 预先序列化一条消息：内容不变的长消息只做一次 JSON 转义，之后按原样写入请求体
+     */
+    public RawValue precompute(Message message) {
+        try {
+            return new RawValue(objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化消息失败", e);
+        }
+    }
 
     /**
      * 调用 DeepSeek API 获取流式推荐结果
      *
-     * @param messages 消息列表
+     * @param messages 消息列表，元素为 {@link Message} 或 {@link #precompute} 得到的预序列化消息
      * @return AI 回复内容流
      */
-    public Flux<String> chatStream(List<Message> messages) {
+    public Flux<String> chatStream(List<?> messages) {
         try {
             Map<String, Object> requestBody = new HashMap<>();
             requestBody.put("model", "deepseek-chat");
             requestBody.put("messages", messages);
             requestBody.put("stream", true);
 
-            WebClient webClient = webClientBuilder
-                    .baseUrl(BASE_URL)
-                    .defaultHeader("Authorization", "Bearer " + apiKey)
-                    .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
-                    .build();
-
-            return webClient.post()
-                    .uri(BASE_URL)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToFlux(DataBuffer.class)
-                    .timeout(Duration.ofMinutes(5))
-                    .map(dataBuffer -> {
-                        byte[] bytes = new byte[dataBuffer.readableByteCount()];
-                        dataBuffer.read(bytes);
-                        DataBufferUtils.release(dataBuffer);
-                        return new String(bytes, StandardCharsets.UTF_8);
-                    })
-                    .flatMap(this::parseSSELines)
-                    .filter(data -> data != null && !data.trim().isEmpty())
-                    .filter(data -> !data.equals("data: [DONE]"))
-                    .map(this::parseStreamData)
-                    .filter(content -> content != null && !content.isEmpty())
+            return Flux.defer(() -> {
+                long start = System.nanoTime();
+                Timer.Sample stream = Timer.start(meterRegistry);
+                AtomicBoolean firstByte = new AtomicBoolean();
+                return deepSeekWebClient.post()
+                        .uri(apiUrl)
+                        .bodyValue(requestBody)
+                        .retrieve()
+                        .bodyToFlux(DataBuffer.class)
+                        .doOnNext(buffer -> {
+                            if (firstByte.compareAndSet(false, true)) {
+                                timeToFirstByte.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                            }
+                        })
+                        .timeout(Duration.ofMinutes(streamTimeoutMinutes))
+                        .transform(this::decodeContent)
+                        .doOnComplete(() -> stream.stop(streamTimer("completed")))
+                        .doOnError(error -> stream.stop(streamTimer("error")))
+                        .doOnCancel(() -> stream.stop(streamTimer("cancelled")));
+            })
                     .doOnError(error -> log.error("调用 DeepSeek API 失败", error))
                     .onErrorResume(error -> {
                         log.error("DeepSeek API 流式调用失败", error);
@@ -85,45 +119,99 @@ public class DeepSeekApiClient {
     }
 
     /**
-     * 解析 SSE 格式的多行数据
+     * 流式调用总耗时，按结束方式区分（正常结束 / 出错 / 客户端取消）
      */
-    private Flux<String> parseSSELines(String data) {
-        String[] lines = data.split("\n");
-        return Flux.fromArray(lines)
-                .filter(line -> line.startsWith("data: "));
+    private Timer streamTimer(String outcome) {
+        return meterRegistry.timer("deepseek.stream.duration", "outcome", outcome);
     }
 
     /**
-     * 解析流式数据
+     * 把响应字节流解码为回复内容：每次订阅一个增量 SSE 解码器，跨分片保留未完成的行
      */
-    private String parseStreamData(String data) {
-        try {
-            // SSE 格式: "data: {...}"
-            if (data.startsWith("data: ")) {
-                String jsonStr = data.substring(6).trim();
-                if (jsonStr.equals("[DONE]")) {
-                    return null;
+    private Flux<String> decodeContent(Flux<DataBuffer> buffers) {
+        return Flux.defer(() -> {
+            SseEventDecoder decoder = new SseEventDecoder();
+            return buffers.concatMapIterable(buffer -> {
+                try {
+                    List<String> contents = new ArrayList<>(2);
+                    decoder.feed(buffer.asByteBuffer(), (data, length) -> addContent(contents, data, length));
+                    return contents;
+                } finally {
+                    DataBufferUtils.release(buffer);
                 }
-                JsonNode jsonNode = objectMapper.readTree(jsonStr);
-                JsonNode choices = jsonNode.get("choices");
-                if (choices != null && choices.isArray() && choices.size() > 0) {
-                    JsonNode choice = choices.get(0);
-                    JsonNode delta = choice.get("delta");
-                    if (delta != null) {
-                        JsonNode content = delta.get("content");
-                        if (content != null && content.isTextual()) {
-                            return content.asText();
-                        }
-                    }
+            }).concatWith(Flux.defer(() -> {
+                List<String> contents = new ArrayList<>(1);
+                decoder.finish((data, length) -> addContent(contents, data, length));
+                return Flux.fromIterable(contents);
+            }));
+        });
+    }
+
+    private void addContent(List<String> contents, byte[] data, int length) {
+        String content = parseContent(data, length);
+        if (content != null && !content.isEmpty()) {
+            contents.add(content);
+        }
+    }
+
+    /**
+     * 用流式解析器从事件数据中取 choices[0].delta.content，不构建节点树；结束标记 [DONE] 返回null
+     */
+    private String parseContent(byte[] data, int length) {
+        if (isDone(data, length)) {
+            return null;
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(data, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                    return parser.nextToken() == JsonToken.START_OBJECT ? choiceContent(parser) : null;
                 }
+                parser.skipChildren();
             }
             return null;
-        } catch (Exception e) {
-            log.warn("解析流式数据失败: {}", data, e);
+        } catch (IOException e) {
+            log.warn("解析流式数据失败: {}", new String(data, 0, length, StandardCharsets.UTF_8), e);
             return null;
         }
     }
 
+    private static boolean isDone(byte[] data, int length) {
+        if (length != DONE.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (data[i] != DONE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String choiceContent(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("delta".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String deltaField = parser.getCurrentName();
+                    JsonToken deltaValue = parser.nextToken();
+                    if ("content".equals(deltaField) && deltaValue == JsonToken.VALUE_STRING) {
+                        return parser.getText();
+                    }
+                    parser.skipChildren();
+                }
+                return null;
+            }
+            parser.skipChildren();
+        }
+        return null;
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -0,0 +1,114 @@
+package org.example.newcourseselectionsystem.infrastructure.client;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 增量 SSE（text/event-stream）解码器，每个响应流一个实例，非线程安全
+ * <p>
+ * 网络分片可能在任意字节处切断一行甚至一个多字节 UTF-8 字符，因此按字节累积到换行才处理一行：
+ * UTF-8 多字节字符的任何字节都不会是 '\n'，完整的行里不会有被切开的字符。
+ * 同一事件的多行 data 以 '\n' 连接，遇到空行派发；注释行（':' 开头）与其他字段忽略。
+ * 行缓冲与事件数据缓冲在整个流内复用，派发时直接交出缓冲区与长度，不为每行创建字符串。
+ */
+final class SseEventDecoder {
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte[] DATA = {'d', 'a', 't', 'a'};
+
+    /**
+     * 事件数据回调；buffer 在回调返回后会被复用
+     */
+    interface DataListener {
+        void onData(byte[] buffer, int length);
+    }
+
+    private byte[] line = new byte[1024];
+    private int lineLength;
+    private byte[] data = new byte[1024];
+    private int dataLength;
+    private boolean hasData;
+
+    /**
+     * 输入一段字节，派发其中已经完整的事件
+     */
+    void feed(ByteBuffer bytes, DataListener listener) {
+        int end = bytes.limit();
+        for (int i = bytes.position(); i < end; i++) {
+            byte b = bytes.get(i);
+            if (b == LF) {
+                processLine(listener);
+            } else {
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, lineLength * 2);
+                }
+                line[lineLength++] = b;
+            }
+        }
+        bytes.position(end);
+    }
+
+    /**
+     * 流结束：未以换行结尾的最后一行与未遇到空行的事件也一并派发
+     */
+    void finish(DataListener listener) {
+        if (lineLength > 0) {
+            processLine(listener);
+        }
+        dispatch(listener);
+    }
+
+    private void processLine(DataListener listener) {
+        int length = lineLength;
+        lineLength = 0;
+        if (length > 0 && line[length - 1] == CR) {
+            length--;
+        }
+        if (length == 0) {
+            dispatch(listener);
+            return;
+        }
+        if (line[0] == ':' || !isDataField(length)) {
+            return;
+        }
+        // "data:" 之后可有一个可选空格
+        int valueStart = DATA.length + 1;
+        if (valueStart < length && line[valueStart] == ' ') {
+            valueStart++;
+        }
+        int valueLength = length - valueStart;
+        int required = dataLength + valueLength + (hasData ? 1 : 0);
+        if (required > data.length) {
+            data = Arrays.copyOf(data, Math.max(required, data.length * 2));
+        }
+        if (hasData) {
+            data[dataLength++] = LF;
+        }
+        System.arraycopy(line, valueStart, data, dataLength, valueLength);
+        dataLength += valueLength;
+        hasData = true;
+    }
+
+    private boolean isDataField(int length) {
+        if (length < DATA.length + 1 || line[DATA.length] != ':') {
+            return false;
+        }
+        for (int i = 0; i < DATA.length; i++) {
+            if (line[i] != DATA[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void dispatch(DataListener listener) {
+        if (!hasData) {
+            return;
+        }
+        int length = dataLength;
+        dataLength = 0;
+        hasData = false;
+        listener.onData(data, length);
+    }
+}
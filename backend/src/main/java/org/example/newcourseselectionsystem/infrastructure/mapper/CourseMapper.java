@@ -2,11 +2,90 @@ package org.example.newcourseselectionsystem.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 import org.example.newcourseselectionsystem.domain.entity.Course;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * 课程表 Mapper
  */
 @Mapper
 public interface CourseMapper extends BaseMapper<Course> {
+
+    /**
+     * 原子占座：在一条条件更新语句中完成容量检查与已选人数自增，避免读-改-写丢失更新
+     *
+     * @param courseId      课程ID
+     * @param hardCapacity  是否强制容量上限（true：已满则不更新；false：预选模式，允许超容量）
+     * @return 受影响行数，1 表示占座成功，0 表示课程不存在或已满
+     */
+    @Update("<script>"
+            + "UPDATE courses SET enrolled_count = COALESCE(enrolled_count, 0) + 1 "
+            + "WHERE course_id = #{courseId}"
+            + "<if test='hardCapacity'>"
+            + " AND (capacity IS NULL OR capacity &lt;= 0 OR COALESCE(enrolled_count, 0) &lt; capacity)"
+            + "</if>"
+            + "</script>")
+    int reserveSeat(@Param("courseId") Long courseId, @Param("hardCapacity") boolean hardCapacity);
+
+    /**
+     * 原子释放座位：已选人数减去指定数量，且不会小于0
+     *
+     * @param courseId 课程ID
+     * @param count    释放的座位数
+     * @return 受影响行数
+     */
+    @Update("UPDATE courses SET enrolled_count = GREATEST(COALESCE(enrolled_count, 0) - #{count}, 0) "
+            + "WHERE course_id = #{courseId}")
+    int releaseSeats(@Param("courseId") Long courseId, @Param("count") int count);
+
+    /**
+     * 按增量调整已选人数（用于批量回写），且不会小于0
+     *
+     * @param courseId 课程ID
+     * @param delta    增量，可为负数
+     * @return 受影响行数
+     */
+    @Update("UPDATE courses SET enrolled_count = GREATEST(COALESCE(enrolled_count, 0) + #{delta}, 0) "
+            + "WHERE course_id = #{courseId}")
+    int adjustEnrolledCount(@Param("courseId") Long courseId, @Param("delta") int delta);
+
+    /**
+     * 锁定并读取一组课程的名称、容量与已选人数（批量选课在同一事务内据此判定，再统一占座）
+     *
+     * @param courseIds 课程ID
+     * @return 课程ID、名称、容量与已选人数
+     */
+    @Select("<script>"
+            + "SELECT course_id, course_name, capacity, enrolled_count FROM courses WHERE course_id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + " ORDER BY course_id FOR UPDATE"
+            + "</script>")
+    List<Course> selectSeatsForUpdate(@Param("ids") Collection<Long> courseIds);
+
+    /**
+     * 一组课程的已选人数各加1（单条更新）
+     *
+     * @param courseIds 课程ID
+     * @return 受影响行数
+     */
+    @Update("<script>"
+            + "UPDATE courses SET enrolled_count = COALESCE(enrolled_count, 0) + 1 WHERE course_id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + "</script>")
+    int incrementEnrolledCounts(@Param("ids") Collection<Long> courseIds);
+
+    /**
+     * 课程目录指纹：各行除已选人数外全部列的 CRC32 之和，课程增删或任一列（名称、描述、学院、类型、
+     * 校区、教室、教师、学分、周次、容量）变化时改变；空值以占位值参与计算，保持各列位置不变
+     */
+    @Select("SELECT COUNT(*) * 1000003 + COALESCE(SUM(CRC32(CONCAT_WS('|', course_id, course_name, "
+            + "COALESCE(credits, -1), COALESCE(description, ''), COALESCE(college, ''), COALESCE(type, ''), "
+            + "COALESCE(campus, ''), COALESCE(classroom, ''), COALESCE(instructor_name, ''), "
+            + "COALESCE(start_week, -1), COALESCE(end_week, -1), COALESCE(capacity, -1)))), 0) FROM courses")
+    Long catalogFingerprint();
 }
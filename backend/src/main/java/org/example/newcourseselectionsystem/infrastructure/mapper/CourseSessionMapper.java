@@ -2,6 +2,7 @@ package org.example.newcourseselectionsystem.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
 import org.example.newcourseselectionsystem.domain.entity.CourseSession;
 
 /**
@@ -9,4 +10,11 @@ import org.example.newcourseselectionsystem.domain.entity.CourseSession;
  */
 @Mapper
 public interface CourseSessionMapper extends BaseMapper<CourseSession> {
+
+    /**
+     * 节次表指纹：各行全部列的 CRC32 之和，节次增删、改到其他星期或调整节次、单双周时改变
+     */
+    @Select("SELECT COUNT(*) * 1000003 + COALESCE(SUM(CRC32(CONCAT_WS('|', session_id, course_id, weekday, "
+            + "start_period, end_period, COALESCE(week_type, 0)))), 0) FROM course_sessions")
+    Long sessionFingerprint();
 }
@@ -1,12 +1,83 @@
 package org.example.newcourseselectionsystem.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import lombok.Data;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 import org.example.newcourseselectionsystem.domain.entity.Enrollment;
 
+import java.util.List;
+
 /**
  * 选课记录 Mapper
  */
 @Mapper
 public interface EnrollmentMapper extends BaseMapper<Enrollment> {
+
+    /**
+     * 批量插入选课记录（单条多值 INSERT），回填自增主键
+     */
+    @Insert("<script>"
+            + "INSERT INTO enrollments (student_id, course_id, batch_id, enrolled_at, status) VALUES "
+            + "<foreach collection='list' item='e' separator=','>"
+            + "(#{e.studentId}, #{e.courseId}, #{e.batchId}, #{e.enrolledAt}, #{e.status})"
+            + "</foreach>"
+            + "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "enrollmentId", keyColumn = "enrollment_id")
+    int insertBatch(@Param("list") List<Enrollment> enrollments);
+
+    /**
+     * 按课程统计状态为"已选"的选课记录数
+     */
+    @Select("SELECT course_id, COUNT(*) AS seat_count FROM enrollments WHERE status = '已选' GROUP BY course_id")
+    List<CourseSeatCount> countActiveSeatsByCourse();
+
+    /**
+     * 将仍为"已选"的选课记录批量标记为未中签（单条 IN 条件更新）
+     *
+     * @param enrollmentIds 选课记录ID
+     * @return 实际更新的行数
+     */
+    @Update("<script>"
+            + "UPDATE enrollments SET status = '未中签' WHERE status = '已选' AND enrollment_id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + "</script>")
+    int markLotteryLosers(@Param("ids") List<Long> enrollmentIds);
+
+    /**
+     * 统计轮次内报名学生各课程类型的已修学分（同一课程多条"已修"记录只计一次，与毕业状态查询口径一致）
+     *
+     * @param batchId 选课轮次ID
+     * @return 每个学生每种课程类型一行
+     */
+    @Select("SELECT t.student_id, c.type, SUM(c.credits) AS credits "
+            + "FROM (SELECT DISTINCT student_id, course_id FROM enrollments WHERE status = '已修' "
+            + "AND student_id IN (SELECT student_id FROM enrollments WHERE batch_id = #{batchId} AND status = '已选')) t "
+            + "JOIN courses c ON c.course_id = t.course_id "
+            + "WHERE c.type IS NOT NULL "
+            + "GROUP BY t.student_id, c.type")
+    List<StudentTypeCredits> sumCompletedCreditsByType(@Param("batchId") Long batchId);
+
+    /**
+     * 学生某一课程类型的已修学分统计行
+     */
+    @Data
+    class StudentTypeCredits {
+        private Long studentId;
+        private String type;
+        private Integer credits;
+    }
+
+    /**
+     * 课程已选人数统计行
+     */
+    @Data
+    class CourseSeatCount {
+        private Long courseId;
+        private Integer seatCount;
+    }
 }
@@ -0,0 +1,12 @@
+package org.example.newcourseselectionsystem.infrastructure.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.example.newcourseselectionsystem.domain.entity.IdempotencyRecord;
+
+/**
+ * 请求幂等记录Mapper
+ */
+@Mapper
+public interface IdempotencyRecordMapper extends BaseMapper<IdempotencyRecord> {
+}
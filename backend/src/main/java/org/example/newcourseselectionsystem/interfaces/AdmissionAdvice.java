@@ -0,0 +1,60 @@
+package org.example.newcourseselectionsystem.interfaces;
+
+import org.example.newcourseselectionsystem.application.request.StudentScoped;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 等候室开启期间核对请求体中的学生ID与准入凭证签发给的学生一致，不一致时返回 403
+ */
+@RestControllerAdvice
+public class AdmissionAdvice extends RequestBodyAdviceAdapter {
+
+    static final String MISMATCH_MESSAGE = "准入凭证与当前学生不符";
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return StudentScoped.class.isAssignableFrom(methodParameter.getParameterType());
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        Object admitted = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest()
+                .getAttribute(AdmissionInterceptor.ADMITTED_STUDENT);
+        if (admitted != null && !admitted.equals(((StudentScoped) body).getStudentId())) {
+            throw new AdmissionMismatchException();
+        }
+        return body;
+    }
+
+    @ExceptionHandler(AdmissionMismatchException.class)
+    public ResponseEntity<Map<String, Object>> mismatched() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", false);
+        body.put("message", MISMATCH_MESSAGE);
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(body);
+    }
+
+    /**
+     * 凭证与请求的学生不符（不填充调用栈）
+     */
+    static class AdmissionMismatchException extends RuntimeException {
+        AdmissionMismatchException() {
+            super("admission token mismatch", null, false, false);
+        }
+    }
+}
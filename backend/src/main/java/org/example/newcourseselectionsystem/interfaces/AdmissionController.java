@@ -0,0 +1,53 @@
+package org.example.newcourseselectionsystem.interfaces;
+
+import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.dto.AdmissionDTO;
+import org.example.newcourseselectionsystem.application.enrollment.WaitingRoom;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 选课等候室接口
+ */
+@RestController
+@RequestMapping("/api/admission")
+@RequiredArgsConstructor
+public class AdmissionController {
+
+    private final WaitingRoom waitingRoom;
+
+    /**
+     * 进入等候室：名额未满时直接返回准入凭证，否则返回排队名次
+     */
+    @PostMapping("/join")
+    public AdmissionDTO join(@RequestParam Long studentId) {
+        return waitingRoom.join(studentId);
+    }
+
+    /**
+     * 查询排队名次，放行后返回准入凭证
+     */
+    @GetMapping("/status")
+    public AdmissionDTO status(@RequestParam Long studentId) {
+        return waitingRoom.status(studentId);
+    }
+
+    /**
+     * 离开等候室，释放名额：离开的是请求头中准入凭证签发给的学生，凭证无效时返回 403
+     */
+    @PostMapping("/leave")
+    public ResponseEntity<AdmissionDTO> leave(
+            @RequestHeader(value = AdmissionInterceptor.TOKEN_HEADER, required = false) String token) {
+        if (!waitingRoom.leave(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(AdmissionDTO.builder().admitted(false).message("准入凭证无效或已失效").build());
+        }
+        return ResponseEntity.ok(AdmissionDTO.builder().admitted(false).message("已离开等候室").build());
+    }
+}
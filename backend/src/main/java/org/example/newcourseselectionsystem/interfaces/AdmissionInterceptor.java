@@ -0,0 +1,74 @@
+package org.example.newcourseselectionsystem.interfaces;
+
+import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.enrollment.WaitingRoom;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 等候室开启期间，选课与查课接口须携带有效的准入凭证，凭证只能用于签发给的学生：
+ * 查询参数或路径中的学生ID在此核对，请求体中的学生ID由 {@link AdmissionAdvice} 在反序列化后核对
+ */
+@Component
+@RequiredArgsConstructor
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    public static final String TOKEN_HEADER = "X-Admission-Token";
+
+    /**
+     * 请求属性：凭证签发给的学生ID
+     */
+    static final String ADMITTED_STUDENT = AdmissionInterceptor.class.getName() + ".admittedStudent";
+
+    private final WaitingRoom waitingRoom;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!waitingRoom.isActive() || HttpMethod.OPTIONS.matches(request.getMethod())) {
+            return true;
+        }
+        Long admitted = waitingRoom.admittedStudent(request.getHeader(TOKEN_HEADER));
+        if (admitted == null) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+            writeBody(response, "选课人数较多，请先通过 /api/admission/join 排队获取准入凭证");
+            return false;
+        }
+        if (!matchesRequestedStudent(request, admitted)) {
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            writeBody(response, AdmissionAdvice.MISMATCH_MESSAGE);
+            return false;
+        }
+        request.setAttribute(ADMITTED_STUDENT, admitted);
+        return true;
+    }
+
+    /**
+     * 查询参数或路径变量中的学生ID与凭证一致（没有时由请求体核对）
+     */
+    private static boolean matchesRequestedStudent(HttpServletRequest request, Long admitted) {
+        String requested = request.getParameter("studentId");
+        if (requested == null) {
+            Map<?, ?> pathVariables = (Map<?, ?>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+            requested = pathVariables != null ? (String) pathVariables.get("studentId") : null;
+        }
+        return requested == null || requested.equals(String.valueOf(admitted));
+    }
+
+    private static void writeBody(HttpServletResponse response, String message) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"success\":false,\"message\":\"" + message + "\"}");
+    }
+}
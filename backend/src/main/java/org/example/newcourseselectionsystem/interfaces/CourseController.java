@@ -1,20 +1,32 @@
 package org.example.newcourseselectionsystem.interfaces;
 
 import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.dto.CoursePageDTO;
 import org.example.newcourseselectionsystem.application.dto.CourseWithSessionsDTO;
+import org.example.newcourseselectionsystem.application.dto.FacetValueDTO;
 import org.example.newcourseselectionsystem.application.request.CourseAttributeQueryRequest;
+import org.example.newcourseselectionsystem.application.request.CourseFacetRequest;
+import org.example.newcourseselectionsystem.application.request.CoursePageRequest;
 import org.example.newcourseselectionsystem.application.request.CourseQueryRequest;
 import org.example.newcourseselectionsystem.application.request.SessionQueryRequest;
 import org.example.newcourseselectionsystem.application.request.CombinedCourseQueryRequest;
+import org.example.newcourseselectionsystem.application.service.CourseConflictService;
 import org.example.newcourseselectionsystem.application.service.CourseService;
+import org.example.newcourseselectionsystem.application.util.PageCursor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 课程查询接口
@@ -26,6 +38,7 @@ import java.util.List;
 public class CourseController {
 
     private final CourseService courseService;
+    private final CourseConflictService courseConflictService;
 
     /**
      * 新的合并查询接口：课程字段 + 可选节次条件
@@ -35,6 +48,15 @@ public class CourseController {
         return courseService.searchCourses(request);
     }
 
+    /**
+     * 合并查询（游标分页），分页参数通过查询字符串传递
+     */
+    @PostMapping("/search/combined/page")
+    public CoursePageDTO searchCombinedPage(@Valid @RequestBody CombinedCourseQueryRequest request,
+                                            @Valid CoursePageRequest page) {
+        return courseService.searchCourses(request, page);
+    }
+
     /**
      * 根据课程字段组合检索，返回携带节次信息的课程信息
      */
@@ -43,6 +65,14 @@ public class CourseController {
         return courseService.listCoursesByCondition(request);
     }
 
+    /**
+     * 根据课程字段组合检索（游标分页）
+     */
+    @PostMapping("/search/page")
+    public CoursePageDTO searchCoursesPage(@RequestBody CourseQueryRequest request, @Valid CoursePageRequest page) {
+        return courseService.listCoursesByCondition(request, page);
+    }
+
     /**
      * 根据节次条件倒查所有课程，返回携带节次信息的完整课程信息
      */
@@ -51,6 +81,15 @@ public class CourseController {
         return courseService.listCoursesBySession(request);
     }
 
+    /**
+     * 根据节次条件倒查课程（游标分页）
+     */
+    @PostMapping("/search-by-session/page")
+    public CoursePageDTO searchCoursesBySessionPage(@Valid @RequestBody SessionQueryRequest request,
+                                                    @Valid CoursePageRequest page) {
+        return courseService.listCoursesBySession(request, page);
+    }
+
     /**
      * 根据条件筛选课程，返回指定属性的所有唯一值集合
      * 例如：查询所有教师为刘钦且classroom为A101的课程的campus集合
@@ -60,6 +99,14 @@ public class CourseController {
         return courseService.getAttributeValues(request);
     }
 
+    /**
+     * 分面统计：一次返回多个属性（学院、校区、类型、学分、教室、星期）的取值及课程数，用于构建筛选下拉框
+     */
+    @PostMapping("/facets")
+    public Map<String, List<FacetValueDTO>> getFacets(@Valid @RequestBody CourseFacetRequest request) {
+        return courseService.getFacets(request);
+    }
+
     /**
      * 根据课程ID列表查询课程详情
      */
@@ -68,6 +115,41 @@ public class CourseController {
         return courseService.listCoursesByIds(request.courseIds, request.studentId);
     }
 
+    /**
+     * 根据课程ID列表查询课程详情（游标分页）
+     */
+    @PostMapping("/ids/page")
+    public CoursePageDTO getCoursesByIdsPage(@RequestBody CourseIdsRequest request, @Valid CoursePageRequest page) {
+        return courseService.listCoursesByIds(request.courseIds, request.studentId, page);
+    }
+
+    /**
+     * 分页令牌无效或与排序条件不一致
+     */
+    @ExceptionHandler(PageCursor.InvalidPageTokenException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidPageToken(PageCursor.InvalidPageTokenException e) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", false);
+        body.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    /**
+     * 查询与指定课程时间冲突的全部课程ID
+     */
+    @GetMapping("/{courseId}/conflicts")
+    public List<Long> getConflictingCourses(@PathVariable Long courseId) {
+        return courseConflictService.listConflictingCourseIds(courseId);
+    }
+
+    /**
+     * 判断两门课程是否时间冲突
+     */
+    @GetMapping("/{courseId}/conflicts/{otherCourseId}")
+    public boolean isConflicting(@PathVariable Long courseId, @PathVariable Long otherCourseId) {
+        return courseConflictService.conflicts(courseId, otherCourseId);
+    }
+
     public static class CourseIdsRequest {
         public List<Long> courseIds;
         public Long studentId;
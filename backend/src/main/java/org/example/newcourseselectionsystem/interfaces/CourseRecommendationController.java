@@ -1,15 +1,20 @@
 package org.example.newcourseselectionsystem.interfaces;
 
 import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.recommendation.RecommendationBulkhead;
 import org.example.newcourseselectionsystem.application.request.CourseRecommendationRequest;
 import org.example.newcourseselectionsystem.application.service.CourseRecommendationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 
 import javax.validation.Valid;
@@ -25,43 +30,76 @@ import java.io.IOException;
 public class CourseRecommendationController {
 
     private final CourseRecommendationService courseRecommendationService;
+    private final RecommendationBulkhead recommendationBulkhead;
 
     /**
      * 获取流式课程推荐（Server-Sent Events）
+     * <p>
+     * 同时进行的推荐流数量受隔离舱限制，繁忙时返回 503（Retry-After）并推送一条 error 事件
      *
      * @param request 推荐请求
      * @return SSE 流式响应
      */
     @PostMapping(value = "/recommend", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter recommendStream(@Valid @RequestBody CourseRecommendationRequest request) {
+    public ResponseEntity<SseEmitter> recommendStream(@Valid @RequestBody CourseRecommendationRequest request) {
+        RecommendationBulkhead.Permit permit = recommendationBulkhead.tryAcquire();
+        if (permit == null) {
+            SseEmitter busy = new SseEmitter();
+            try {
+                busy.send(SseEmitter.event()
+                        .data("推荐服务繁忙，请稍后重试")
+                        .name("error"));
+            } catch (IOException e) {
+                // 忽略发送错误时的异常
+            }
+            busy.complete();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(recommendationBulkhead.getRetryAfterSeconds()))
+                    .body(busy);
+        }
+
         SseEmitter emitter = new SseEmitter(300000L); // 5分钟超时
+        Disposable subscription;
+        try {
+            Flux<String> recommendationStream = courseRecommendationService.getRecommendationStream(request)
+                    .doFinally(signal -> permit.release());
 
-        Flux<String> recommendationStream = courseRecommendationService.getRecommendationStream(request);
+            subscription = recommendationStream.subscribe(
+                    content -> {
+                        try {
+                            emitter.send(SseEmitter.event()
+                                    .data(content)
+                                    .name("message"));
+                        } catch (IOException e) {
+                            emitter.completeWithError(e);
+                        }
+                    },
+                    error -> {
+                        try {
+                            emitter.send(SseEmitter.event()
+                                    .data("错误: " + error.getMessage())
+                                    .name("error"));
+                        } catch (IOException e) {
+                            // 忽略发送错误时的异常
+                        }
+                        emitter.completeWithError(error);
+                    },
+                    () -> emitter.complete()
+            );
+        } catch (RuntimeException e) {
+            permit.release();
+            throw e;
+        }
 
-        recommendationStream.subscribe(
-                content -> {
-                    try {
-                        emitter.send(SseEmitter.event()
-                                .data(content)
-                                .name("message"));
-                    } catch (IOException e) {
-                        emitter.completeWithError(e);
-                    }
-                },
-                error -> {
-                    try {
-                        emitter.send(SseEmitter.event()
-                                .data("错误: " + error.getMessage())
-                                .name("error"));
-                    } catch (IOException e) {
-                        // 忽略发送错误时的异常
-                    }
-                    emitter.completeWithError(error);
-                },
-                () -> emitter.complete()
-        );
+        // 客户端断开或超时：取消上游调用并归还名额
+        Runnable cleanUp = () -> {
+            subscription.dispose();
+            permit.release();
+        };
+        emitter.onCompletion(cleanUp);
+        emitter.onTimeout(cleanUp);
+        emitter.onError(error -> cleanUp.run());
 
-        return emitter;
+        return ResponseEntity.ok(emitter);
     }
 }
-
@@ -2,7 +2,9 @@ package org.example.newcourseselectionsystem.interfaces;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.enrollment.LotteryEngine;
 import org.example.newcourseselectionsystem.domain.entity.ElectiveBatch;
+import org.example.newcourseselectionsystem.domain.entity.LotteryDraw;
 import org.example.newcourseselectionsystem.infrastructure.mapper.ElectiveBatchMapper;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -22,6 +24,7 @@ import java.util.Map;
 public class ElectiveBatchController {
 
     private final ElectiveBatchMapper electiveBatchMapper;
+    private final LotteryEngine lotteryEngine;
 
     /**
      * 获取所有选课轮次
@@ -114,4 +117,35 @@ public class ElectiveBatchController {
 
         return ResponseEntity.ok(batch);
     }
+
+    /**
+     * 对志愿轮次执行抽签（轮次结束后也会自动执行），已抽签时返回已有记录
+     *
+     * @param seed 随机种子，传入相同种子可复现抽签结果；为空时随机生成
+     */
+    @PostMapping("/{id}/lottery")
+    public ResponseEntity<LotteryDraw> drawLottery(@PathVariable Long id,
+            @RequestParam(required = false) Long seed) {
+        return ResponseEntity.ok(lotteryEngine.draw(id, seed));
+    }
+
+    /**
+     * 获取轮次的抽签记录
+     */
+    @GetMapping("/{id}/lottery")
+    public ResponseEntity<LotteryDraw> getLottery(@PathVariable Long id) {
+        LotteryDraw draw = lotteryEngine.findDraw(id);
+        if (draw == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(draw);
+    }
+
+    /**
+     * 轮次不存在或不是志愿轮次
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
 }
@@ -1,21 +1,37 @@
 package org.example.newcourseselectionsystem.interfaces;
 
 import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.dto.CartEnrollmentResponse;
 import org.example.newcourseselectionsystem.application.dto.CourseWithSessionsDTO;
 import org.example.newcourseselectionsystem.application.dto.EnrollmentResponse;
+import org.example.newcourseselectionsystem.application.dto.EnrollmentTicketDTO;
+import org.example.newcourseselectionsystem.application.dto.WaitlistPositionDTO;
+import org.example.newcourseselectionsystem.application.enrollment.EnrollmentQueue;
+import org.example.newcourseselectionsystem.application.enrollment.IdempotentRequests;
+import org.example.newcourseselectionsystem.application.enrollment.SeatLedger;
+import org.example.newcourseselectionsystem.application.request.CartEnrollmentRequest;
 import org.example.newcourseselectionsystem.application.request.DropCourseRequest;
 import org.example.newcourseselectionsystem.application.request.EnrollmentRequest;
+import org.example.newcourseselectionsystem.application.request.SwapCourseRequest;
 import org.example.newcourseselectionsystem.application.service.EnrollmentService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 选课接口
@@ -27,21 +43,121 @@ import java.util.List;
 public class EnrollmentController {
 
     private final EnrollmentService enrollmentService;
+    private final IdempotentRequests idempotentRequests;
+    private final EnrollmentQueue enrollmentQueue;
+    private final SeatLedger seatLedger;
 
     /**
-     * 学生选课
+     * 学生选课（携带请求键时，重复请求返回首次的结果）
      */
     @PostMapping("/enroll")
     public EnrollmentResponse enrollCourse(@Valid @RequestBody EnrollmentRequest request) {
-        return enrollmentService.enrollCourse(request);
+        return idempotentRequests.execute(request.getStudentId(), request.getRequestKey(), "选课",
+                request.getCourseId(), () -> enrollmentService.enrollCourse(request));
     }
 
     /**
-     * 学生退课
+     * 异步选课：请求进入排队队列后立即返回凭证，结果通过 SSE 订阅；队列已满时返回 429 并提示重试间隔
+     */
+    @PostMapping("/async")
+    public ResponseEntity<EnrollmentTicketDTO> enrollAsync(@Valid @RequestBody EnrollmentRequest request) {
+        EnrollmentQueue.Ticket ticket = enrollmentQueue.submit(request);
+        if (ticket == null) {
+            int retryAfter = enrollmentQueue.getRetryAfterSeconds();
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                    .body(EnrollmentTicketDTO.builder()
+                            .accepted(false)
+                            .message("选课排队人数已满，请稍后重试")
+                            .retryAfterSeconds(retryAfter)
+                            .build());
+        }
+        return ResponseEntity.accepted().body(EnrollmentTicketDTO.builder()
+                .ticketId(ticket.getTicketId())
+                .accepted(true)
+                .message("已进入选课队列，请订阅选课结果")
+                .queuedAhead(ticket.getQueuedAhead())
+                .build());
+    }
+
+    /**
+     * 订阅异步选课结果（Server-Sent Events），处理完成后推送一次 result 事件并结束；
+     * 订阅超时先推送 timeout 事件，结果仍保存在凭证中，可重新订阅
+     *
+     * @param ticketId 排队凭证ID
+     * @return SSE 响应
+     */
+    @GetMapping(value = "/async/{ticketId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter enrollmentResult(@PathVariable String ticketId) {
+        SseEmitter emitter = new SseEmitter(60000L); // 1分钟超时
+
+        EnrollmentQueue.Ticket ticket = enrollmentQueue.find(ticketId);
+        if (ticket == null) {
+            sendEvent(emitter, "error", "排队凭证不存在或已过期");
+            emitter.complete();
+            return emitter;
+        }
+
+        // 结果送达、超时与客户端断开只有一个生效，之后不再向已结束的连接发送
+        AtomicBoolean finished = new AtomicBoolean();
+        emitter.onTimeout(() -> {
+            if (finished.compareAndSet(false, true)) {
+                sendEvent(emitter, "timeout", "选课仍在处理中，请使用排队凭证重新订阅");
+                emitter.complete();
+            }
+        });
+        emitter.onError(error -> finished.set(true));
+        emitter.onCompletion(() -> finished.set(true));
+        ticket.getResult().thenAccept(response -> {
+            if (finished.compareAndSet(false, true) && sendEvent(emitter, "result", response)) {
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * 发送一个事件；连接已断开（IOException）或已结束（IllegalStateException）时返回false
+     */
+    private static boolean sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .data(data)
+                    .name(name));
+            return true;
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return false;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 批量选课（购物车）
+     */
+    @PostMapping("/cart")
+    public CartEnrollmentResponse enrollCart(@Valid @RequestBody CartEnrollmentRequest request) {
+        return enrollmentService.enrollCart(request);
+    }
+
+    /**
+     * 学生退课（携带请求键时，重复请求返回首次的结果）；座位账本开放时先在事务之外回写刚选上的课程
      */
     @PostMapping("/drop")
     public EnrollmentResponse dropCourse(@Valid @RequestBody DropCourseRequest request) {
-        return enrollmentService.dropCourse(request);
+        seatLedger.flushBeforeTransaction();
+        return idempotentRequests.execute(request.getStudentId(), request.getRequestKey(), "退课",
+                request.getCourseId(), () -> enrollmentService.dropCourse(request));
+    }
+
+    /**
+     * 换课（退选原课程并选上新课程，原子完成）；座位账本开放时先在事务之外回写刚选上的课程
+     */
+    @PostMapping("/swap")
+    public EnrollmentResponse swapCourse(@Valid @RequestBody SwapCourseRequest request) {
+        seatLedger.flushBeforeTransaction();
+        return enrollmentService.swapCourse(request);
     }
 
     /**
@@ -54,4 +170,28 @@ public class EnrollmentController {
     public List<CourseWithSessionsDTO> getStudentCourses(@PathVariable Long studentId) {
         return enrollmentService.getStudentCourses(studentId);
     }
+
+    /**
+     * 加入课程候补队列（课程已满时），有空位时按顺序自动递补
+     */
+    @PostMapping("/waitlist")
+    public EnrollmentResponse joinWaitlist(@Valid @RequestBody EnrollmentRequest request) {
+        return enrollmentService.joinWaitlist(request);
+    }
+
+    /**
+     * 退出课程候补队列
+     */
+    @PostMapping("/waitlist/cancel")
+    public EnrollmentResponse leaveWaitlist(@Valid @RequestBody DropCourseRequest request) {
+        return enrollmentService.leaveWaitlist(request);
+    }
+
+    /**
+     * 查询候补名次（只读内存，供前端轮询代替反复查询课程余量）
+     */
+    @GetMapping("/waitlist/position")
+    public WaitlistPositionDTO getWaitlistPosition(@RequestParam Long studentId, @RequestParam Long courseId) {
+        return enrollmentService.getWaitlistPosition(studentId, courseId);
+    }
 }
@@ -0,0 +1,76 @@
+package org.example.newcourseselectionsystem.interfaces;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.enrollment.StudentRateLimiter;
+import org.example.newcourseselectionsystem.application.request.StudentScoped;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按学生限流：学生ID在请求体中，因此在请求体反序列化之后、参数校验之前取令牌，
+ * 超出限额时返回 429 与 Retry-After
+ */
+@RestControllerAdvice
+@RequiredArgsConstructor
+public class RateLimitAdvice extends RequestBodyAdviceAdapter {
+
+    private final StudentRateLimiter studentRateLimiter;
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return StudentScoped.class.isAssignableFrom(methodParameter.getParameterType());
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        long retryAfter = studentRateLimiter.check(pattern != null ? pattern.toString() : request.getRequestURI(),
+                ((StudentScoped) body).getStudentId(), request.getRemoteAddr());
+        if (retryAfter > 0) {
+            throw new RateLimitedException(retryAfter);
+        }
+        return body;
+    }
+
+    @ExceptionHandler(RateLimitedException.class)
+    public ResponseEntity<Map<String, Object>> rateLimited(RateLimitedException e) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", false);
+        body.put("message", "请求过于频繁，请 " + e.getRetryAfterSeconds() + " 秒后重试");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    /**
+     * 超出限额（不填充调用栈，被拒绝的请求同样要便宜）
+     */
+    @Getter
+    static class RateLimitedException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        RateLimitedException(long retryAfterSeconds) {
+            super("rate limited", null, false, false);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+}
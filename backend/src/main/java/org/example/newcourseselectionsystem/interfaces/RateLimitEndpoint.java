@@ -0,0 +1,32 @@
+package org.example.newcourseselectionsystem.interfaces;
+
+import lombok.RequiredArgsConstructor;
+import org.example.newcourseselectionsystem.application.enrollment.StudentRateLimiter;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 限流情况（/actuator/ratelimit）：各接口规则与拒绝次数，以及被限流最多的学生
+ */
+@Component
+@Endpoint(id = "ratelimit")
+@RequiredArgsConstructor
+public class RateLimitEndpoint {
+
+    private static final int TOP = 50;
+
+    private final StudentRateLimiter studentRateLimiter;
+
+    @ReadOperation
+    public Map<String, Object> rateLimits() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", studentRateLimiter.isEnabled());
+        result.put("rules", studentRateLimiter.rules());
+        result.put("throttled", studentRateLimiter.topThrottled(TOP));
+        return result;
+    }
+}
@@ -1,5 +1,8 @@
 USE ncss;
 
+DROP TABLE IF EXISTS idempotency_records;
+DROP TABLE IF EXISTS lottery_draws;
+DROP TABLE IF EXISTS waitlist_entries;
 DROP TABLE IF EXISTS enrollments;
 DROP TABLE IF EXISTS course_sessions;
 DROP TABLE IF EXISTS courses;
@@ -50,7 +53,10 @@ CREATE TABLE elective_batches (
     selection_mode VARCHAR(32) NOT NULL COMMENT '选课模式：志愿、即选即中、先到先得',
     selection_strategy VARCHAR(64) NOT NULL COMMENT '选课策略说明',
     status        VARCHAR(16) NOT NULL DEFAULT '未开始' COMMENT '状态：未开始、进行中、已结束',
-    description   TEXT COMMENT '选课说明'
+    description   TEXT COMMENT '选课说明',
+    lottery_policy VARCHAR(32) NOT NULL DEFAULT '均等抽签' COMMENT '志愿轮次抽签策略：均等抽签、毕业加权',
+    seniority_weight DECIMAL(5,2) COMMENT '毕业加权：毕业进度系数，为空时使用全局配置',
+    deficit_weight DECIMAL(5,2) COMMENT '毕业加权：学分缺口系数，为空时使用全局配置'
 );
 
 CREATE TABLE enrollments (
@@ -62,3 +68,49 @@ CREATE TABLE enrollments (
     final_grade   DECIMAL(5,2),
     status        VARCHAR(16) NOT NULL COMMENT '选课状态，如"已选"、"已退选"等'
 );
+
+-- 抽签按轮次读取"已选"记录
+CREATE INDEX idx_enrollments_batch_status ON enrollments (batch_id, status);
+
+-- 志愿轮次抽签记录，每个轮次只抽签一次
+CREATE TABLE lottery_draws (
+    draw_id       BIGINT PRIMARY KEY AUTO_INCREMENT,
+    batch_id      BIGINT NOT NULL COMMENT '抽签的选课轮次',
+    seed          BIGINT NOT NULL COMMENT '随机种子，相同种子与相同选课记录可复现抽签结果',
+    policy        VARCHAR(64) COMMENT '抽签策略及所用系数',
+    course_count  INT NOT NULL COMMENT '超容量、参与抽签的课程数',
+    entrant_count INT NOT NULL COMMENT '参与抽签的选课记录数',
+    loser_count   INT NOT NULL COMMENT '未中签的选课记录数',
+    drawn_at      DATETIME NOT NULL COMMENT '抽签时间',
+    elapsed_ms    BIGINT COMMENT '抽签耗时（毫秒）',
+    CONSTRAINT uk_lottery_draws_batch UNIQUE (batch_id)
+);
+
+-- 课程候补队列（按 entry_id 先到先得）
+CREATE TABLE waitlist_entries (
+    entry_id      BIGINT PRIMARY KEY AUTO_INCREMENT,
+    student_id    BIGINT NOT NULL,
+    course_id     BIGINT NOT NULL,
+    batch_id      BIGINT COMMENT '候补所属的选课轮次，轮次结束后候补失效',
+    joined_at     DATETIME NOT NULL COMMENT '加入候补时间',
+    status        VARCHAR(16) NOT NULL COMMENT '候补状态：等待中、已递补、已取消',
+    resolved_at   DATETIME COMMENT '递补或取消时间'
+);
+
+CREATE INDEX idx_waitlist_course_status ON waitlist_entries (course_id, status);
+
+-- 选课/退课请求的幂等记录：同一学生的同一请求键只处理一次，重复请求返回首次的结果
+CREATE TABLE idempotency_records (
+    record_id     BIGINT PRIMARY KEY AUTO_INCREMENT,
+    student_id    BIGINT NOT NULL,
+    request_key   VARCHAR(64) NOT NULL COMMENT '客户端生成的请求键，重试时沿用',
+    operation     VARCHAR(16) NOT NULL COMMENT '操作类型：选课、退课',
+    success       BOOLEAN COMMENT '首次处理结果',
+    message       VARCHAR(255),
+    warn          VARCHAR(500),
+    enrollment_id BIGINT,
+    created_at    DATETIME NOT NULL,
+    CONSTRAINT uk_idempotency_student_key UNIQUE (student_id, request_key)
+);
+
+CREATE INDEX idx_idempotency_created ON idempotency_records (created_at);
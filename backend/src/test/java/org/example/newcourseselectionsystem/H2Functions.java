@@ -0,0 +1,23 @@
+package org.example.newcourseselectionsystem;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * 测试库（H2）中补充的 MySQL 函数，在 schema.sql 中以 CREATE ALIAS 注册
+ */
+public final class H2Functions {
+    private H2Functions() {}
+
+    /**
+     * 与 MySQL CRC32(str) 一致：按 UTF-8 字节计算，参数为空时返回空
+     */
+    public static Long crc32(String value) {
+        if (value == null) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(value.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
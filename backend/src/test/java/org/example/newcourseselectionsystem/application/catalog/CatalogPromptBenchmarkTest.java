@@ -0,0 +1,130 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.infrastructure.client.DeepSeekApiClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * 推荐提示组装开销对比：每次请求拼接并序列化全量课程列表 vs 缓存的预序列化前缀 + 学生增量
+ * <p>
+ * 默认跳过，运行方式：mvn test -Dbenchmark=true -Dtest=CatalogPromptBenchmarkTest
+ */
+@SpringBootTest(properties = "mybatis-plus.configuration.log-impl=org.apache.ibatis.logging.nologging.NoLoggingImpl")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CatalogPromptBenchmarkTest {
+
+    private static final int COURSES = 1700;
+    private static final int ITERATIONS = 2000;
+    private static final String MARKER = "提示基准课程";
+
+    @Autowired
+    private CatalogPromptPrefix catalogPromptPrefix;
+
+    @Autowired
+    private CourseCatalog courseCatalog;
+
+    @Autowired
+    private EnrolledCountOverlay enrolledCountOverlay;
+
+    @Autowired
+    private CatalogVersionTracker catalogVersionTracker;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void prepareCatalog() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++) {
+            rows.add(new Object[]{MARKER + i, "介绍" + MARKER + i + "的主要内容、先修要求与考核方式，适合对该方向感兴趣的同学选修"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO courses (course_name, credits, description, college, instructor_name, campus, "
+                + "classroom, start_week, end_week, capacity, enrolled_count, type) "
+                + "VALUES (?, 2, ?, '基准学院', '基准教师', '本部', 'B101', 1, 16, 100, 10, '通识课')", rows);
+        catalogVersionTracker.refresh();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM courses WHERE course_name LIKE ?", MARKER + "%");
+        catalogVersionTracker.refresh();
+    }
+
+    @Test
+    void compareFullRebuildWithCachedPrefix() throws Exception {
+        CatalogSnapshot snapshot = courseCatalog.snapshot();
+        Assertions.assertTrue(snapshot.size() >= COURSES);
+        String delta = "学生基本信息：\n姓名：张三\n学号：1\n学院：计算机学院\n\n已选课程列表：\n暂无已选课程\n\n推荐几门通识课";
+
+        // 1) 每次请求重新拼接全部课程（含已选人数）并序列化
+        Callable<byte[]> rebuild = () -> {
+            StringBuilder sb = new StringBuilder("所有可选课程列表：\n");
+            for (int i = 0; i < snapshot.size(); i++) {
+                Course course = snapshot.courseAt(i);
+                sb.append("- 课程ID：").append(course.getCourseId())
+                        .append("，课程名称：").append(course.getCourseName())
+                        .append("，学分：").append(course.getCredits())
+                        .append("，描述：").append(course.getDescription() != null ? course.getDescription() : "无")
+                        .append("，学院：").append(course.getCollege())
+                        .append("，容量：").append(course.getCapacity())
+                        .append("，已选人数：").append(enrolledCountOverlay.get(course))
+                        .append("\n");
+            }
+            return objectMapper.writeValueAsBytes(Arrays.asList(
+                    new DeepSeekApiClient.Message("system", CatalogPromptPrefix.SYSTEM_PROMPT),
+                    new DeepSeekApiClient.Message("user", sb + "\n" + delta)));
+        };
+
+        // 2) 缓存的预序列化前缀 + 学生增量
+        Callable<byte[]> cached = () -> objectMapper.writeValueAsBytes(Arrays.asList(
+                catalogPromptPrefix.systemMessage(),
+                catalogPromptPrefix.catalogMessage(),
+                new DeepSeekApiClient.Message("user", delta)));
+
+        measure("每次重建", rebuild);
+        measure("缓存前缀", cached);
+        double[] rebuildCost = measure("每次重建", rebuild);
+        double[] cachedCost = measure("缓存前缀", cached);
+        System.out.printf("提示组装：缓存前缀相对每次重建 耗时 %.1f%%，分配 %.1f%%%n",
+                cachedCost[0] * 100 / rebuildCost[0], cachedCost[1] * 100 / rebuildCost[1]);
+        Assertions.assertTrue(cachedCost[1] < rebuildCost[1]);
+    }
+
+    /**
+     * @return {每次耗时（微秒）, 每次分配字节数}
+     */
+    private double[] measure(String label, Callable<byte[]> task) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bytes = 0;
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            bytes += task.call().length;
+        }
+        double micros = (System.nanoTime() - start) / 1000.0 / ITERATIONS;
+        double allocated = (double) (threads.getThreadAllocatedBytes(threadId) - allocatedBefore) / ITERATIONS;
+        System.out.printf("%s：每次 %.1f µs，分配 %.0f KB，请求体 %d 字节%n",
+                label, micros, allocated / 1024, bytes / ITERATIONS);
+        return new double[]{micros, allocated};
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.infrastructure.client.DeepSeekApiClient;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CatalogPromptPrefixTest {
+
+    @Autowired
+    private CatalogPromptPrefix catalogPromptPrefix;
+
+    @Autowired
+    private CourseCatalog courseCatalog;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void shouldReusePreSerializedCatalogMessagesAcrossRequests() throws Exception {
+        Assertions.assertSame(catalogPromptPrefix.catalogMessage(), catalogPromptPrefix.catalogMessage(),
+                "目录版本不变时应复用同一份预序列化消息");
+
+        String json = objectMapper.writeValueAsString(Arrays.asList(catalogPromptPrefix.systemMessage(),
+                catalogPromptPrefix.catalogMessage(), new DeepSeekApiClient.Message("user", "推荐几门课")));
+        JsonNode messages = objectMapper.readTree(json);
+        Assertions.assertEquals(3, messages.size());
+        Assertions.assertEquals(CatalogPromptPrefix.SYSTEM_PROMPT, messages.get(0).get("content").asText());
+        String catalog = messages.get(1).get("content").asText();
+        Assertions.assertTrue(catalog.contains("课程名称：数据库系统"));
+        Assertions.assertFalse(catalog.contains("已选人数："), "已选人数会变化，不应进入缓存的前缀");
+        Assertions.assertEquals("user", messages.get(2).get("role").asText());
+
+        Course course = courseCatalog.snapshot().courseAt(0);
+        CatalogPromptPrefix.Line line = catalogPromptPrefix.line(course);
+        Assertions.assertSame(line, catalogPromptPrefix.line(course));
+        Assertions.assertTrue(line.getText().contains("课程ID：" + course.getCourseId()));
+        Assertions.assertTrue(line.getTokens() > 0);
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.newcourseselectionsystem.application.catalog;
+
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CourseRetrieverTest {
+
+    @Autowired
+    private CourseRetriever courseRetriever;
+
+    @Test
+    void shouldRankCoursesMatchingPromptFirst() {
+        List<String> names = names(courseRetriever.retrieve("想学一些数据库原理相关的课", null,
+                Collections.emptyMap(), schedule -> false, 3));
+
+        Assertions.assertEquals(3, names.size());
+        Assertions.assertEquals("数据库系统", names.get(0));
+    }
+
+    @Test
+    void shouldSkipExcludedCoursesAndBoostCollegeAndDeficits() {
+        List<String> names = names(courseRetriever.retrieve("数据库", null, Collections.emptyMap(),
+                schedule -> "数据库系统".equals(schedule.getCourseName()), 10));
+        Assertions.assertFalse(names.contains("数据库系统"), "已排除的课程不应出现在候选中");
+
+        names = names(courseRetriever.retrieve("随便推荐几门", "外国语学院", Collections.emptyMap(),
+                schedule -> false, 1));
+        Assertions.assertEquals(Collections.singletonList("大学英语(一)"), names, "无文本命中时本学院课程优先");
+
+        names = names(courseRetriever.retrieve("随便推荐几门", null,
+                Collections.singletonMap("专业选修", 1.0), schedule -> false, 2));
+        Assertions.assertTrue(names.contains("计算机网络") && names.contains("编译原理"), "欠缺学分的类型优先");
+    }
+
+    private static List<String> names(List<Course> courses) {
+        return courses.stream().map(Course::getCourseName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.example.newcourseselectionsystem.application.dto.EnrollmentResponse;
+import org.example.newcourseselectionsystem.application.request.EnrollmentRequest;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.domain.entity.Enrollment;
+import org.example.newcourseselectionsystem.domain.entity.IdempotencyRecord;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.IdempotencyRecordMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 队列由后台工作线程在各自的事务中处理，此测试不在测试事务中运行，结束时手动清理数据
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class EnrollmentQueueTest {
+
+    @Autowired
+    private EnrollmentQueue enrollmentQueue;
+
+    @Autowired
+    private CourseMapper courseMapper;
+
+    @Autowired
+    private EnrollmentMapper enrollmentMapper;
+
+    @Autowired
+    private IdempotencyRecordMapper idempotencyRecordMapper;
+
+    @Autowired
+    private StudentEnrollmentCache studentEnrollmentCache;
+
+    @Autowired
+    private StudentTimetableCache studentTimetableCache;
+
+    @Test
+    void shouldAssignSeatsInQueueOrderAndReportEachTicket() throws Exception {
+        Course course = new Course();
+        course.setCourseName("异步选课课程");
+        course.setCredits(2);
+        course.setCollege("测试学院");
+        course.setInstructorName("李强");
+        course.setCampus("本部");
+        course.setClassroom("A107");
+        course.setStartWeek(1);
+        course.setEndWeek(16);
+        course.setCapacity(2);
+        course.setEnrolledCount(0);
+        courseMapper.insert(course);
+        Long courseId = course.getCourseId();
+
+        try {
+            List<EnrollmentQueue.Ticket> tickets = new ArrayList<>();
+            for (long studentId = 1; studentId <= 3; studentId++) {
+                EnrollmentRequest request = new EnrollmentRequest();
+                request.setStudentId(studentId);
+                request.setCourseId(courseId);
+                request.setBatchId(2L);
+                if (studentId == 1) {
+                    request.setRequestKey("async-key-1");
+                }
+                EnrollmentQueue.Ticket ticket = enrollmentQueue.submit(request);
+                Assertions.assertNotNull(ticket, "队列未满时应返回凭证");
+                Assertions.assertSame(ticket, enrollmentQueue.find(ticket.getTicketId()));
+                tickets.add(ticket);
+            }
+            EnrollmentRequest retry = new EnrollmentRequest();
+            retry.setStudentId(1L);
+            retry.setCourseId(courseId);
+            retry.setBatchId(2L);
+            retry.setRequestKey("async-key-1");
+            Assertions.assertSame(tickets.get(0), enrollmentQueue.submit(retry), "同一请求键重复提交应返回已有凭证");
+
+            List<EnrollmentResponse> responses = new ArrayList<>();
+            for (EnrollmentQueue.Ticket ticket : tickets) {
+                responses.add(ticket.getResult().get(10, TimeUnit.SECONDS));
+            }
+            Assertions.assertTrue(responses.get(0).getSuccess(), responses.get(0).getMessage());
+            Assertions.assertTrue(responses.get(1).getSuccess(), responses.get(1).getMessage());
+            Assertions.assertFalse(responses.get(2).getSuccess(), "座位按排队顺序分配，第三个请求应失败");
+            Assertions.assertTrue(responses.get(2).getMessage().contains("课程已满"));
+            Assertions.assertEquals(2, courseMapper.selectById(courseId).getEnrolledCount());
+            Assertions.assertEquals(2L, enrollmentMapper.selectCount(new LambdaQueryWrapper<Enrollment>()
+                    .eq(Enrollment::getCourseId, courseId)
+                    .eq(Enrollment::getStatus, "已选")));
+        } finally {
+            enrollmentMapper.delete(new LambdaQueryWrapper<Enrollment>().eq(Enrollment::getCourseId, courseId));
+            idempotencyRecordMapper.delete(new LambdaQueryWrapper<IdempotencyRecord>()
+                    .eq(IdempotencyRecord::getRequestKey, "async-key-1"));
+            courseMapper.deleteById(courseId);
+            for (long studentId = 1; studentId <= 3; studentId++) {
+                studentEnrollmentCache.evict(studentId);
+                studentTimetableCache.evict(studentId);
+            }
+        }
+    }
+}
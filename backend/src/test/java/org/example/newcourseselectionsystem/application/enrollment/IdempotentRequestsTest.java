@@ -0,0 +1,85 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import org.example.newcourseselectionsystem.application.dto.EnrollmentResponse;
+import org.example.newcourseselectionsystem.application.request.EnrollmentRequest;
+import org.example.newcourseselectionsystem.application.service.EnrollmentService;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class IdempotentRequestsTest {
+
+    @Autowired
+    private IdempotentRequests idempotentRequests;
+
+    @Autowired
+    private EnrollmentService enrollmentService;
+
+    @Autowired
+    private CourseMapper courseMapper;
+
+    @Test
+    void shouldReplayFirstResponseForRepeatedRequestKey() {
+        Course course = new Course();
+        course.setCourseName("幂等测试课程");
+        course.setCredits(2);
+        course.setCollege("测试学院");
+        course.setInstructorName("李强");
+        course.setCampus("本部");
+        course.setClassroom("A106");
+        course.setStartWeek(1);
+        course.setEndWeek(16);
+        course.setCapacity(10);
+        course.setEnrolledCount(0);
+        courseMapper.insert(course);
+
+        EnrollmentRequest request = new EnrollmentRequest();
+        request.setStudentId(2L);
+        request.setCourseId(course.getCourseId());
+        request.setBatchId(2L);
+        request.setRequestKey("retry-key-1");
+        AtomicInteger executions = new AtomicInteger();
+
+        EnrollmentResponse first = idempotentRequests.execute(2L, "retry-key-1", "选课", course.getCourseId(), () -> {
+            executions.incrementAndGet();
+            return enrollmentService.enrollCourse(request);
+        });
+        Assertions.assertTrue(first.getSuccess(), first.getMessage());
+
+        // 缓存命中：不再执行业务处理
+        EnrollmentResponse retried = idempotentRequests.execute(2L, "retry-key-1", "选课", course.getCourseId(), () -> {
+            executions.incrementAndGet();
+            return enrollmentService.enrollCourse(request);
+        });
+        Assertions.assertEquals(1, executions.get());
+        Assertions.assertEquals(first, retried);
+
+        // 缓存失效（如服务重启）后由唯一约束拦截，返回数据库中记录的响应
+        idempotentRequests.clear();
+        EnrollmentResponse replayed = idempotentRequests.execute(2L, "retry-key-1", "选课", course.getCourseId(), () -> {
+            executions.incrementAndGet();
+            return enrollmentService.enrollCourse(request);
+        });
+        Assertions.assertEquals(1, executions.get());
+        Assertions.assertEquals(first, replayed);
+        Assertions.assertEquals(1, courseMapper.selectById(course.getCourseId()).getEnrolledCount(),
+                "重复请求不应重复占座");
+
+        EnrollmentResponse misused = idempotentRequests.execute(2L, "retry-key-1", "退课", course.getCourseId(), () -> {
+            executions.incrementAndGet();
+            return EnrollmentResponse.builder().success(true).build();
+        });
+        Assertions.assertFalse(misused.getSuccess());
+        Assertions.assertEquals(1, executions.get());
+    }
+}
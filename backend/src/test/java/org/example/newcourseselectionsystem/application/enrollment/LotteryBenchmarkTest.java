@@ -0,0 +1,143 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.domain.entity.ElectiveBatch;
+import org.example.newcourseselectionsystem.domain.entity.Enrollment;
+import org.example.newcourseselectionsystem.domain.entity.LotteryDraw;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.ElectiveBatchMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.LotteryDrawMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 全校规模志愿轮次抽签耗时（H2 内存库）：3 万名学生，每人 6 个志愿，热门课程集中超容量
+ * <p>
+ * 默认跳过，运行方式：mvn test -Dbenchmark=true -Dtest=LotteryBenchmarkTest
+ */
+@SpringBootTest(properties = "mybatis-plus.configuration.log-impl=org.apache.ibatis.logging.nologging.NoLoggingImpl")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LotteryBenchmarkTest {
+
+    private static final int STUDENTS = 30000;
+    private static final int CHOICES = 6;
+    private static final int COURSES = 600;
+    private static final int CAPACITY = 300;
+    private static final long FIRST_STUDENT_ID = 700000L;
+
+    @Autowired
+    private LotteryEngine lotteryEngine;
+
+    @Autowired
+    private CourseMapper courseMapper;
+
+    @Autowired
+    private EnrollmentMapper enrollmentMapper;
+
+    @Autowired
+    private ElectiveBatchMapper electiveBatchMapper;
+
+    @Autowired
+    private LotteryDrawMapper lotteryDrawMapper;
+
+    private final List<Long> courseIds = new ArrayList<>();
+    private Long batchId;
+
+    @AfterEach
+    void cleanUp() {
+        enrollmentMapper.delete(new LambdaQueryWrapper<Enrollment>().eq(Enrollment::getBatchId, batchId));
+        lotteryDrawMapper.delete(new LambdaQueryWrapper<LotteryDraw>().eq(LotteryDraw::getBatchId, batchId));
+        electiveBatchMapper.deleteById(batchId);
+        for (Long courseId : courseIds) {
+            courseMapper.deleteById(courseId);
+        }
+    }
+
+    @Test
+    void drawFullCampusRound() {
+        ElectiveBatch batch = new ElectiveBatch();
+        batch.setBatchName("抽签基准");
+        batch.setRoundName("第一轮");
+        batch.setStartTime(LocalDateTime.now().minusDays(3));
+        batch.setEndTime(LocalDateTime.now().minusDays(1));
+        batch.setSelectionMode("志愿选课");
+        batch.setSelectionStrategy("随机抽签");
+        batch.setStatus("已结束");
+        electiveBatchMapper.insert(batch);
+        batchId = batch.getBatchId();
+
+        for (int i = 0; i < COURSES; i++) {
+            Course course = new Course();
+            course.setCourseName("基准课程" + i);
+            course.setCredits(2);
+            course.setCollege("基准测试学院");
+            course.setInstructorName("基准");
+            course.setCampus("本部");
+            course.setClassroom("B101");
+            course.setStartWeek(1);
+            course.setEndWeek(16);
+            course.setCapacity(CAPACITY);
+            course.setEnrolledCount(0);
+            courseMapper.insert(course);
+            courseIds.add(course.getCourseId());
+        }
+
+        // 志愿偏向前 1/5 的热门课程：约五分之一的课程超容量
+        Random random = new Random(2024);
+        List<Enrollment> chunk = new ArrayList<>();
+        int[] enrolled = new int[COURSES];
+        for (int s = 0; s < STUDENTS; s++) {
+            int first = random.nextInt(COURSES / 5);
+            for (int c = 0; c < CHOICES; c++) {
+                int index = c == 0 ? first : (first + 1 + random.nextInt(COURSES - 1)) % COURSES;
+                Enrollment enrollment = new Enrollment();
+                enrollment.setStudentId(FIRST_STUDENT_ID + s);
+                enrollment.setCourseId(courseIds.get(index));
+                enrollment.setBatchId(batchId);
+                enrollment.setEnrolledAt(LocalDateTime.now());
+                enrollment.setStatus("已选");
+                chunk.add(enrollment);
+                enrolled[index]++;
+                if (chunk.size() == 1000) {
+                    enrollmentMapper.insertBatch(chunk);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            enrollmentMapper.insertBatch(chunk);
+        }
+        for (int i = 0; i < COURSES; i++) {
+            courseMapper.adjustEnrolledCount(courseIds.get(i), enrolled[i]);
+        }
+
+        long start = System.nanoTime();
+        LotteryDraw draw = lotteryEngine.draw(batchId, 20240901L);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        for (Long courseId : courseIds) {
+            Long seats = enrollmentMapper.selectCount(new LambdaQueryWrapper<Enrollment>()
+                    .eq(Enrollment::getCourseId, courseId)
+                    .eq(Enrollment::getStatus, "已选"));
+            Assertions.assertTrue(seats <= CAPACITY, "抽签后不应超容量");
+            Assertions.assertEquals(seats.intValue(), courseMapper.selectById(courseId).getEnrolledCount());
+        }
+        System.out.printf("志愿轮次抽签（%d 名学生 × %d 个志愿，%d 门课程）：超容量课程 %d 门，参与记录 %d 条，"
+                        + "未中签 %d 条，总耗时 %.2f 秒%n",
+                STUDENTS, CHOICES, COURSES, draw.getCourseCount(), draw.getEntrantCount(),
+                draw.getLoserCount(), seconds);
+    }
+}
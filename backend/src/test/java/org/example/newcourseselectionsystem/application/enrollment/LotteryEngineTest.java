@@ -0,0 +1,160 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.domain.entity.ElectiveBatch;
+import org.example.newcourseselectionsystem.domain.entity.Enrollment;
+import org.example.newcourseselectionsystem.domain.entity.LotteryDraw;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.ElectiveBatchMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class LotteryEngineTest {
+
+    @Autowired
+    private LotteryEngine lotteryEngine;
+
+    @Autowired
+    private CourseMapper courseMapper;
+
+    @Autowired
+    private EnrollmentMapper enrollmentMapper;
+
+    @Autowired
+    private ElectiveBatchMapper electiveBatchMapper;
+
+    @Autowired
+    private LotteryWeights lotteryWeights;
+
+    @Test
+    void shouldDrawOversubscribedCourseReproducibly() {
+        ElectiveBatch batch = insertClosedBatch(null);
+        Course course = insertCourse(2, 5, null, 2);
+
+        List<Long> enrollmentIds = new ArrayList<>();
+        for (long studentId = 80001; studentId <= 80005; studentId++) {
+            enrollmentIds.add(insertEnrollment(studentId, course.getCourseId(), batch.getBatchId(), "已选"));
+        }
+
+        LotteryDraw draw = lotteryEngine.draw(batch.getBatchId(), 42L);
+
+        Assertions.assertEquals(42L, draw.getSeed());
+        Assertions.assertEquals("均等抽签", draw.getPolicy());
+        Assertions.assertEquals(1, draw.getCourseCount());
+        Assertions.assertEquals(5, draw.getEntrantCount());
+        Assertions.assertEquals(3, draw.getLoserCount());
+        Assertions.assertEquals(2, courseMapper.selectById(course.getCourseId()).getEnrolledCount(),
+                "已选人数应扣减为容量");
+
+        // 相同种子重新计算应得到与数据库一致的未中签记录
+        List<Long> expectedLosers = new ArrayList<>();
+        for (int index : LotteryEngine.drawLosers(42L, course.getCourseId(), 5, 2)) {
+            expectedLosers.add(enrollmentIds.get(index));
+        }
+        List<Long> actualLosers = enrollmentMapper.selectList(new LambdaQueryWrapper<Enrollment>()
+                        .eq(Enrollment::getCourseId, course.getCourseId())
+                        .eq(Enrollment::getStatus, "未中签")
+                        .orderByAsc(Enrollment::getEnrollmentId))
+                .stream().map(Enrollment::getEnrollmentId).collect(Collectors.toList());
+        Assertions.assertEquals(expectedLosers, actualLosers);
+
+        // 同一轮次不会重复抽签
+        LotteryDraw again = lotteryEngine.draw(batch.getBatchId(), 7L);
+        Assertions.assertEquals(draw.getDrawId(), again.getDrawId());
+        Assertions.assertEquals(42L, again.getSeed());
+    }
+
+    @Test
+    void shouldFavorGraduatingStudentsLackingCreditsInWeightedLottery() {
+        ElectiveBatch batch = insertClosedBatch("毕业加权");
+        Course math = insertCourse(1, 2, "大学数学", 4);
+        // 学生 80011 已修大量专业课但仍缺大学数学学分，学生 80012 没有已修记录
+        Course major = insertCourse(100, 0, "专业选修", 40);
+        insertEnrollment(80011L, major.getCourseId(), null, "已修");
+        insertEnrollment(80011L, math.getCourseId(), batch.getBatchId(), "已选");
+        insertEnrollment(80012L, math.getCourseId(), batch.getBatchId(), "已选");
+
+        LotteryWeights.Cohort cohort = lotteryWeights.load(electiveBatchMapper.selectById(batch.getBatchId()));
+        double progress = 40.0 / 167;
+        Assertions.assertEquals(1 + 1.5 * progress + 10 * progress, cohort.weight(80011L, "大学数学"), 1e-9);
+        Assertions.assertEquals(1 + 1.5 * progress, cohort.weight(80011L, "专业选修"), 1e-9,
+                "已修满的类型不加缺口权重");
+        Assertions.assertEquals(1.0, cohort.weight(80012L, "大学数学"), 1e-9);
+
+        // 中签概率与权重成正比：权重约 3.75 : 1
+        double[] weights = {cohort.weight(80011L, "大学数学"), 1.0};
+        int favoredWins = 0;
+        for (long seed = 0; seed < 2000; seed++) {
+            if (LotteryEngine.drawWeightedLosers(seed, math.getCourseId(), weights, 1)[0] == 1) {
+                favoredWins++;
+            }
+        }
+        double expected = weights[0] / (weights[0] + weights[1]);
+        Assertions.assertEquals(expected, favoredWins / 2000.0, 0.03);
+
+        LotteryDraw draw = lotteryEngine.draw(batch.getBatchId(), 1L);
+        Assertions.assertEquals(1, draw.getLoserCount());
+        Assertions.assertTrue(draw.getPolicy().startsWith("毕业加权"));
+    }
+
+    private ElectiveBatch insertClosedBatch(String lotteryPolicy) {
+        ElectiveBatch batch = new ElectiveBatch();
+        batch.setBatchName("抽签测试");
+        batch.setRoundName("第一轮");
+        batch.setStartTime(LocalDateTime.now().minusDays(3));
+        batch.setEndTime(LocalDateTime.now().minusDays(1));
+        batch.setSelectionMode("志愿选课");
+        batch.setSelectionStrategy("随机抽签");
+        batch.setStatus("已结束");
+        if (lotteryPolicy != null) {
+            batch.setLotteryPolicy(lotteryPolicy);
+            batch.setSeniorityWeight(new BigDecimal("1.5"));
+            batch.setDeficitWeight(new BigDecimal("10"));
+        }
+        electiveBatchMapper.insert(batch);
+        return batch;
+    }
+
+    private Course insertCourse(int capacity, int enrolledCount, String type, int credits) {
+        Course course = new Course();
+        course.setCourseName("抽签课程");
+        course.setCredits(credits);
+        course.setCollege("软件学院");
+        course.setInstructorName("测试教师");
+        course.setCampus("仙林");
+        course.setClassroom("A101");
+        course.setStartWeek(1);
+        course.setEndWeek(16);
+        course.setCapacity(capacity);
+        course.setEnrolledCount(enrolledCount);
+        course.setType(type);
+        courseMapper.insert(course);
+        return course;
+    }
+
+    private Long insertEnrollment(Long studentId, Long courseId, Long batchId, String status) {
+        Enrollment enrollment = new Enrollment();
+        enrollment.setStudentId(studentId);
+        enrollment.setCourseId(courseId);
+        enrollment.setBatchId(batchId);
+        enrollment.setEnrolledAt(LocalDateTime.now());
+        enrollment.setStatus(status);
+        enrollmentMapper.insert(enrollment);
+        return enrollment.getEnrollmentId();
+    }
+}
@@ -0,0 +1,204 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.example.newcourseselectionsystem.application.dto.EnrollmentResponse;
+import org.example.newcourseselectionsystem.application.request.EnrollmentRequest;
+import org.example.newcourseselectionsystem.application.service.EnrollmentService;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.domain.entity.ElectiveBatch;
+import org.example.newcourseselectionsystem.domain.entity.Enrollment;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.ElectiveBatchMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 热门课程选课吞吐对比：数据库条件更新占座 vs 内存座位账本（H2 内存库，仅用于相对比较）
+ * <p>
+ * 默认跳过，运行方式：mvn test -Dbenchmark=true -Dtest=SeatLedgerBenchmarkTest
+ */
+@SpringBootTest(properties = "mybatis-plus.configuration.log-impl=org.apache.ibatis.logging.nologging.NoLoggingImpl")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SeatLedgerBenchmarkTest {
+
+    private static final int STUDENTS = 4000;
+    private static final int CAPACITY = 3000;
+    private static final int THREADS = 32;
+    private static final long FIRST_STUDENT_ID = 900000L;
+
+    @Autowired
+    private EnrollmentService enrollmentService;
+
+    @Autowired
+    private SeatLedger seatLedger;
+
+    @Autowired
+    private CourseMapper courseMapper;
+
+    @Autowired
+    private EnrollmentMapper enrollmentMapper;
+
+    @Autowired
+    private ElectiveBatchMapper electiveBatchMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Long> courseIds = new ArrayList<>();
+
+    @BeforeEach
+    void prepareStudents() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            rows.add(new Object[]{FIRST_STUDENT_ID + i, "基准学生" + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO students (student_id, student_name, birth_date, college, phone, password) "
+                + "VALUES (?, ?, '2003-01-01', '基准测试学院', '0', 'x')", rows);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        seatLedger.close();
+        for (Long courseId : courseIds) {
+            enrollmentMapper.delete(new LambdaQueryWrapper<Enrollment>().eq(Enrollment::getCourseId, courseId));
+            courseMapper.deleteById(courseId);
+        }
+        jdbcTemplate.update("DELETE FROM students WHERE student_id >= ?", FIRST_STUDENT_ID);
+    }
+
+    @Test
+    void compareHotCourseThroughput() throws Exception {
+        ElectiveBatch instantBatch = electiveBatchMapper.selectById(2L);
+        Long batchId = instantBatch.getBatchId();
+
+        // 1) 数据库路径：每个请求一个事务，条件更新占座 + 插入选课记录
+        Long dbCourseId = createHotCourse();
+        AtomicInteger dbRollbacks = new AtomicInteger();
+        double dbThroughput = run(dbRollbacks, studentId -> transactionTemplate.executeWithoutResult(status -> {
+            if (courseMapper.reserveSeat(dbCourseId, true) == 1) {
+                enrollmentMapper.insert(newEnrollment(studentId, dbCourseId, batchId));
+            }
+        }));
+        assertNotOversold(dbCourseId);
+
+        // 2) 账本路径：内存占座，记录批量回写（回写耗时计入总时间）
+        Long ledgerCourseId = createHotCourse();
+        seatLedger.open(instantBatch);
+        AtomicInteger ledgerRollbacks = new AtomicInteger();
+        long ledgerStart = System.nanoTime();
+        run(ledgerRollbacks, studentId -> seatLedger.reserve(newEnrollment(studentId, ledgerCourseId, batchId), true));
+        seatLedger.flush();
+        double ledgerThroughput = STUDENTS / ((System.nanoTime() - ledgerStart) / 1_000_000_000.0);
+        assertNotOversold(ledgerCourseId);
+        Assertions.assertEquals(CAPACITY, courseMapper.selectById(ledgerCourseId).getEnrolledCount(),
+                "账本模式下应恰好占满容量");
+
+        // 3) 端到端：完整 enrollCourse（含学生校验、重复检查、时间冲突检查）经由账本
+        Long fullCourseId = createHotCourse();
+        seatLedger.open(instantBatch);
+        AtomicInteger fullRollbacks = new AtomicInteger();
+        double fullThroughput = run(fullRollbacks, studentId -> {
+            EnrollmentRequest request = new EnrollmentRequest();
+            request.setStudentId(studentId);
+            request.setCourseId(fullCourseId);
+            request.setBatchId(batchId);
+            EnrollmentResponse response = enrollmentService.enrollCourse(request);
+            Assertions.assertNotNull(response.getSuccess());
+        });
+        seatLedger.flush();
+        assertNotOversold(fullCourseId);
+
+        System.out.printf("热门课程占座吞吐（%d 名学生 / 容量 %d / %d 线程）：数据库占座 %.0f 次/秒（事务回滚 %d 次），"
+                        + "内存账本 %.0f 次/秒（事务回滚 %d 次），提升 %.1f 倍；完整 enrollCourse 经由账本 %.0f 次/秒（事务回滚 %d 次）%n",
+                STUDENTS, CAPACITY, THREADS, dbThroughput, dbRollbacks.get(),
+                ledgerThroughput, ledgerRollbacks.get(), ledgerThroughput / dbThroughput,
+                fullThroughput, fullRollbacks.get());
+    }
+
+    private Enrollment newEnrollment(Long studentId, Long courseId, Long batchId) {
+        Enrollment enrollment = new Enrollment();
+        enrollment.setStudentId(studentId);
+        enrollment.setCourseId(courseId);
+        enrollment.setBatchId(batchId);
+        enrollment.setStatus("已选");
+        enrollment.setEnrolledAt(LocalDateTime.now());
+        return enrollment;
+    }
+
+    private Long createHotCourse() {
+        Course course = new Course();
+        course.setCourseName("热门课程");
+        course.setCredits(2);
+        course.setCollege("基准测试学院");
+        course.setInstructorName("基准");
+        course.setCampus("本部");
+        course.setClassroom("B101");
+        course.setStartWeek(1);
+        course.setEndWeek(16);
+        course.setCapacity(CAPACITY);
+        course.setEnrolledCount(0);
+        courseMapper.insert(course);
+        courseIds.add(course.getCourseId());
+        return course.getCourseId();
+    }
+
+    private double run(AtomicInteger rollbacks, Consumer<Long> action) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < STUDENTS) {
+                    try {
+                        action.accept(FIRST_STUDENT_ID + i);
+                    } catch (ConcurrencyFailureException e) {
+                        // 热点行上的锁冲突/死锁回滚，计入失败
+                        rollbacks.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        return STUDENTS / (elapsed / 1_000_000_000.0);
+    }
+
+    private void assertNotOversold(Long courseId) {
+        Course course = courseMapper.selectById(courseId);
+        Long rows = enrollmentMapper.selectCount(new LambdaQueryWrapper<Enrollment>()
+                .eq(Enrollment::getCourseId, courseId)
+                .eq(Enrollment::getStatus, "已选"));
+        Assertions.assertTrue(course.getEnrolledCount() <= CAPACITY, "已选人数不应超过容量");
+        Assertions.assertEquals(course.getEnrolledCount().intValue(), rows.intValue(), "已选人数应与选课记录数一致");
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import org.example.newcourseselectionsystem.application.request.EnrollmentRequest;
+import org.example.newcourseselectionsystem.application.service.EnrollmentService;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.domain.entity.ElectiveBatch;
+import org.example.newcourseselectionsystem.domain.entity.Enrollment;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.ElectiveBatchMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 座位账本的回写在独立事务中进行，此测试不在测试事务中运行，结束时手动清理数据
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SeatLedgerTest {
+
+    private static final Long BATCH_ID = 2L;
+
+    @Autowired
+    private SeatLedger seatLedger;
+
+    @Autowired
+    private EnrollmentService enrollmentService;
+
+    @Autowired
+    private CourseMapper courseMapper;
+
+    @Autowired
+    private EnrollmentMapper enrollmentMapper;
+
+    @Autowired
+    private ElectiveBatchMapper electiveBatchMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StudentEnrollmentCache studentEnrollmentCache;
+
+    @Autowired
+    private StudentTimetableCache studentTimetableCache;
+
+    private Long courseId;
+
+    @AfterEach
+    void cleanUp() {
+        seatLedger.close();
+        enrollmentMapper.delete(new LambdaQueryWrapper<Enrollment>().eq(Enrollment::getCourseId, courseId));
+        courseMapper.deleteById(courseId);
+        for (long studentId = 1; studentId <= 3; studentId++) {
+            studentEnrollmentCache.evict(studentId);
+            studentTimetableCache.evict(studentId);
+        }
+    }
+
+    @Test
+    void shouldCancelReservationWhenTransactionRollsBack() {
+        courseId = insertCourse("账本回滚课程", 1);
+        seatLedger.open(electiveBatch());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Assertions.assertTrue(enrollmentService.enrollCourse(enrollRequest(1L)).getSuccess());
+            status.setRollbackOnly();
+        });
+        Assertions.assertEquals(0, seatLedger.seatsTaken(courseId), "事务回滚后应撤销内存占座");
+        seatLedger.flush();
+        Assertions.assertEquals(0L, countEnrolled(), "回滚的选课不应被回写");
+
+        // 撤销后座位与学生的占座键都已归还
+        Assertions.assertTrue(enrollmentService.enrollCourse(enrollRequest(1L)).getSuccess());
+        seatLedger.flush();
+        Assertions.assertEquals(1L, countEnrolled());
+        Assertions.assertEquals(1, courseMapper.selectById(courseId).getEnrolledCount());
+    }
+
+    @Test
+    void shouldRebuildSeatCountsFromEnrollmentsAfterRestart() {
+        courseId = insertCourse("账本重建课程", 2);
+        seatLedger.open(electiveBatch());
+        Assertions.assertTrue(enrollmentService.enrollCourse(enrollRequest(1L)).getSuccess());
+        Assertions.assertTrue(enrollmentService.enrollCourse(enrollRequest(2L)).getSuccess());
+        seatLedger.flush();
+
+        // 模拟崩溃：选课记录已写入，已选人数的增量丢失
+        courseMapper.update(null, new LambdaUpdateWrapper<Course>()
+                .set(Course::getEnrolledCount, 0)
+                .eq(Course::getCourseId, courseId));
+        seatLedger.close();
+        seatLedger.open(electiveBatch());
+
+        Assertions.assertEquals(2, seatLedger.seatsTaken(courseId), "重建时应以选课记录数为准");
+        Assertions.assertEquals(2, courseMapper.selectById(courseId).getEnrolledCount(), "重建时应校正少计的已选人数");
+        Assertions.assertFalse(enrollmentService.enrollCourse(enrollRequest(3L)).getSuccess(), "重建后不能超卖");
+    }
+
+    private Long insertCourse(String name, int capacity) {
+        Course course = new Course();
+        course.setCourseName(name);
+        course.setCredits(2);
+        course.setCollege("测试学院");
+        course.setInstructorName("李强");
+        course.setCampus("本部");
+        course.setClassroom("A101");
+        course.setStartWeek(1);
+        course.setEndWeek(16);
+        course.setCapacity(capacity);
+        course.setEnrolledCount(0);
+        courseMapper.insert(course);
+        return course.getCourseId();
+    }
+
+    private ElectiveBatch electiveBatch() {
+        return electiveBatchMapper.selectById(BATCH_ID);
+    }
+
+    private EnrollmentRequest enrollRequest(Long studentId) {
+        EnrollmentRequest request = new EnrollmentRequest();
+        request.setStudentId(studentId);
+        request.setCourseId(courseId);
+        request.setBatchId(BATCH_ID);
+        return request;
+    }
+
+    private long countEnrolled() {
+        return enrollmentMapper.selectCount(new LambdaQueryWrapper<Enrollment>()
+                .eq(Enrollment::getCourseId, courseId)
+                .eq(Enrollment::getStatus, "已选"));
+    }
+}
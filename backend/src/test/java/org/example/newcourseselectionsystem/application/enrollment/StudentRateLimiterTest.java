@@ -0,0 +1,67 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import org.example.newcourseselectionsystem.application.util.TokenBuckets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest(properties = {
+        "rate-limit.endpoints.test.path=/test/limited",
+        "rate-limit.endpoints.test.permits-per-second=0.5",
+        "rate-limit.endpoints.test.burst=3",
+        "rate-limit.endpoints.shared.path=/test/query,/test/query/page",
+        "rate-limit.endpoints.shared.burst=1"
+})
+@ActiveProfiles("test")
+class StudentRateLimiterTest {
+
+    @Autowired
+    private StudentRateLimiter studentRateLimiter;
+
+    @Test
+    void shouldRefillTokensAtConfiguredRate() {
+        TokenBuckets buckets = new TokenBuckets(10, 2);
+        long start = 1_000_000_000L;
+
+        Assertions.assertEquals(0, buckets.tryAcquire(1L, start));
+        Assertions.assertEquals(0, buckets.tryAcquire(1L, start));
+        long wait = buckets.tryAcquire(1L, start);
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait, "突发容量用完后需等待一个令牌间隔");
+        Assertions.assertEquals(0, buckets.tryAcquire(2L, start), "不同的键互不影响");
+
+        Assertions.assertEquals(0, buckets.tryAcquire(1L, start + wait));
+        Assertions.assertTrue(buckets.tryAcquire(1L, start + wait) > 0);
+
+        Assertions.assertEquals(0, buckets.evictIdle(start + wait, TimeUnit.SECONDS.toNanos(1)));
+        Assertions.assertEquals(2, buckets.evictIdle(start + TimeUnit.SECONDS.toNanos(5), TimeUnit.SECONDS.toNanos(1)));
+        Assertions.assertEquals(0, buckets.size());
+    }
+
+    @Test
+    void shouldThrottleStudentBeyondBurstAndReportIt() {
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertEquals(0, studentRateLimiter.check("/test/limited", 7001L, "127.0.0.1"));
+        }
+        long retryAfter = studentRateLimiter.check("/test/limited", 7001L, "127.0.0.1");
+        Assertions.assertEquals(2, retryAfter, "每秒补充0.5个令牌，应在2秒后重试");
+
+        Assertions.assertEquals(0, studentRateLimiter.check("/test/limited", 7002L, "127.0.0.1"), "其他学生不受影响");
+        Assertions.assertEquals(0, studentRateLimiter.check("/test/unlimited", 7001L, "127.0.0.1"), "未配置规则的接口不限流");
+
+        List<Map<String, Object>> throttled = studentRateLimiter.topThrottled(10);
+        Assertions.assertTrue(throttled.stream().anyMatch(item -> "7001".equals(item.get("key"))
+                && "test".equals(item.get("lastEndpoint"))));
+        Assertions.assertTrue(studentRateLimiter.rules().stream().anyMatch(rule -> "test".equals(rule.get("endpoint"))
+                && ((Long) rule.get("rejected")) >= 1));
+
+        Assertions.assertEquals(0, studentRateLimiter.check("/test/query", 7001L, "127.0.0.1"));
+        Assertions.assertTrue(studentRateLimiter.check("/test/query/page", 7001L, "127.0.0.1") > 0,
+                "同一规则的多个路径共用令牌桶");
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.newcourseselectionsystem.application.enrollment;
+
+import org.example.newcourseselectionsystem.application.dto.AdmissionDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(properties = "admission.max-active-students=1")
+@ActiveProfiles("test")
+class WaitingRoomTest {
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
+    @Test
+    void shouldAdmitInJoinOrderWithSignedTokens() {
+        Assertions.assertTrue(waitingRoom.join(1L).getAdmitted(), "等候室未开启时直接放行");
+
+        waitingRoom.open(1L);
+        try {
+            AdmissionDTO first = waitingRoom.join(1L);
+            Assertions.assertTrue(first.getAdmitted());
+            Assertions.assertTrue(waitingRoom.verify(first.getToken(), 1L));
+            Assertions.assertFalse(waitingRoom.verify(first.getToken(), 2L), "凭证只对签发给的学生有效");
+            Assertions.assertFalse(waitingRoom.verify(first.getToken().substring(1), 1L), "篡改的凭证应校验失败");
+            Assertions.assertFalse(waitingRoom.verify(null, 1L));
+
+            Assertions.assertFalse(waitingRoom.join(99999999L).getAdmitted(), "不存在的学生不能排队");
+            Assertions.assertNull(waitingRoom.join(99999999L).getPosition());
+
+            Assertions.assertEquals(1L, waitingRoom.join(2L).getPosition());
+            Assertions.assertEquals(2L, waitingRoom.join(3L).getPosition());
+            Assertions.assertEquals(1L, waitingRoom.join(2L).getPosition(), "重复进入保持原名次");
+
+            // 离开须持有自己的凭证
+            Assertions.assertFalse(waitingRoom.leave(null));
+            Assertions.assertFalse(waitingRoom.leave(first.getToken().substring(1)));
+            Assertions.assertTrue(waitingRoom.verify(first.getToken(), 1L));
+
+            // 名额释放后按排队顺序放行，离开者的凭证随之失效
+            Assertions.assertTrue(waitingRoom.leave(first.getToken()));
+            Assertions.assertFalse(waitingRoom.verify(first.getToken(), 1L), "离开后凭证应失效");
+            Assertions.assertFalse(waitingRoom.leave(first.getToken()), "失效的凭证不能再次离开");
+            waitingRoom.admitWaiting();
+            AdmissionDTO second = waitingRoom.status(2L);
+            Assertions.assertTrue(second.getAdmitted());
+            Assertions.assertTrue(waitingRoom.verify(second.getToken(), 2L));
+            Assertions.assertEquals(1L, waitingRoom.status(3L).getPosition());
+
+            // 换轮次后旧凭证失效
+            waitingRoom.open(2L);
+            Assertions.assertFalse(waitingRoom.verify(second.getToken(), 2L));
+        } finally {
+            waitingRoom.close();
+        }
+    }
+}
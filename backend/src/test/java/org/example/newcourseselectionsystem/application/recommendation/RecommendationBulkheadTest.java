@@ -0,0 +1,60 @@
+package org.example.newcourseselectionsystem.application.recommendation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest(properties = {
+        "recommendation.bulkhead.max-concurrent=1",
+        "recommendation.bulkhead.max-waiting=1",
+        "recommendation.bulkhead.wait-timeout-ms=2000"
+})
+@ActiveProfiles("test")
+class RecommendationBulkheadTest {
+
+    @Autowired
+    private RecommendationBulkhead recommendationBulkhead;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldQueueBrieflyThenRejectWhenBusy() throws Exception {
+        RecommendationBulkhead.Permit first = recommendationBulkhead.tryAcquire();
+        Assertions.assertNotNull(first);
+        Assertions.assertEquals(1.0, meterRegistry.get("recommendation.streams.active").gauge().value());
+
+        // 第二个请求进入等待队列
+        CompletableFuture<RecommendationBulkhead.Permit> waiter =
+                CompletableFuture.supplyAsync(recommendationBulkhead::tryAcquire);
+        long deadline = System.currentTimeMillis() + 2000;
+        while (meterRegistry.get("recommendation.streams.waiting").gauge().value() < 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(1.0, meterRegistry.get("recommendation.streams.waiting").gauge().value());
+
+        // 等待队列已满：立即拒绝
+        long start = System.nanoTime();
+        Assertions.assertNull(recommendationBulkhead.tryAcquire());
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500, "队列已满时应立即拒绝");
+        Assertions.assertEquals(1.0, meterRegistry.get("recommendation.streams.rejected")
+                .tag("reason", "queue_full").counter().count());
+
+        // 归还名额后等待者得到名额；重复归还不会多出名额
+        first.release();
+        first.release();
+        RecommendationBulkhead.Permit second = waiter.get(2, TimeUnit.SECONDS);
+        Assertions.assertNotNull(second);
+        Assertions.assertEquals(1.0, meterRegistry.get("recommendation.streams.active").gauge().value());
+
+        second.release();
+        Assertions.assertEquals(0.0, meterRegistry.get("recommendation.streams.active").gauge().value());
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.newcourseselectionsystem.application.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.example.newcourseselectionsystem.application.catalog.CatalogVersionTracker;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.domain.entity.CourseSession;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseSessionMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 课程冲突图测试
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class CourseConflictServiceTest {
+
+    @Autowired
+    private CourseConflictService courseConflictService;
+
+    @Autowired
+    private CatalogVersionTracker catalogVersionTracker;
+
+    @Autowired
+    private CourseMapper courseMapper;
+
+    @Autowired
+    private CourseSessionMapper courseSessionMapper;
+
+    @Test
+    void shouldAnswerConflictsFromGraph() {
+        Long wednesdayCourseId = insertCourse("周三", 5, 6, 0);
+        Long oddWeekCourseId = insertCourse("周六", 3, 4, 1);
+        Long evenWeekCourseId = insertCourse("周六", 3, 4, 2);
+        // 目录指纹变化 → 快照重新加载 → 冲突图重建
+        catalogVersionTracker.refresh();
+
+        // 数据结构（课程1）在周三第5节
+        Assertions.assertTrue(courseConflictService.conflicts(1L, wednesdayCourseId), "周三第5-6节应与数据结构冲突");
+        Assertions.assertFalse(courseConflictService.conflicts(1L, 2L), "数据结构与数据库系统不冲突");
+        Assertions.assertFalse(courseConflictService.conflicts(oddWeekCourseId, evenWeekCourseId), "单周课与双周课不冲突");
+
+        List<Long> conflicts = courseConflictService.listConflictingCourseIds(1L);
+        Assertions.assertEquals(Arrays.asList(wednesdayCourseId), conflicts, "与数据结构冲突的只有新增的周三课程");
+        Assertions.assertEquals(wednesdayCourseId,
+                courseConflictService.findFirstConflict(1L, Arrays.asList(2L, 3L, wednesdayCourseId)));
+    }
+
+    @Test
+    void shouldDetectCatalogEditsThatKeepNumericColumns() {
+        Long courseId = insertCourse("周一", 7, 8, 0);
+        catalogVersionTracker.refresh();
+        Assertions.assertFalse(catalogVersionTracker.refresh(), "目录未变化时指纹不变");
+
+        // 节次改到另一天：星期的字符长度不变
+        CourseSession session = courseSessionMapper.selectList(new LambdaQueryWrapper<CourseSession>()
+                .eq(CourseSession::getCourseId, courseId)).get(0);
+        session.setWeekday("周二");
+        courseSessionMapper.updateById(session);
+        Assertions.assertTrue(catalogVersionTracker.refresh(), "节次改到其他星期应更新目录版本");
+
+        // 只改学院、教师等文本列
+        Course course = courseMapper.selectById(courseId);
+        course.setCollege("数学学院");
+        course.setInstructorName("王英");
+        courseMapper.updateById(course);
+        Assertions.assertTrue(catalogVersionTracker.refresh(), "学院、教师变化应更新目录版本");
+
+        // 已选人数不属于目录
+        course.setEnrolledCount(10);
+        courseMapper.updateById(course);
+        Assertions.assertFalse(catalogVersionTracker.refresh(), "已选人数变化不应更新目录版本");
+    }
+
+    /**
+     * 测试数据回滚后恢复目录快照，避免影响其他测试
+     */
+    @AfterTransaction
+    void restoreCatalog() {
+        catalogVersionTracker.refresh();
+    }
+
+    private Long insertCourse(String weekday, int startPeriod, int endPeriod, int weekType) {
+        Course course = new Course();
+        course.setCourseName("冲突图测试课程");
+        course.setCredits(2);
+        course.setCollege("测试学院");
+        course.setInstructorName("李强");
+        course.setCampus("本部");
+        course.setClassroom("A106");
+        course.setStartWeek(1);
+        course.setEndWeek(16);
+        course.setCapacity(30);
+        course.setEnrolledCount(0);
+        courseMapper.insert(course);
+
+        CourseSession session = new CourseSession();
+        session.setCourseId(course.getCourseId());
+        session.setWeekday(weekday);
+        session.setStartPeriod(startPeriod);
+        session.setEndPeriod(endPeriod);
+        session.setWeekType(weekType);
+        courseSessionMapper.insert(session);
+        return course.getCourseId();
+    }
+}
@@ -1,16 +1,25 @@
 package org.example.newcourseselectionsystem.application.service;
 
+import org.example.newcourseselectionsystem.application.dto.CoursePageDTO;
 import org.example.newcourseselectionsystem.application.dto.CourseWithSessionsDTO;
+import org.example.newcourseselectionsystem.application.dto.FacetValueDTO;
+import org.example.newcourseselectionsystem.application.request.CombinedCourseQueryRequest;
+import org.example.newcourseselectionsystem.application.request.CourseAttributeQueryRequest;
+import org.example.newcourseselectionsystem.application.request.CourseFacetRequest;
+import org.example.newcourseselectionsystem.application.request.CoursePageRequest;
 import org.example.newcourseselectionsystem.application.request.CourseQueryRequest;
 import org.example.newcourseselectionsystem.application.request.SessionQueryRequest;
+import org.example.newcourseselectionsystem.application.util.PageCursor;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @SpringBootTest
@@ -37,6 +46,30 @@ class CourseServiceTest {
         Assertions.assertFalse(dataStructure.getSessions().isEmpty(), "课程应附带节次信息");
     }
 
+    @Test
+    void shouldMatchSubstringsThroughNgramIndex() {
+        CourseQueryRequest request = new CourseQueryRequest();
+        request.setCourseName("数据");
+        List<String> names = courseService.listCoursesByCondition(request).stream()
+                .map(CourseWithSessionsDTO::getCourseName)
+                .collect(Collectors.toList());
+        // 两门均为前缀匹配，名称较短者更相关
+        Assertions.assertEquals(Arrays.asList("数据结构", "数据库系统"), names);
+
+        request.setCourseName("据库系");
+        Assertions.assertEquals(1, courseService.listCoursesByCondition(request).size(), "三字关键字应精确匹配子串");
+
+        request.setCourseName("结构库");
+        Assertions.assertTrue(courseService.listCoursesByCondition(request).isEmpty(), "双字均出现但不相邻时不应匹配");
+
+        CourseQueryRequest byInstructor = new CourseQueryRequest();
+        byInstructor.setInstructorName("陈");
+        byInstructor.setDescription("网络");
+        List<CourseWithSessionsDTO> courses = courseService.listCoursesByCondition(byInstructor);
+        Assertions.assertEquals(1, courses.size());
+        Assertions.assertEquals("计算机网络", courses.get(0).getCourseName());
+    }
+
     @Test
     void shouldQueryCoursesBySession() {
         SessionQueryRequest request = new SessionQueryRequest();
@@ -63,4 +96,90 @@ class CourseServiceTest {
         Assertions.assertNotNull(course.getCourseName(), "课程名称不应为空");
         Assertions.assertFalse(course.getSessions().isEmpty(), "课程应附带节次信息");
     }
+
+    @Test
+    void shouldQuerySessionsByIntervalRelation() {
+        SessionQueryRequest request = new SessionQueryRequest();
+        request.setStartPeriod(2);
+        request.setEndPeriod(3);
+        Assertions.assertTrue(courseService.listCoursesBySession(request).isEmpty(), "没有单个节次覆盖第2-3节");
+
+        request.setMatchMode("overlaps");
+        Assertions.assertEquals(Arrays.asList(2L, 3L, 5L), courseIdsBySession(request), "第1-2节与第3-4节的课程均与第2-3节相交");
+
+        request.setMatchMode("inside");
+        request.setStartPeriod(3);
+        request.setEndPeriod(6);
+        Assertions.assertEquals(Arrays.asList(1L, 3L, 4L), courseIdsBySession(request));
+
+        request.setWeekdays(Arrays.asList("周二"));
+        Assertions.assertEquals(Arrays.asList(3L), courseIdsBySession(request));
+    }
+
+    @Test
+    void shouldPageCombinedSearchKeepingEnrolledFirst() {
+        CombinedCourseQueryRequest request = new CombinedCourseQueryRequest();
+        request.setStudentId(1L);
+        CoursePageRequest page = new CoursePageRequest();
+        page.setPageSize(2);
+        page.setSortBy("credits");
+        page.setDirection("desc");
+        page.setIncludeTotal(true);
+
+        List<Long> courseIds = new ArrayList<>();
+        CoursePageDTO result;
+        do {
+            result = courseService.searchCourses(request, page);
+            Assertions.assertEquals(6, result.getTotal());
+            result.getItems().forEach(dto -> courseIds.add(dto.getCourseId()));
+            page.setPageToken(result.getNextPageToken());
+        } while (result.getNextPageToken() != null);
+
+        // 已选的1、2、3在前，组内按学分降序、课程ID升序
+        Assertions.assertEquals(Arrays.asList(1L, 3L, 2L, 5L, 6L, 4L), courseIds);
+
+        page.setSortBy("courseId");
+        page.setPageToken(courseService.searchCourses(request, pageOf(2)).getNextPageToken());
+        Assertions.assertThrows(PageCursor.InvalidPageTokenException.class, () -> courseService.searchCourses(request, page),
+                "排序条件变化后旧令牌应被拒绝");
+    }
+
+    @Test
+    void shouldCountFacetsInOnePass() {
+        CourseQueryRequest condition = new CourseQueryRequest();
+        condition.setCollege("计算机学院");
+        CourseFacetRequest request = new CourseFacetRequest();
+        request.setCondition(condition);
+        request.setFacets(Arrays.asList("credits", "weekday", "campus"));
+
+        Map<String, List<FacetValueDTO>> facets = courseService.getFacets(request);
+
+        Assertions.assertEquals(Arrays.asList("credits", "weekday", "campus"), new ArrayList<>(facets.keySet()));
+        Assertions.assertEquals(Arrays.asList("3=2", "4=3"), describe(facets.get("credits")));
+        Assertions.assertEquals(Arrays.asList("周一=1", "周二=1", "周三=1", "周四=1", "周五=1"), describe(facets.get("weekday")));
+        Assertions.assertEquals(Arrays.asList("本部=5"), describe(facets.get("campus")));
+        Assertions.assertSame(facets, courseService.getFacets(request), "相同条件应命中缓存");
+
+        CourseAttributeQueryRequest attributeRequest = new CourseAttributeQueryRequest();
+        attributeRequest.setCondition(condition);
+        attributeRequest.setAttributeName("credits");
+        Assertions.assertEquals(Arrays.asList(3, 4), courseService.getAttributeValues(attributeRequest));
+    }
+
+    private static List<String> describe(List<FacetValueDTO> values) {
+        return values.stream().map(value -> value.getValue() + "=" + value.getCount()).collect(Collectors.toList());
+    }
+
+    private static CoursePageRequest pageOf(int pageSize) {
+        CoursePageRequest page = new CoursePageRequest();
+        page.setPageSize(pageSize);
+        page.setSortBy("credits");
+        return page;
+    }
+
+    private List<Long> courseIdsBySession(SessionQueryRequest request) {
+        return courseService.listCoursesBySession(request).stream()
+                .map(CourseWithSessionsDTO::getCourseId)
+                .collect(Collectors.toList());
+    }
 }
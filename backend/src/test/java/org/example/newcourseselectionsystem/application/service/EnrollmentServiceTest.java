@@ -1,21 +1,36 @@
 package org.example.newcourseselectionsystem.application.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.example.newcourseselectionsystem.application.dto.CartEnrollmentResponse;
+import org.example.newcourseselectionsystem.application.dto.CartItemResultDTO;
 import org.example.newcourseselectionsystem.application.dto.EnrollmentResponse;
+import org.example.newcourseselectionsystem.application.enrollment.SeatLedger;
+import org.example.newcourseselectionsystem.application.enrollment.StudentEnrollmentCache;
+import org.example.newcourseselectionsystem.application.enrollment.StudentTimetableCache;
+import org.example.newcourseselectionsystem.application.request.CartEnrollmentRequest;
+import org.example.newcourseselectionsystem.application.request.DropCourseRequest;
 import org.example.newcourseselectionsystem.application.request.EnrollmentRequest;
+import org.example.newcourseselectionsystem.application.request.SwapCourseRequest;
 import org.example.newcourseselectionsystem.domain.entity.Course;
 import org.example.newcourseselectionsystem.domain.entity.CourseSession;
+import org.example.newcourseselectionsystem.domain.entity.ElectiveBatch;
 import org.example.newcourseselectionsystem.domain.entity.Enrollment;
+import org.example.newcourseselectionsystem.domain.entity.WaitlistEntry;
 import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
 import org.example.newcourseselectionsystem.infrastructure.mapper.CourseSessionMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.ElectiveBatchMapper;
 import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.WaitlistEntryMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -38,6 +53,21 @@ class EnrollmentServiceTest {
     @Autowired
     private CourseSessionMapper courseSessionMapper;
 
+    @Autowired
+    private StudentEnrollmentCache studentEnrollmentCache;
+
+    @Autowired
+    private StudentTimetableCache studentTimetableCache;
+
+    @Autowired
+    private ElectiveBatchMapper electiveBatchMapper;
+
+    @Autowired
+    private WaitlistEntryMapper waitlistEntryMapper;
+
+    @Autowired
+    private SeatLedger seatLedger;
+
     @Test
     void shouldEnrollCourseSuccessfully() {
         // 准备：使用测试数据中的学生ID=2和课程ID=4（假设课程4还没有被学生2选过）
@@ -112,20 +142,22 @@ class EnrollmentServiceTest {
         EnrollmentRequest firstRequest = new EnrollmentRequest();
         firstRequest.setStudentId(1L);
         firstRequest.setCourseId(1L);
+        firstRequest.setBatchId(1L);
         EnrollmentResponse firstResponse = enrollmentService.enrollCourse(firstRequest);
         Assertions.assertTrue(firstResponse.getSuccess(), "第一次选课应该成功");
 
-        // 再次尝试让学生1选择课程1
+        // 再次尝试让学生1在同一轮次选择课程1
         EnrollmentRequest request = new EnrollmentRequest();
         request.setStudentId(1L);
         request.setCourseId(1L);
+        request.setBatchId(1L);
 
         // 执行
         EnrollmentResponse response = enrollmentService.enrollCourse(request);
 
         // 验证
         Assertions.assertFalse(response.getSuccess(), "选课应该失败");
-        Assertions.assertEquals("您已经选择过该课程", response.getMessage());
+        Assertions.assertEquals("您在当前轮次已经选择过该课程", response.getMessage());
         Assertions.assertNull(response.getEnrollmentId(), "不应该返回选课记录ID");
     }
 
@@ -136,7 +168,7 @@ class EnrollmentServiceTest {
         fullCourse.setCourseName("已满课程");
         fullCourse.setCredits(3);
         fullCourse.setCollege("测试学院");
-        fullCourse.setInstructorId(1L);
+        fullCourse.setInstructorName("李强");
         fullCourse.setCampus("本部");
         fullCourse.setClassroom("A101");
         fullCourse.setStartWeek(1);
@@ -145,10 +177,11 @@ class EnrollmentServiceTest {
         fullCourse.setEnrolledCount(1); // 已满
         courseMapper.insert(fullCourse);
 
-        // 创建一个学生选择这个已满的课程
+        // 创建一个学生在即选即中轮次（强制容量）选择这个已满的课程
         EnrollmentRequest request = new EnrollmentRequest();
         request.setStudentId(2L);
         request.setCourseId(fullCourse.getCourseId());
+        request.setBatchId(2L);
 
         // 执行
         EnrollmentResponse response = enrollmentService.enrollCourse(request);
@@ -158,6 +191,38 @@ class EnrollmentServiceTest {
         Assertions.assertTrue(response.getMessage().contains("课程已满"), 
                 "错误消息应该包含'课程已满'");
         Assertions.assertNull(response.getEnrollmentId(), "不应该返回选课记录ID");
+        Assertions.assertEquals(1, courseMapper.selectById(fullCourse.getCourseId()).getEnrolledCount(),
+                "强制容量模式下已选人数不应超过容量");
+    }
+
+    @Test
+    void shouldAllowOverCapacityInPreferenceRound() {
+        // 准备：创建一个已满的课程
+        Course fullCourse = new Course();
+        fullCourse.setCourseName("已满课程");
+        fullCourse.setCredits(3);
+        fullCourse.setCollege("测试学院");
+        fullCourse.setInstructorName("李强");
+        fullCourse.setCampus("本部");
+        fullCourse.setClassroom("A101");
+        fullCourse.setStartWeek(1);
+        fullCourse.setEndWeek(16);
+        fullCourse.setCapacity(1);
+        fullCourse.setEnrolledCount(1);
+        courseMapper.insert(fullCourse);
+
+        // 志愿轮次（预选）允许超容量
+        EnrollmentRequest request = new EnrollmentRequest();
+        request.setStudentId(2L);
+        request.setCourseId(fullCourse.getCourseId());
+        request.setBatchId(1L);
+
+        EnrollmentResponse response = enrollmentService.enrollCourse(request);
+
+        Assertions.assertTrue(response.getSuccess(), "志愿轮次应允许超容量预选");
+        Assertions.assertTrue(response.getWarn().contains("抽签难度较大"), "应提示超容量");
+        Assertions.assertEquals(2, courseMapper.selectById(fullCourse.getCourseId()).getEnrolledCount(),
+                "已选人数应增加1");
     }
 
     @Test
@@ -180,7 +245,7 @@ class EnrollmentServiceTest {
         conflictCourse.setCourseName("冲突课程");
         conflictCourse.setCredits(3);
         conflictCourse.setCollege("测试学院");
-        conflictCourse.setInstructorId(1L);
+        conflictCourse.setInstructorName("李强");
         conflictCourse.setCampus("本部");
         conflictCourse.setClassroom("A102");
         conflictCourse.setStartWeek(1);
@@ -212,6 +277,133 @@ class EnrollmentServiceTest {
                 "警告信息应该包含'选课时间冲突'");
     }
 
+    @Test
+    void shouldNotReportConflictBetweenOddAndEvenWeekSessions() {
+        // 准备：同一时间段的单周课与双周课
+        Long oddWeekCourseId = insertCourseWithSession("单周课程", "周六", 1, 2, 1);
+        Long evenWeekCourseId = insertCourseWithSession("双周课程", "周六", 1, 2, 2);
+
+        EnrollmentRequest first = new EnrollmentRequest();
+        first.setStudentId(2L);
+        first.setCourseId(oddWeekCourseId);
+        Assertions.assertTrue(enrollmentService.enrollCourse(first).getSuccess(), "选择单周课程应该成功");
+
+        EnrollmentRequest second = new EnrollmentRequest();
+        second.setStudentId(2L);
+        second.setCourseId(evenWeekCourseId);
+        EnrollmentResponse response = enrollmentService.enrollCourse(second);
+
+        // 验证：单双周交替上课，不应报告时间冲突
+        Assertions.assertTrue(response.getSuccess(), "选择双周课程应该成功");
+        Assertions.assertNull(response.getWarn(), "单周课与双周课不应报告时间冲突");
+    }
+
+    @Test
+    void shouldEnrollCartWithPerCourseResults() {
+        Long first = insertCourseWithSession("购物车课程甲", "周三", 1, 2, 0);
+        Long overlapping = insertCourseWithSession("购物车课程乙", "周三", 2, 3, 0);
+        Long full = insertCourseWithSession("购物车满员课程", "周四", 1, 2, 0);
+        Course fullCourse = courseMapper.selectById(full);
+        fullCourse.setCapacity(1);
+        fullCourse.setEnrolledCount(1);
+        courseMapper.updateById(fullCourse);
+
+        // 尽量选上：满员与不存在的课程失败，其余课程一次写入，购物车内的时间冲突只警告
+        CartEnrollmentRequest request = new CartEnrollmentRequest();
+        request.setStudentId(2L);
+        request.setBatchId(2L);
+        request.setCourseIds(Arrays.asList(first, overlapping, full, 99999999L, first));
+        CartEnrollmentResponse response = enrollmentService.enrollCart(request);
+
+        Assertions.assertFalse(response.getSuccess());
+        List<CartItemResultDTO> results = response.getResults();
+        Assertions.assertEquals(4, results.size(), "重复的课程只处理一次");
+        Assertions.assertTrue(results.get(0).getSuccess());
+        Assertions.assertNotNull(results.get(0).getEnrollmentId());
+        Assertions.assertTrue(results.get(1).getSuccess());
+        Assertions.assertTrue(results.get(1).getWarn().contains("购物车课程《购物车课程甲》"));
+        Assertions.assertTrue(results.get(2).getMessage().contains("课程已满"));
+        Assertions.assertFalse(results.get(3).getSuccess());
+        Assertions.assertEquals(1, courseMapper.selectById(first).getEnrolledCount());
+        Assertions.assertEquals(1, courseMapper.selectById(overlapping).getEnrolledCount());
+        Assertions.assertEquals(1, courseMapper.selectById(full).getEnrolledCount());
+
+        // 全部成功才提交：任一课程失败则整车不写入
+        Long other = insertCourseWithSession("购物车课程丙", "周五", 1, 2, 0);
+        request.setCourseIds(Arrays.asList(other, full));
+        request.setAllOrNothing(true);
+        response = enrollmentService.enrollCart(request);
+
+        Assertions.assertFalse(response.getSuccess());
+        Assertions.assertFalse(response.getResults().get(0).getSuccess());
+        Assertions.assertTrue(response.getResults().get(1).getMessage().contains("课程已满"));
+        Assertions.assertEquals(0, courseMapper.selectById(other).getEnrolledCount());
+        Assertions.assertEquals(0L, enrollmentMapper.selectCount(new LambdaQueryWrapper<Enrollment>()
+                .eq(Enrollment::getCourseId, other)));
+    }
+
+    @Test
+    void shouldSwapCourseWithoutLosingSeat() {
+        Long original = insertCourseWithSession("换课原课程", "周二", 3, 4, 0);
+        Long sameSlot = insertCourseWithSession("换课新课程", "周二", 3, 4, 0);
+        Long full = insertCourseWithSession("换课满员课程", "周五", 3, 4, 0);
+        Course fullCourse = courseMapper.selectById(full);
+        fullCourse.setCapacity(1);
+        fullCourse.setEnrolledCount(1);
+        courseMapper.updateById(fullCourse);
+        Assertions.assertTrue(enrollmentService.enrollCourse(enrollRequest(2L, original, 2L)).getSuccess());
+        studentTimetableCache.evict(2L);
+        studentEnrollmentCache.evict(2L);
+
+        // 新课程已满：换课失败，原课程的座位保留
+        SwapCourseRequest request = new SwapCourseRequest();
+        request.setStudentId(2L);
+        request.setDropCourseId(original);
+        request.setEnrollCourseId(full);
+        request.setBatchId(2L);
+        EnrollmentResponse response = enrollmentService.swapCourse(request);
+        Assertions.assertFalse(response.getSuccess());
+        Assertions.assertTrue(response.getMessage().contains("课程已满"));
+        Assertions.assertEquals(1, courseMapper.selectById(original).getEnrolledCount());
+
+        // 与原课程同一时段的新课程：不提示与原课程冲突
+        request.setEnrollCourseId(sameSlot);
+        response = enrollmentService.swapCourse(request);
+        Assertions.assertTrue(response.getSuccess(), response.getMessage());
+        Assertions.assertNull(response.getWarn(), "时间冲突检查应不计入将退选的课程");
+        Assertions.assertNotNull(response.getEnrollmentId());
+        Assertions.assertEquals(0, courseMapper.selectById(original).getEnrolledCount());
+        Assertions.assertEquals(1, courseMapper.selectById(sameSlot).getEnrolledCount());
+        Assertions.assertEquals(0L, enrollmentMapper.selectCount(new LambdaQueryWrapper<Enrollment>()
+                .eq(Enrollment::getStudentId, 2L)
+                .eq(Enrollment::getCourseId, original)
+                .eq(Enrollment::getStatus, "已选")));
+    }
+
+    private Long insertCourseWithSession(String courseName, String weekday, int startPeriod, int endPeriod, int weekType) {
+        Course course = new Course();
+        course.setCourseName(courseName);
+        course.setCredits(2);
+        course.setCollege("测试学院");
+        course.setInstructorName("李强");
+        course.setCampus("本部");
+        course.setClassroom("A103");
+        course.setStartWeek(1);
+        course.setEndWeek(16);
+        course.setCapacity(50);
+        course.setEnrolledCount(0);
+        courseMapper.insert(course);
+
+        CourseSession session = new CourseSession();
+        session.setCourseId(course.getCourseId());
+        session.setWeekday(weekday);
+        session.setStartPeriod(startPeriod);
+        session.setEndPeriod(endPeriod);
+        session.setWeekType(weekType);
+        courseSessionMapper.insert(session);
+        return course.getCourseId();
+    }
+
     @Test
     void shouldUpdateEnrolledCountAfterEnrollment() {
         // 准备：选择一个课程，记录选课前的enrolled_count
@@ -239,5 +431,153 @@ class EnrollmentServiceTest {
                     "enrolled_count应该增加1");
         }
     }
-}
 
+    @Test
+    void shouldLoadEnrollmentStateGroupedByStatus() {
+        // 使用不存在于测试数据中的学生，避免命中其他用例留下的缓存
+        Long studentId = 90001L;
+        insertEnrollment(studentId, 7L, "已修");
+        insertEnrollment(studentId, 3L, "已选");
+        insertEnrollment(studentId, 1L, "已选");
+        insertEnrollment(studentId, 2L, "已退选");
+
+        StudentEnrollmentCache.EnrollmentState state = studentEnrollmentCache.get(studentId);
+
+        Assertions.assertArrayEquals(new long[]{1L, 3L}, state.courseIds(StudentEnrollmentCache.ENROLLED),
+                "已选课程应按课程ID升序");
+        Assertions.assertTrue(state.contains(StudentEnrollmentCache.COMPLETED, 7L));
+        Assertions.assertTrue(state.containsAny(2L), "已退选的课程也应记录");
+        Assertions.assertFalse(state.containsAny(4L));
+        Assertions.assertEquals(3, state.courseIdSet(StudentEnrollmentCache.COMPLETED, StudentEnrollmentCache.ENROLLED).size());
+        // 测试事务中的快照可能早于并发提交，加载结果不写入缓存
+        Assertions.assertNotSame(state, studentEnrollmentCache.get(studentId), "事务中的加载结果不应写入缓存");
+    }
+
+    /**
+     * 候补队列在事务提交后才同步到内存，此用例不在测试事务中运行，结束时手动清理数据
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldPromoteWaitlistHeadWhenSeatIsDropped() {
+        ElectiveBatch batch = new ElectiveBatch();
+        batch.setBatchName("候补测试");
+        batch.setRoundName("补退选");
+        batch.setStartTime(LocalDateTime.now().minusDays(1));
+        batch.setEndTime(LocalDateTime.now().plusDays(1));
+        batch.setSelectionMode("即选即中");
+        batch.setSelectionStrategy("容量满后可候补");
+        batch.setStatus("进行中");
+        electiveBatchMapper.insert(batch);
+        Course course = new Course();
+        course.setCourseName("候补课程");
+        course.setCredits(2);
+        course.setCollege("测试学院");
+        course.setInstructorName("李强");
+        course.setCampus("本部");
+        course.setClassroom("A105");
+        course.setStartWeek(1);
+        course.setEndWeek(16);
+        course.setCapacity(1);
+        course.setEnrolledCount(0);
+        courseMapper.insert(course);
+        Long courseId = course.getCourseId();
+
+        try {
+            Assertions.assertTrue(enrollmentService.enrollCourse(enrollRequest(1L, courseId, batch.getBatchId())).getSuccess());
+            Assertions.assertFalse(enrollmentService.enrollCourse(enrollRequest(2L, courseId, batch.getBatchId())).getSuccess());
+
+            EnrollmentResponse joined = enrollmentService.joinWaitlist(enrollRequest(2L, courseId, batch.getBatchId()));
+            Assertions.assertTrue(joined.getSuccess(), joined.getMessage());
+            Assertions.assertTrue(enrollmentService.joinWaitlist(enrollRequest(3L, courseId, batch.getBatchId())).getSuccess());
+            Assertions.assertFalse(enrollmentService.joinWaitlist(enrollRequest(3L, courseId, batch.getBatchId())).getSuccess(),
+                    "不能重复加入候补");
+            Assertions.assertEquals(2, enrollmentService.getWaitlistPosition(3L, courseId).getPosition());
+
+            DropCourseRequest drop = new DropCourseRequest();
+            drop.setStudentId(1L);
+            drop.setCourseId(courseId);
+            Assertions.assertTrue(enrollmentService.dropCourse(drop).getSuccess());
+
+            // 队首学生在退课事务中递补，后面的学生名次前移
+            Assertions.assertEquals(1L, enrollmentMapper.selectCount(new LambdaQueryWrapper<Enrollment>()
+                    .eq(Enrollment::getStudentId, 2L)
+                    .eq(Enrollment::getCourseId, courseId)
+                    .eq(Enrollment::getStatus, "已选")));
+            Assertions.assertEquals(1, courseMapper.selectById(courseId).getEnrolledCount());
+            Assertions.assertEquals(0, enrollmentService.getWaitlistPosition(2L, courseId).getPosition());
+            Assertions.assertEquals(1, enrollmentService.getWaitlistPosition(3L, courseId).getPosition());
+            Assertions.assertTrue(studentEnrollmentCache.get(2L).contains(StudentEnrollmentCache.ENROLLED, courseId));
+        } finally {
+            waitlistEntryMapper.delete(new LambdaQueryWrapper<WaitlistEntry>().eq(WaitlistEntry::getCourseId, courseId));
+            enrollmentMapper.delete(new LambdaQueryWrapper<Enrollment>().eq(Enrollment::getCourseId, courseId));
+            courseMapper.deleteById(courseId);
+            electiveBatchMapper.deleteById(batch.getBatchId());
+            for (long studentId = 1; studentId <= 3; studentId++) {
+                studentEnrollmentCache.evict(studentId);
+                studentTimetableCache.evict(studentId);
+            }
+        }
+    }
+
+    /**
+     * 座位账本模式：开放时校正多计的已选人数；选课后立即退课能看到尚未回写的记录，座位在退课提交后归还
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldDropJustEnrolledCourseThroughSeatLedger() {
+        Long courseId = insertCourseWithSession("账本退课课程", "周日", 1, 2, 0);
+        Course overcounted = new Course();
+        overcounted.setCourseId(courseId);
+        overcounted.setCapacity(1);
+        overcounted.setEnrolledCount(3);
+        courseMapper.updateById(overcounted);
+        Long batchId = 2L;
+
+        seatLedger.open(electiveBatchMapper.selectById(batchId));
+        try {
+            Assertions.assertEquals(0, seatLedger.seatsTaken(courseId), "开放账本时应按选课记录校正多计的已选人数");
+            Assertions.assertTrue(enrollmentService.enrollCourse(enrollRequest(1L, courseId, batchId)).getSuccess());
+
+            DropCourseRequest drop = new DropCourseRequest();
+            drop.setStudentId(1L);
+            drop.setCourseId(courseId);
+            // 与退课接口一致：在退课事务开始之前回写
+            seatLedger.flushBeforeTransaction();
+            EnrollmentResponse dropped = enrollmentService.dropCourse(drop);
+            Assertions.assertTrue(dropped.getSuccess(), dropped.getMessage());
+            Assertions.assertEquals(0, seatLedger.seatsTaken(courseId));
+
+            Assertions.assertTrue(enrollmentService.enrollCourse(enrollRequest(2L, courseId, batchId)).getSuccess());
+            Assertions.assertFalse(enrollmentService.enrollCourse(enrollRequest(3L, courseId, batchId)).getSuccess(),
+                    "容量为1的课程不能超卖");
+            seatLedger.flush();
+            Assertions.assertEquals(1, courseMapper.selectById(courseId).getEnrolledCount());
+        } finally {
+            seatLedger.close();
+            enrollmentMapper.delete(new LambdaQueryWrapper<Enrollment>().eq(Enrollment::getCourseId, courseId));
+            courseSessionMapper.delete(new LambdaQueryWrapper<CourseSession>().eq(CourseSession::getCourseId, courseId));
+            courseMapper.deleteById(courseId);
+            for (long studentId = 1; studentId <= 3; studentId++) {
+                studentEnrollmentCache.evict(studentId);
+                studentTimetableCache.evict(studentId);
+            }
+        }
+    }
+
+    private EnrollmentRequest enrollRequest(Long studentId, Long courseId, Long batchId) {
+        EnrollmentRequest request = new EnrollmentRequest();
+        request.setStudentId(studentId);
+        request.setCourseId(courseId);
+        request.setBatchId(batchId);
+        return request;
+    }
+
+    private void insertEnrollment(Long studentId, Long courseId, String status) {
+        Enrollment enrollment = new Enrollment();
+        enrollment.setStudentId(studentId);
+        enrollment.setCourseId(courseId);
+        enrollment.setEnrolledAt(LocalDateTime.now());
+        enrollment.setStatus(status);
+        enrollmentMapper.insert(enrollment);
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.newcourseselectionsystem.application.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.example.newcourseselectionsystem.application.dto.EnrollmentResponse;
+import org.example.newcourseselectionsystem.application.enrollment.IdempotentRequests;
+import org.example.newcourseselectionsystem.application.enrollment.StudentEnrollmentCache;
+import org.example.newcourseselectionsystem.application.enrollment.StudentTimetableCache;
+import org.example.newcourseselectionsystem.application.request.DropCourseRequest;
+import org.example.newcourseselectionsystem.application.request.EnrollmentRequest;
+import org.example.newcourseselectionsystem.application.service.impl.SequencedEnrollmentService;
+import org.example.newcourseselectionsystem.domain.entity.Course;
+import org.example.newcourseselectionsystem.domain.entity.Enrollment;
+import org.example.newcourseselectionsystem.domain.entity.IdempotencyRecord;
+import org.example.newcourseselectionsystem.infrastructure.mapper.CourseMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.EnrollmentMapper;
+import org.example.newcourseselectionsystem.infrastructure.mapper.IdempotencyRecordMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片线程在各自的事务中执行，此测试不在测试事务中运行，结束时手动清理数据
+ */
+@SpringBootTest(properties = {"enrollment.sequencer.enabled=true", "enrollment.sequencer.shards=2"})
+@ActiveProfiles("test")
+class SequencedEnrollmentServiceTest {
+
+    @Autowired
+    private EnrollmentService enrollmentService;
+
+    @Autowired
+    private CourseMapper courseMapper;
+
+    @Autowired
+    private EnrollmentMapper enrollmentMapper;
+
+    @Autowired
+    private IdempotentRequests idempotentRequests;
+
+    @Autowired
+    private IdempotencyRecordMapper idempotencyRecordMapper;
+
+    @Autowired
+    private StudentEnrollmentCache studentEnrollmentCache;
+
+    @Autowired
+    private StudentTimetableCache studentTimetableCache;
+
+    @Test
+    void shouldSerializeConcurrentMutationsOfOneCourse() throws Exception {
+        Assertions.assertTrue(enrollmentService instanceof SequencedEnrollmentService);
+        Course course = new Course();
+        course.setCourseName("分片执行课程");
+        course.setCredits(2);
+        course.setCollege("测试学院");
+        course.setInstructorName("李强");
+        course.setCampus("本部");
+        course.setClassroom("A108");
+        course.setStartWeek(1);
+        course.setEndWeek(16);
+        course.setCapacity(2);
+        course.setEnrolledCount(0);
+        courseMapper.insert(course);
+        Long courseId = course.getCourseId();
+
+        ExecutorService clients = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<EnrollmentResponse>> futures = new ArrayList<>();
+            for (long studentId = 1; studentId <= 3; studentId++) {
+                EnrollmentRequest request = new EnrollmentRequest();
+                request.setStudentId(studentId);
+                request.setCourseId(courseId);
+                request.setBatchId(2L);
+                futures.add(clients.submit(() -> enrollmentService.enrollCourse(request)));
+            }
+            Long loser = null;
+            int succeeded = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                if (futures.get(i).get(10, TimeUnit.SECONDS).getSuccess()) {
+                    succeeded++;
+                } else {
+                    loser = i + 1L;
+                }
+            }
+            Assertions.assertEquals(2, succeeded, "容量为2，应恰好两人选上");
+            Assertions.assertEquals(2, courseMapper.selectById(courseId).getEnrolledCount());
+
+            // 退课同样经由课程所在分片，空出的座位可被再次选上
+            DropCourseRequest drop = new DropCourseRequest();
+            drop.setStudentId(loser == 1L ? 2L : 1L);
+            drop.setCourseId(courseId);
+            Assertions.assertTrue(enrollmentService.dropCourse(drop).getSuccess());
+            EnrollmentRequest retry = new EnrollmentRequest();
+            retry.setStudentId(loser);
+            retry.setCourseId(courseId);
+            retry.setBatchId(2L);
+            Assertions.assertTrue(enrollmentService.enrollCourse(retry).getSuccess());
+            Assertions.assertEquals(2, courseMapper.selectById(courseId).getEnrolledCount());
+
+            // 携带请求键的退课：幂等记录与退课在分片线程的同一事务中提交，重复请求返回首次的结果
+            DropCourseRequest keyedDrop = new DropCourseRequest();
+            keyedDrop.setStudentId(loser);
+            keyedDrop.setCourseId(courseId);
+            EnrollmentResponse dropped = idempotentRequests.execute(loser, "sequenced-drop-1", "退课", courseId,
+                    () -> enrollmentService.dropCourse(keyedDrop));
+            Assertions.assertTrue(dropped.getSuccess(), dropped.getMessage());
+            idempotentRequests.clear();
+            Assertions.assertEquals(dropped, idempotentRequests.execute(loser, "sequenced-drop-1", "退课", courseId,
+                    () -> enrollmentService.dropCourse(keyedDrop)));
+            Assertions.assertEquals(1, courseMapper.selectById(courseId).getEnrolledCount());
+        } finally {
+            clients.shutdownNow();
+            enrollmentMapper.delete(new LambdaQueryWrapper<Enrollment>().eq(Enrollment::getCourseId, courseId));
+            idempotencyRecordMapper.delete(new LambdaQueryWrapper<IdempotencyRecord>()
+                    .eq(IdempotencyRecord::getRequestKey, "sequenced-drop-1"));
+            courseMapper.deleteById(courseId);
+            for (long studentId = 1; studentId <= 3; studentId++) {
+                studentEnrollmentCache.evict(studentId);
+                studentTimetableCache.evict(studentId);
+            }
+        }
+    }
+}
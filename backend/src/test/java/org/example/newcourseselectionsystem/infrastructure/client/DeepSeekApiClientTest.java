@@ -0,0 +1,124 @@
+package org.example.newcourseselectionsystem.infrastructure.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.StreamUtils;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 对本地模拟的 SSE 服务调用流式接口（使用应用中配置的连接池客户端）：服务端把响应切成 1~5 字节的小片逐片发送，
+ * 使 JSON 行与多字节 UTF-8 字符跨分片，校验解码后的回复内容完整无缺
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class DeepSeekApiClientTest {
+
+    private static final String[] TOKENS = {"你好", "，", "推荐《数据结构》", "和\"编译原理\"", "😀", "。\n祝学习顺利"};
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final AtomicReference<String> REQUEST_BODY = new AtomicReference<>();
+    private static final AtomicReference<String> AUTHORIZATION = new AtomicReference<>();
+    private static HttpServer server;
+
+    @Autowired
+    private DeepSeekApiClient client;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void stubServer(DynamicPropertyRegistry registry) throws Exception {
+        startServer();
+        registry.add("deepseek.api.key", () -> "test-key");
+        registry.add("deepseek.api.url", () -> "http://127.0.0.1:" + server.getAddress().getPort() + "/chat/completions");
+    }
+
+    static void startServer() throws Exception {
+        byte[] payload = ssePayload();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/chat/completions", exchange -> {
+            REQUEST_BODY.set(StreamUtils.copyToString(exchange.getRequestBody(), StandardCharsets.UTF_8));
+            AUTHORIZATION.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                int[] sizes = {1, 2, 3, 5};
+                for (int offset = 0, i = 0; offset < payload.length; i++) {
+                    int size = Math.min(sizes[i % sizes.length], payload.length - offset);
+                    out.write(payload, offset, size);
+                    out.flush();
+                    offset += size;
+                    Thread.sleep(1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void shouldDecodeFragmentedStreamWithoutLosingTokens() throws Exception {
+        for (int round = 0; round < 2; round++) {
+            List<String> contents = client.chatStream(Collections.singletonList(
+                            new DeepSeekApiClient.Message("user", "推荐几门课")))
+                    .collectList()
+                    .block(Duration.ofSeconds(30));
+
+            Assertions.assertNotNull(contents);
+            Assertions.assertEquals(String.join("", TOKENS), String.join("", contents));
+        }
+
+        JsonNode request = MAPPER.readTree(REQUEST_BODY.get());
+        Assertions.assertTrue(request.get("stream").asBoolean());
+        Assertions.assertEquals("推荐几门课", request.get("messages").get(0).get("content").asText());
+        Assertions.assertEquals("Bearer test-key", AUTHORIZATION.get());
+
+        Timer firstByte = meterRegistry.find("deepseek.time.to.first.byte").timer();
+        Assertions.assertNotNull(firstByte);
+        Assertions.assertTrue(firstByte.count() >= 2);
+        Assertions.assertTrue(meterRegistry.find("deepseek.stream.duration").tag("outcome", "completed").timer().count() >= 2);
+        Assertions.assertNotNull(meterRegistry.find("reactor.netty.connection.provider.total.connections")
+                .tag("name", "deepseek").gauge(), "连接池指标应已注册");
+    }
+
+    /**
+     * 模拟 DeepSeek 的流式响应：含心跳注释、CRLF 换行、首个事件的 role 增量、结束事件与 [DONE]
+     */
+    private static byte[] ssePayload() throws Exception {
+        StringBuilder sb = new StringBuilder(": keep-alive\n\n");
+        sb.append("data: {\"id\":\"1\",\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"\"}}]}\n\n");
+        for (int i = 0; i < TOKENS.length; i++) {
+            String event = "data: {\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,"
+                    + "\"delta\":{\"content\":" + MAPPER.writeValueAsString(TOKENS[i]) + "},\"logprobs\":null}]}";
+            sb.append(event).append(i % 2 == 0 ? "\n\n" : "\r\n\r\n");
+        }
+        sb.append("data: {\"id\":\"1\",\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}],"
+                + "\"usage\":{\"prompt_tokens\":10}}\n\n");
+        sb.append("data: [DONE]\n\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -40,3 +40,8 @@ INSERT INTO enrollments (student_id, course_id, enrolled_at, final_grade, status
 (1, 1, '2024-02-20 09:00:00', 92.5, '已选'),
 (1, 2, '2024-02-20 10:00:00', NULL, '已选'),
 (1, 3, '2024-02-20 11:00:00', 88.0, '已选');
+
+-- 6. 插入 elective_batches（选课轮次表）
+INSERT INTO elective_batches (batch_name, round_name, start_time, end_time, selection_mode, selection_strategy, status, description) VALUES
+('2024-2025学年第二学期选课', '第一轮选课', '2024-02-15 08:00:00', '2024-02-20 23:59:59', '志愿选课', '按志愿优先级分配，志愿相同时随机抽签', '已结束', '志愿制，允许超容量预选'),
+('2024-2025学年第二学期选课', '第二轮选课', '2024-02-22 08:00:00', '2024-02-27 23:59:59', '即选即中', '选课后立即生效，先到先得', '已结束', '即选即中，容量满后不可再选');
@@ -1,10 +1,17 @@
 -- H2数据库测试schema，移除了USE语句
+DROP TABLE IF EXISTS idempotency_records;
+DROP TABLE IF EXISTS lottery_draws;
+DROP TABLE IF EXISTS waitlist_entries;
 DROP TABLE IF EXISTS enrollments;
 DROP TABLE IF EXISTS course_sessions;
 DROP TABLE IF EXISTS courses;
+DROP TABLE IF EXISTS elective_batches;
 DROP TABLE IF EXISTS students;
 DROP TABLE IF EXISTS instructors;
 
+-- MySQL 的 CRC32 函数（课程目录指纹使用）
+CREATE ALIAS IF NOT EXISTS CRC32 FOR "org.example.newcourseselectionsystem.H2Functions.crc32";
+
 CREATE TABLE students (
     student_id    BIGINT PRIMARY KEY AUTO_INCREMENT,
     student_name  VARCHAR(64) NOT NULL,
@@ -42,14 +49,74 @@ CREATE TABLE course_sessions (
     course_id     BIGINT NOT NULL,
     weekday       VARCHAR(16) NOT NULL,
     start_period  INT NOT NULL,
-    end_period    INT NOT NULL
+    end_period    INT NOT NULL,
+    week_type     INT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE elective_batches (
+    batch_id      BIGINT PRIMARY KEY AUTO_INCREMENT,
+    batch_name    VARCHAR(128) NOT NULL,
+    round_name    VARCHAR(64) NOT NULL,
+    start_time    TIMESTAMP NOT NULL,
+    end_time      TIMESTAMP NOT NULL,
+    selection_mode VARCHAR(32) NOT NULL,
+    selection_strategy VARCHAR(64) NOT NULL,
+    status        VARCHAR(16) NOT NULL DEFAULT '未开始',
+    description   TEXT,
+    lottery_policy VARCHAR(32) NOT NULL DEFAULT '均等抽签',
+    seniority_weight DECIMAL(5,2),
+    deficit_weight DECIMAL(5,2)
 );
 
 CREATE TABLE enrollments (
     enrollment_id BIGINT PRIMARY KEY AUTO_INCREMENT,
     student_id    BIGINT NOT NULL,
     course_id     BIGINT NOT NULL,
+    batch_id      BIGINT,
     enrolled_at   TIMESTAMP NOT NULL,
     final_grade   DECIMAL(5,2),
     status        VARCHAR(16) NOT NULL
 );
+
+CREATE INDEX idx_enrollments_batch_status ON enrollments (batch_id, status);
+
+CREATE TABLE lottery_draws (
+    draw_id       BIGINT PRIMARY KEY AUTO_INCREMENT,
+    batch_id      BIGINT NOT NULL,
+    seed          BIGINT NOT NULL,
+    policy        VARCHAR(64),
+    course_count  INT NOT NULL,
+    entrant_count INT NOT NULL,
+    loser_count   INT NOT NULL,
+    drawn_at      TIMESTAMP NOT NULL,
+    elapsed_ms    BIGINT,
+    CONSTRAINT uk_lottery_draws_batch UNIQUE (batch_id)
+);
+
+CREATE TABLE waitlist_entries (
+    entry_id      BIGINT PRIMARY KEY AUTO_INCREMENT,
+    student_id    BIGINT NOT NULL,
+    course_id     BIGINT NOT NULL,
+    batch_id      BIGINT,
+    joined_at     TIMESTAMP NOT NULL,
+    status        VARCHAR(16) NOT NULL,
+    resolved_at   TIMESTAMP
+);
+
+CREATE INDEX idx_waitlist_course_status ON waitlist_entries (course_id, status);
+
+-- 选课/退课请求的幂等记录
+CREATE TABLE idempotency_records (
+    record_id     BIGINT PRIMARY KEY AUTO_INCREMENT,
+    student_id    BIGINT NOT NULL,
+    request_key   VARCHAR(64) NOT NULL,
+    operation     VARCHAR(16) NOT NULL,
+    success       BOOLEAN,
+    message       VARCHAR(255),
+    warn          VARCHAR(500),
+    enrollment_id BIGINT,
+    created_at    TIMESTAMP NOT NULL,
+    CONSTRAINT uk_idempotency_student_key UNIQUE (student_id, request_key)
+);
+
+CREATE INDEX idx_idempotency_created ON idempotency_records (created_at);